@@ -1,6 +1,7 @@
 package com.renteria.lims.auth.controller;
 
 import com.renteria.lims.auth.model.dto.*;
+import com.renteria.lims.auth.security.JwtPrincipal;
 import com.renteria.lims.auth.service.AuthService;
 import com.renteria.lims.auth.service.JwtService;
 import com.renteria.lims.common.util.StringUtils;
@@ -36,7 +37,9 @@ public class AuthController {
     @PostMapping("/login")
     public ResponseEntity<LoginResponse> login(@Valid @RequestBody LoginRequest request, HttpServletResponse response) {
         log.debug("Login attempt for: {}", StringUtils.maskEmail(request.email()));
-        
+
+        // Outside the login transaction: the bucket store needs a connection of its own
+        authService.checkLoginRateLimit(request.email());
         AuthService.LoginResult result = authService.login(request);
         
         // Set refresh token as HttpOnly cookie with SameSite=Strict
@@ -58,25 +61,28 @@ public class AuthController {
         
         AuthService.RefreshResult result = authService.refresh(refreshToken);
         
-        // Set new refresh token as HttpOnly cookie with SameSite=Strict
-        ResponseCookie cookie = ResponseCookie.from(REFRESH_COOKIE_NAME, result.rawRefreshToken())
-            .httpOnly(true)
-            .secure(true)
-            .path("/api/v1/auth")
-            .maxAge(Duration.ofDays(7))
-            .sameSite("Strict")
-            .build();
-        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+        // Set new refresh token as HttpOnly cookie with SameSite=Strict; a refresh that shared
+        // another request's rotation leaves the cookie that request set
+        if (result.rawRefreshToken() != null) {
+            ResponseCookie cookie = ResponseCookie.from(REFRESH_COOKIE_NAME, result.rawRefreshToken())
+                .httpOnly(true)
+                .secure(true)
+                .path("/api/v1/auth")
+                .maxAge(Duration.ofDays(7))
+                .sameSite("Strict")
+                .build();
+            response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+        }
         
         return ResponseEntity.ok(result.response());
     }
 
     @PostMapping("/logout")
     public ResponseEntity<Void> logout(Authentication authentication, HttpServletRequest request, HttpServletResponse response) {
-        UUID userId = UUID.fromString(authentication.getName());
+        JwtPrincipal principal = (JwtPrincipal) authentication.getPrincipal();
         String refreshToken = extractRefreshToken(request);
         
-        authService.logout(userId, refreshToken);
+        authService.logout(principal, refreshToken);
         
         // Clear refresh token cookie with SameSite=Strict
         ResponseCookie cookie = ResponseCookie.from(REFRESH_COOKIE_NAME, "")
@@ -104,7 +110,9 @@ public class AuthController {
 
     @PostMapping("/password-reset/request")
     public ResponseEntity<MessageResponse> requestPasswordReset(@Valid @RequestBody PasswordResetRequest request) {
-        authService.requestPasswordReset(request);
+        if (authService.tryConsumeResetRateLimit(request.email())) {
+            authService.requestPasswordReset(request);
+        }
         
         return ResponseEntity.ok(new MessageResponse(
             "If an account exists with this email, a reset link has been sent."
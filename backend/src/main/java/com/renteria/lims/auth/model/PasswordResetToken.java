@@ -17,8 +17,8 @@ public class PasswordResetToken {
     @Column(name = "user_id", nullable = false)
     private UUID userId;
 
-    @Column(name = "token_hash", nullable = false, unique = true)
-    private String tokenHash;
+    @Column(name = "token_hash", nullable = false, unique = true, length = 32)
+    private byte[] tokenHash;
 
     @Column(name = "expires_at", nullable = false)
     private Instant expiresAt;
@@ -26,13 +26,16 @@ public class PasswordResetToken {
     @Column(nullable = false)
     private boolean used = false;
 
+    @Column(name = "used_at")
+    private Instant usedAt;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
 
     public PasswordResetToken() {}
 
-    public PasswordResetToken(UUID userId, String tokenHash, Instant expiresAt) {
+    public PasswordResetToken(UUID userId, byte[] tokenHash, Instant expiresAt) {
         this.userId = userId;
         this.tokenHash = tokenHash;
         this.expiresAt = expiresAt;
@@ -54,11 +57,11 @@ public class PasswordResetToken {
         this.userId = userId;
     }
 
-    public String getTokenHash() {
+    public byte[] getTokenHash() {
         return tokenHash;
     }
 
-    public void setTokenHash(String tokenHash) {
+    public void setTokenHash(byte[] tokenHash) {
         this.tokenHash = tokenHash;
     }
 
@@ -76,6 +79,11 @@ public class PasswordResetToken {
 
     public void setUsed(boolean used) {
         this.used = used;
+        this.usedAt = used ? Instant.now() : null;
+    }
+
+    public Instant getUsedAt() {
+        return usedAt;
     }
 
     public Instant getCreatedAt() {
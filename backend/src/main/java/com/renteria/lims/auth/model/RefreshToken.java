@@ -2,23 +2,24 @@ package com.renteria.lims.auth.model;
 
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.data.domain.Persistable;
 
 import java.time.Instant;
 import java.util.UUID;
 
 @Entity
 @Table(name = "refresh_tokens")
-public class RefreshToken {
+public class RefreshToken implements Persistable<UUID> {
 
+    // Assigned up front because the id is embedded in the signed token
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
     @Column(name = "user_id", nullable = false)
     private UUID userId;
 
-    @Column(name = "token_hash", nullable = false, unique = true)
-    private String tokenHash;
+    @Column(name = "token_hash", nullable = false, unique = true, length = 32)
+    private byte[] tokenHash;
 
     @Column(name = "family_id", nullable = false)
     private UUID familyId;
@@ -29,19 +30,27 @@ public class RefreshToken {
     @Column(nullable = false)
     private boolean revoked = false;
 
+    @Column(name = "revoked_at")
+    private Instant revokedAt;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
 
+    @Transient
+    private boolean isNew = true;
+
     public RefreshToken() {}
 
-    public RefreshToken(UUID userId, String tokenHash, UUID familyId, Instant expiresAt) {
+    public RefreshToken(UUID id, UUID userId, byte[] tokenHash, UUID familyId, Instant expiresAt) {
+        this.id = id;
         this.userId = userId;
         this.tokenHash = tokenHash;
         this.familyId = familyId;
         this.expiresAt = expiresAt;
     }
 
+    @Override
     public UUID getId() {
         return id;
     }
@@ -58,11 +67,11 @@ public class RefreshToken {
         this.userId = userId;
     }
 
-    public String getTokenHash() {
+    public byte[] getTokenHash() {
         return tokenHash;
     }
 
-    public void setTokenHash(String tokenHash) {
+    public void setTokenHash(byte[] tokenHash) {
         this.tokenHash = tokenHash;
     }
 
@@ -88,6 +97,11 @@ public class RefreshToken {
 
     public void setRevoked(boolean revoked) {
         this.revoked = revoked;
+        this.revokedAt = revoked ? Instant.now() : null;
+    }
+
+    public Instant getRevokedAt() {
+        return revokedAt;
     }
 
     public Instant getCreatedAt() {
@@ -101,4 +115,15 @@ public class RefreshToken {
     public boolean isValid() {
         return !revoked && expiresAt.isAfter(Instant.now());
     }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
 }
@@ -0,0 +1,46 @@
+package com.renteria.lims.auth.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Revocation entry for access tokens. The subject is either a single token's {@code jti} or a
+ * user id; any token of that subject issued at or before {@code revokedBefore} is rejected.
+ * The row is only needed until {@code expiresAt}, after which every covered token has expired.
+ */
+@Entity
+@Table(name = "revoked_access_tokens")
+public class RevokedAccessToken {
+
+    @Id
+    @Column(name = "subject_id")
+    private UUID subjectId;
+
+    @Column(name = "revoked_before", nullable = false)
+    private Instant revokedBefore;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    public RevokedAccessToken() {}
+
+    public RevokedAccessToken(UUID subjectId, Instant revokedBefore, Instant expiresAt) {
+        this.subjectId = subjectId;
+        this.revokedBefore = revokedBefore;
+        this.expiresAt = expiresAt;
+    }
+
+    public UUID getSubjectId() {
+        return subjectId;
+    }
+
+    public Instant getRevokedBefore() {
+        return revokedBefore;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
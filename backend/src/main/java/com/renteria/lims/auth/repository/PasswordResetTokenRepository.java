@@ -2,18 +2,33 @@ package com.renteria.lims.auth.repository;
 
 import com.renteria.lims.auth.model.PasswordResetToken;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface PasswordResetTokenRepository extends JpaRepository<PasswordResetToken, UUID> {
 
-    Optional<PasswordResetToken> findByTokenHash(String tokenHash);
+    Optional<PasswordResetToken> findByTokenHash(byte[] tokenHash);
 
     @Query("SELECT COUNT(t) FROM PasswordResetToken t WHERE t.userId = :userId AND t.used = false AND t.expiresAt > CURRENT_TIMESTAMP")
     long countActiveByUserId(@Param("userId") UUID userId);
+
+    /**
+     * Deletes up to {@code batchSize} tokens that expired, or were used, before the cutoff.
+     */
+    @Modifying
+    @Query(value = """
+        DELETE FROM password_reset_tokens WHERE id IN (
+            SELECT id FROM password_reset_tokens
+            WHERE expires_at < :cutoff OR (used = true AND used_at < :cutoff)
+            LIMIT :batchSize
+        )
+        """, nativeQuery = true)
+    int deleteExpiredBatch(@Param("cutoff") Instant cutoff, @Param("batchSize") int batchSize);
 }
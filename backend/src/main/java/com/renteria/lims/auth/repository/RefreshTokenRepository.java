@@ -7,22 +7,81 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID> {
 
-    Optional<RefreshToken> findByTokenHash(String tokenHash);
+    Optional<RefreshToken> findByTokenHash(byte[] tokenHash);
 
     @Query("SELECT rt FROM RefreshToken rt WHERE rt.familyId = :familyId AND rt.revoked = false")
     java.util.List<RefreshToken> findActiveByFamilyId(@Param("familyId") UUID familyId);
 
     @Modifying
-    @Query("UPDATE RefreshToken rt SET rt.revoked = true WHERE rt.familyId = :familyId AND rt.revoked = false")
+    @Query("UPDATE RefreshToken rt SET rt.revoked = true, rt.revokedAt = instant WHERE rt.familyId = :familyId AND rt.revoked = false")
     int revokeByFamilyId(@Param("familyId") UUID familyId);
 
     @Modifying
-    @Query("UPDATE RefreshToken rt SET rt.revoked = true WHERE rt.userId = :userId AND rt.revoked = false")
+    @Query("UPDATE RefreshToken rt SET rt.revoked = true, rt.revokedAt = instant WHERE rt.userId = :userId AND rt.revoked = false")
     int revokeAllByUserId(@Param("userId") UUID userId);
+
+    /**
+     * Deletes up to {@code batchSize} tokens that expired, or were revoked, before the cutoff.
+     * Revoked tokens are kept for the retention period after their revocation, not their
+     * creation, so a recently rotated token can still trigger family-wide reuse detection.
+     */
+    @Modifying
+    @Query(value = """
+        DELETE FROM refresh_tokens WHERE id IN (
+            SELECT id FROM refresh_tokens
+            WHERE expires_at < :cutoff OR (revoked = true AND revoked_at < :cutoff)
+            LIMIT :batchSize
+        )
+        """, nativeQuery = true)
+    int deleteExpiredBatch(@Param("cutoff") Instant cutoff, @Param("batchSize") int batchSize);
+
+    /**
+     * Rotates a refresh token in one statement: revokes the presented token only if it is
+     * still active, inserts its successor in the same family, and reports the presented
+     * token's state as of statement start. The row is addressed by its primary key
+     * {@code (id, expires_at)} from the signed token, with the hash as a final check. No row
+     * means the token does not exist; {@code newTokenId} is null unless this call performed
+     * the rotation.
+     */
+    @Query(value = """
+        WITH target AS (
+            SELECT user_id, family_id, revoked, expires_at
+            FROM refresh_tokens
+            WHERE id = :oldId AND expires_at = :oldExpiresAt AND token_hash = :oldHash
+        ), rotated AS (
+            UPDATE refresh_tokens SET revoked = true, revoked_at = now()
+            WHERE id = :oldId AND expires_at = :oldExpiresAt AND token_hash = :oldHash
+              AND revoked = false AND expires_at > now()
+            RETURNING user_id, family_id
+        ), inserted AS (
+            INSERT INTO refresh_tokens (id, user_id, token_hash, family_id, expires_at)
+            SELECT :newId, user_id, :newHash, family_id, :newExpiresAt FROM rotated
+            RETURNING id
+        )
+        SELECT t.user_id AS userId, t.family_id AS familyId, t.revoked AS revoked,
+               (t.expires_at <= now()) AS expired,
+               (SELECT id FROM inserted) AS newTokenId
+        FROM target t
+        """, nativeQuery = true)
+    Optional<RotationRow> rotate(@Param("oldId") UUID oldId,
+                                 @Param("oldExpiresAt") Instant oldExpiresAt,
+                                 @Param("oldHash") byte[] oldHash,
+                                 @Param("newId") UUID newId,
+                                 @Param("newHash") byte[] newHash,
+                                 @Param("newExpiresAt") Instant newExpiresAt);
+
+    interface RotationRow {
+        UUID getUserId();
+        UUID getFamilyId();
+        boolean isRevoked();
+        boolean isExpired();
+        UUID getNewTokenId();
+    }
 }
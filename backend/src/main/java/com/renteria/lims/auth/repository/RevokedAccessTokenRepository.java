@@ -0,0 +1,22 @@
+package com.renteria.lims.auth.repository;
+
+import com.renteria.lims.auth.model.RevokedAccessToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface RevokedAccessTokenRepository extends JpaRepository<RevokedAccessToken, UUID> {
+
+    List<RevokedAccessToken> findByExpiresAtAfter(Instant now);
+
+    @Modifying
+    @Query("DELETE FROM RevokedAccessToken r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+}
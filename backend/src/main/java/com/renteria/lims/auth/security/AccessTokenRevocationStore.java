@@ -0,0 +1,205 @@
+package com.renteria.lims.auth.security;
+
+import com.renteria.lims.auth.model.RevokedAccessToken;
+import com.renteria.lims.auth.repository.RevokedAccessTokenRepository;
+import com.renteria.lims.common.cluster.ClusterEventBus;
+import com.renteria.lims.config.JwtConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Denylist for access tokens that must stop working before their {@code exp}. The
+ * {@code revoked_access_tokens} table is the source of truth; each node keeps a snapshot of
+ * its live rows behind a Bloom filter, so the per-request check is a couple of filter probes
+ * and only touches the exact maps on a (rare) filter hit.
+ *
+ * <p>Revocations apply once their transaction commits, locally and on other nodes through the
+ * {@link ClusterEventBus}. A single revocation is added to the current filter and a small
+ * overlay map in place; the snapshot is only rebuilt when the filter reaches its sized
+ * capacity and by the periodic reload, every {@code app.jwt.revocation-refresh-ms}, which
+ * compacts the overlay, picks up missed events and drops expired entries.
+ */
+@Component
+public class AccessTokenRevocationStore {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessTokenRevocationStore.class);
+    static final String TOPIC = "access-token-revoked";
+
+    private final RevokedAccessTokenRepository repository;
+    private final JwtConfig jwtConfig;
+    private final ClusterEventBus eventBus;
+    private volatile Snapshot snapshot;
+
+    public AccessTokenRevocationStore(RevokedAccessTokenRepository repository, JwtConfig jwtConfig,
+                                      ClusterEventBus eventBus, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.jwtConfig = jwtConfig;
+        this.eventBus = eventBus;
+        this.snapshot = Snapshot.of(Map.of(), jwtConfig.getRevocationFalsePositiveRate());
+        eventBus.subscribe(TOPIC, new ClusterEventBus.Listener() {
+            @Override
+            public void onEvent(String payload) {
+                int split = payload.indexOf(',');
+                apply(UUID.fromString(payload.substring(0, split)),
+                    Instant.ofEpochMilli(Long.parseLong(payload.substring(split + 1))));
+            }
+
+            @Override
+            public void onResync() {
+                reload();
+            }
+        });
+        Gauge.builder("auth.revocation.entries", this, store -> store.snapshot.size())
+            .register(meterRegistry);
+    }
+
+    /**
+     * True when the token's own {@code jti} or its user has been revoked after the second the
+     * token was issued in.
+     */
+    public boolean isRevoked(JwtPrincipal principal) {
+        Snapshot current = snapshot;
+        return current.covers(principal.tokenId(), principal.issuedAt())
+            || current.covers(principal.userId(), principal.issuedAt());
+    }
+
+    /**
+     * Revokes a single access token until it expires. The {@code jti} names only this token,
+     * so the cutoff is its expiry, which its {@code iat} always precedes.
+     */
+    public void revokeToken(JwtPrincipal principal) {
+        revoke(new RevokedAccessToken(principal.tokenId(), principal.expiresAt(), principal.expiresAt()));
+    }
+
+    /**
+     * Revokes every access token issued to the user before the current second. JWT
+     * {@code iat} has second precision, so the cutoff is kept in the same unit: a token from
+     * a login in the same second as the revocation (right after a password change or reset)
+     * is accepted, and so is one issued earlier in that second.
+     */
+    public void revokeUser(UUID userId) {
+        Instant now = Instant.now();
+        revoke(new RevokedAccessToken(userId, now.truncatedTo(ChronoUnit.SECONDS),
+            now.plusMillis(jwtConfig.getAccessTokenExpiryMs())));
+    }
+
+    private void revoke(RevokedAccessToken entry) {
+        repository.save(entry);
+        UUID subject = entry.getSubjectId();
+        Instant revokedBefore = entry.getRevokedBefore();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(subject, revokedBefore);
+                }
+            });
+        } else {
+            apply(subject, revokedBefore);
+        }
+        eventBus.publish(TOPIC, subject + "," + revokedBefore.toEpochMilli());
+    }
+
+    private synchronized void apply(UUID subject, Instant revokedBefore) {
+        Snapshot current = snapshot;
+        Instant existing = current.cutoff(subject);
+        if (existing != null && !existing.isBefore(revokedBefore)) {
+            return;
+        }
+        if (current.size() >= current.capacity()) {
+            Map<UUID, Instant> entries = current.entries();
+            entries.put(subject, revokedBefore);
+            snapshot = Snapshot.of(entries, jwtConfig.getRevocationFalsePositiveRate());
+            return;
+        }
+        // Filter first: a reader that finds the overlay entry must also pass the filter probe
+        current.filter().put(subject);
+        current.overlay().put(subject, revokedBefore);
+    }
+
+    /**
+     * Rebuilds the snapshot from the table, picking up any revocation whose event was missed
+     * and dropping entries whose tokens have all expired.
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.revocation-refresh-ms:60000}")
+    public void reload() {
+        Instant started = Instant.now();
+        Map<UUID, Instant> entries = new HashMap<>();
+        for (RevokedAccessToken row : repository.findByExpiresAtAfter(started)) {
+            entries.put(row.getSubjectId(), row.getRevokedBefore());
+        }
+        synchronized (this) {
+            // Keep recent revocations the query may have missed (committed or received while
+            // it ran)
+            Instant recent = started.minusMillis(jwtConfig.getRevocationRefreshMs());
+            snapshot.entries().forEach((subject, cutoff) -> {
+                if (cutoff.isAfter(recent)) {
+                    entries.merge(subject, cutoff, (a, b) -> a.isAfter(b) ? a : b);
+                }
+            });
+            snapshot = Snapshot.of(entries, jwtConfig.getRevocationFalsePositiveRate());
+        }
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${app.token-purge.interval-ms:3600000}", initialDelayString = "${app.token-purge.initial-delay-ms:300000}")
+    public void purgeExpired() {
+        int deleted = repository.deleteExpired(Instant.now());
+        if (deleted > 0) {
+            log.info("Purged {} expired access token revocations", deleted);
+        }
+    }
+
+    /**
+     * Immutable base map plus an overlay of revocations applied since the last rebuild. The
+     * filter is sized for {@code capacity} entries and covers both.
+     */
+    private record Snapshot(UuidBloomFilter filter, int capacity, Map<UUID, Instant> base,
+                            ConcurrentHashMap<UUID, Instant> overlay) {
+
+        static Snapshot of(Map<UUID, Instant> entries, double falsePositiveRate) {
+            int capacity = Math.max(1024, entries.size() * 2);
+            UuidBloomFilter filter = UuidBloomFilter.create(capacity, falsePositiveRate);
+            entries.keySet().forEach(filter::put);
+            return new Snapshot(filter, capacity, Map.copyOf(entries), new ConcurrentHashMap<>());
+        }
+
+        boolean covers(UUID subject, Instant issuedAt) {
+            if (!filter.mightContain(subject)) {
+                return false;
+            }
+            Instant cutoff = cutoff(subject);
+            return cutoff != null && issuedAt.isBefore(cutoff);
+        }
+
+        // Overlay entries are only added when later than the base one
+        Instant cutoff(UUID subject) {
+            Instant cutoff = overlay.get(subject);
+            return cutoff != null ? cutoff : base.get(subject);
+        }
+
+        int size() {
+            return base.size() + overlay.size();
+        }
+
+        Map<UUID, Instant> entries() {
+            Map<UUID, Instant> entries = new HashMap<>(base);
+            entries.putAll(overlay);
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.renteria.lims.auth.security;
+
+import com.renteria.lims.config.SecurityConfigProps;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.Refill;
+import io.github.bucket4j.distributed.proxy.optimization.DelayParameters;
+import io.github.bucket4j.distributed.proxy.optimization.Optimization;
+import io.github.bucket4j.distributed.proxy.optimization.Optimizations;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Function;
+
+/**
+ * Per-email limits for login and password reset requests.
+ *
+ * <p>With the {@code jdbc} backend the bucket state lives in {@code rate_limit_buckets}, so
+ * the limits are shared by every node. Each node syncs with the table at most every
+ * {@code rate-limit-sync-tokens} consumptions (or {@code rate-limit-sync-timeout-ms}), trading a
+ * bounded overshoot of nodes × sync-tokens for fewer round trips. The {@code local} backend
+ * keeps buckets in memory and is only correct for a single node.
+ */
+@Component
+public class AuthRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthRateLimiter.class);
+
+    static final Duration LOGIN_WINDOW = Duration.ofMinutes(15);
+    static final Duration RESET_WINDOW = Duration.ofHours(1);
+    static final String TABLE = "rate_limit_buckets";
+
+    private final RateLimitBucketStore loginBuckets;
+    private final RateLimitBucketStore resetBuckets;
+    private final JdbcTemplate jdbcTemplate;
+
+    public AuthRateLimiter(SecurityConfigProps securityConfig, DataSource dataSource, MeterRegistry meterRegistry) {
+        long maxEntries = securityConfig.getRateLimitMaxEntries();
+        boolean shared = "jdbc".equalsIgnoreCase(securityConfig.getRateLimitBackend());
+
+        Function<String, Bucket> loginFactory;
+        Function<String, Bucket> resetFactory;
+        if (shared) {
+            JdbcBucketProxyManager proxyManager = new JdbcBucketProxyManager(dataSource, TABLE);
+            Optimization optimization = optimization(securityConfig);
+            BucketConfiguration loginConfig = BucketConfiguration.builder().addLimit(loginBandwidth()).build();
+            BucketConfiguration resetConfig = BucketConfiguration.builder().addLimit(resetBandwidth()).build();
+
+            loginFactory = key -> proxyManager.builder().withOptimization(optimization).build("login:" + key, () -> loginConfig);
+            resetFactory = key -> proxyManager.builder().withOptimization(optimization).build("reset:" + key, () -> resetConfig);
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+        } else {
+            loginFactory = key -> Bucket.builder().addLimit(loginBandwidth()).build();
+            resetFactory = key -> Bucket.builder().addLimit(resetBandwidth()).build();
+            this.jdbcTemplate = null;
+        }
+
+        this.loginBuckets = new RateLimitBucketStore("auth.rate-limit.login",
+            loginFactory, LOGIN_WINDOW, maxEntries, meterRegistry);
+        this.resetBuckets = new RateLimitBucketStore("auth.rate-limit.reset",
+            resetFactory, RESET_WINDOW, maxEntries, meterRegistry);
+    }
+
+    public boolean tryConsumeLogin(String email) {
+        return loginBuckets.tryConsume(email.toLowerCase());
+    }
+
+    public boolean tryConsumeReset(String email) {
+        return resetBuckets.tryConsume(email.toLowerCase());
+    }
+
+    /**
+     * Drops shared buckets idle for longer than the longest refill window; they would be
+     * full again, so a later request simply recreates them.
+     */
+    @Scheduled(fixedDelayString = "${app.security.rate-limit-purge-interval-ms:600000}", initialDelay = 60_000)
+    public void purgeIdleBuckets() {
+        if (jdbcTemplate == null) {
+            return;
+        }
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(RESET_WINDOW));
+        int deleted = jdbcTemplate.update("DELETE FROM " + TABLE + " WHERE updated_at < ?", cutoff);
+        if (deleted > 0) {
+            log.debug("Purged {} idle rate-limit buckets", deleted);
+        }
+    }
+
+    private static Optimization optimization(SecurityConfigProps securityConfig) {
+        if (securityConfig.getRateLimitSyncTokens() <= 1) {
+            // Still coalesce concurrent requests for the same key into one round trip
+            return Optimizations.batching();
+        }
+        return Optimizations.delaying(new DelayParameters(
+            securityConfig.getRateLimitSyncTokens(),
+            Duration.ofMillis(securityConfig.getRateLimitSyncTimeoutMs())));
+    }
+
+    static Bandwidth loginBandwidth() {
+        return Bandwidth.classic(5, Refill.intervally(5, LOGIN_WINDOW));
+    }
+
+    static Bandwidth resetBandwidth() {
+        return Bandwidth.classic(3, Refill.intervally(3, RESET_WINDOW));
+    }
+}
@@ -0,0 +1,248 @@
+package com.renteria.lims.auth.security;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.renteria.lims.config.SecurityConfigProps;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * First line of defence for the credential endpoints (login and password reset), registered
+ * ahead of the Spring Security chain. Applies in-memory per-IP, per-email and global limits and
+ * rejects with a canned 429 before any transaction, connection or password hash is spent on the
+ * request. Other {@code /api/v1/auth/**} calls (refresh, logout, ...) pass through untouched,
+ * so a NAT'd office refreshing tokens does not eat its own login budget.
+ *
+ * <p>The client IP is {@link HttpServletRequest#getRemoteAddr()}. Forwarded headers are
+ * ignored by default; a deployment behind a proxy opts in with
+ * {@code server.forward-headers-strategy=native} and should pin
+ * {@code server.tomcat.remoteip.internal-proxies} to that proxy.
+ *
+ * <p>These limits are node-local and deliberately cheap; the cluster-wide per-email limits in
+ * {@link AuthRateLimiter} still apply to requests that get through.
+ */
+public class AuthThrottlingFilter extends OncePerRequestFilter {
+
+    static final int MAX_BODY_BYTES = 8 * 1024;
+
+    private static final byte[] TOO_MANY_REQUESTS_BODY =
+        "{\"error\":\"TOO_MANY_REQUESTS\",\"message\":\"Too many requests. Please try again later.\"}"
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PAYLOAD_TOO_LARGE_BODY =
+        "{\"error\":\"PAYLOAD_TOO_LARGE\",\"message\":\"Request body too large\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final JsonFactory jsonFactory;
+    private final RateLimitBucketStore ipBuckets;
+    private final RateLimitBucketStore emailBuckets;
+    private final Bucket globalBucket;
+    private final String ipRetryAfter;
+    private final String emailRetryAfter;
+    private final Counter ipRejections;
+    private final Counter emailRejections;
+    private final Counter globalRejections;
+
+    public AuthThrottlingFilter(SecurityConfigProps props, JsonFactory jsonFactory, MeterRegistry meterRegistry) {
+        this.jsonFactory = jsonFactory;
+
+        Duration ipWindow = Duration.ofSeconds(props.getAuthThrottleIpWindowSeconds());
+        Bandwidth ipLimit = Bandwidth.simple(props.getAuthThrottleIpLimit(), ipWindow);
+        this.ipBuckets = new RateLimitBucketStore("auth.throttle.ip",
+            key -> Bucket.builder().addLimit(ipLimit).build(), ipWindow, props.getRateLimitMaxEntries(), meterRegistry);
+        this.ipRetryAfter = retryAfter(ipWindow, props.getAuthThrottleIpLimit());
+
+        Duration emailWindow = Duration.ofSeconds(props.getAuthThrottleEmailWindowSeconds());
+        Bandwidth emailLimit = Bandwidth.simple(props.getAuthThrottleEmailLimit(), emailWindow);
+        this.emailBuckets = new RateLimitBucketStore("auth.throttle.email",
+            key -> Bucket.builder().addLimit(emailLimit).build(), emailWindow, props.getRateLimitMaxEntries(), meterRegistry);
+        this.emailRetryAfter = retryAfter(emailWindow, props.getAuthThrottleEmailLimit());
+
+        this.globalBucket = Bucket.builder()
+            .addLimit(Bandwidth.simple(props.getAuthThrottleGlobalPerSecond(), Duration.ofSeconds(1)))
+            .build();
+
+        this.ipRejections = rejectionCounter(meterRegistry, "ip");
+        this.emailRejections = rejectionCounter(meterRegistry, "email");
+        this.globalRejections = rejectionCounter(meterRegistry, "global");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        if (!isCredentialEndpoint(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (!ipBuckets.tryConsume(request.getRemoteAddr())) {
+            ipRejections.increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, TOO_MANY_REQUESTS_BODY, ipRetryAfter);
+            return;
+        }
+
+        HttpServletRequest forwarded = request;
+        if (carriesEmail(request)) {
+            byte[] body = request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                reject(response, HttpStatus.PAYLOAD_TOO_LARGE, PAYLOAD_TOO_LARGE_BODY, null);
+                return;
+            }
+            String email = extractEmail(body);
+            if (email != null && !emailBuckets.tryConsume(email)) {
+                emailRejections.increment();
+                reject(response, HttpStatus.TOO_MANY_REQUESTS, TOO_MANY_REQUESTS_BODY, emailRetryAfter);
+                return;
+            }
+            forwarded = new CachedBodyRequest(request, body);
+        }
+
+        if (!globalBucket.tryConsume(1)) {
+            globalRejections.increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, TOO_MANY_REQUESTS_BODY, "1");
+            return;
+        }
+
+        filterChain.doFilter(forwarded, response);
+    }
+
+    private static boolean isCredentialEndpoint(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod())) {
+            return false;
+        }
+        String uri = request.getRequestURI();
+        return uri.endsWith("/auth/login") || uri.contains("/auth/password-reset/");
+    }
+
+    private static boolean carriesEmail(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return uri.endsWith("/auth/login") || uri.endsWith("/auth/password-reset/request");
+    }
+
+    /**
+     * Pulls the top-level {@code email} field with the streaming parser; anything malformed is
+     * left for the controller's validation to reject.
+     */
+    String extractEmail(byte[] body) {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("email".equals(field) && value == JsonToken.VALUE_STRING) {
+                    return parser.getText().trim().toLowerCase();
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            // Malformed JSON: no email to limit on
+        }
+        return null;
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, byte[] body, String retryAfter)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        if (retryAfter != null) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+        }
+        response.getOutputStream().write(body);
+    }
+
+    private static String retryAfter(Duration window, long limit) {
+        return String.valueOf(Math.max(1, (window.toSeconds() + limit - 1) / limit));
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("auth.throttle.rejected")
+            .description("Auth requests rejected before reaching the security chain")
+            .tag("reason", reason)
+            .register(meterRegistry);
+    }
+
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    // The body is already in memory, so it is all available at once
+                    try {
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
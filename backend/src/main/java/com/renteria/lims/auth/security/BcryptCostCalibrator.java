@@ -0,0 +1,49 @@
+package com.renteria.lims.auth.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+/**
+ * Picks the highest BCrypt cost whose hash time on this host stays within a target.
+ * Each cost step doubles the work, so one measurement at the floor cost is enough to
+ * extrapolate the rest.
+ */
+public final class BcryptCostCalibrator {
+
+    private static final Logger log = LoggerFactory.getLogger(BcryptCostCalibrator.class);
+
+    // Never go below the OWASP floor, never above what a login can afford
+    static final int MIN_COST = 10;
+    static final int MAX_COST = 16;
+    private static final int SAMPLES = 3;
+
+    private BcryptCostCalibrator() {
+        // Utility class
+    }
+
+    public static int calibrate(Duration target) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(MIN_COST);
+        probe.encode("warm-up");
+
+        long bestNanos = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            probe.encode("calibration-sample-" + i);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+
+        int cost = MIN_COST;
+        long estimated = bestNanos;
+        while (cost < MAX_COST && estimated * 2 <= target.toNanos()) {
+            cost++;
+            estimated *= 2;
+        }
+
+        log.info("BCrypt calibrated to cost {} (~{} ms per hash, target {} ms)",
+            cost, Duration.ofNanos(estimated).toMillis(), target.toMillis());
+        return cost;
+    }
+}
@@ -0,0 +1,113 @@
+package com.renteria.lims.auth.security;
+
+import com.renteria.lims.common.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the (deliberately slow) delegate encoder on a fixed, core-sized pool with a
+ * bounded queue. Request threads still wait for their own hash, but once the queue is
+ * full new callers fail fast with {@link ServiceBusyException} instead of piling up
+ * and starving cheap endpoints of worker threads and CPU.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long retryAfterSeconds;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Timer queueWaitTimer;
+    private final Counter rejectedCounter;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity,
+                                  long retryAfterSeconds, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.executor = new ThreadPoolExecutor(
+            threads, threads, 0L, TimeUnit.MILLISECONDS,
+            queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : new SynchronousQueue<>(),
+            new HashingThreadFactory(),
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        this.encodeTimer = Timer.builder("auth.password.hash.latency").tag("operation", "encode").register(meterRegistry);
+        this.matchesTimer = Timer.builder("auth.password.hash.latency").tag("operation", "matches").register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("auth.password.hash.queue.wait").register(meterRegistry);
+        this.rejectedCounter = Counter.builder("auth.password.hash.rejected").register(meterRegistry);
+        Gauge.builder("auth.password.hash.queue.depth", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("auth.password.hash.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        // Only inspects the hash prefix; not worth a trip through the pool
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * The unbounded encoder, for bulk jobs that run it on their own bounded executor instead
+     * of competing with logins for this pool's queue.
+     */
+    public PasswordEncoder getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <T> T run(Timer timer, Callable<T> task) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                queueWaitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return timer.recordCallable(task);
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new ServiceBusyException("Too many concurrent password operations", retryAfterSeconds);
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private static final class HashingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hash-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.renteria.lims.auth.security;
+
+import io.github.bucket4j.BucketExceptions;
+import io.github.bucket4j.distributed.proxy.ClientSideConfig;
+import io.github.bucket4j.distributed.proxy.generic.select_for_update.AbstractSelectForUpdateBasedProxyManager;
+import io.github.bucket4j.distributed.proxy.generic.select_for_update.LockAndGetResult;
+import io.github.bucket4j.distributed.proxy.generic.select_for_update.SelectForUpdateBasedTransaction;
+import io.github.bucket4j.distributed.remote.RemoteBucketState;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * bucket4j proxy manager over a plain {@code (id, state, updated_at)} table using
+ * {@code SELECT ... FOR UPDATE}. Same protocol as bucket4j's PostgreSQL manager, but it also
+ * stamps {@code updated_at} on every write so idle rows can be purged, and it sticks to SQL
+ * that H2's PostgreSQL mode understands.
+ */
+class JdbcBucketProxyManager extends AbstractSelectForUpdateBasedProxyManager<String> {
+
+    private final DataSource dataSource;
+    private final String selectSql;
+    private final String insertSql;
+    private final String updateSql;
+    private final String deleteSql;
+
+    JdbcBucketProxyManager(DataSource dataSource, String table) {
+        super(ClientSideConfig.getDefault());
+        this.dataSource = dataSource;
+        this.selectSql = "SELECT state FROM " + table + " WHERE id = ? FOR UPDATE";
+        this.insertSql = "INSERT INTO " + table + " (id, state) VALUES (?, null) ON CONFLICT DO NOTHING";
+        this.updateSql = "UPDATE " + table + " SET state = ?, updated_at = now() WHERE id = ?";
+        this.deleteSql = "DELETE FROM " + table + " WHERE id = ?";
+    }
+
+    @Override
+    protected SelectForUpdateBasedTransaction allocateTransaction(String key, Optional<Long> requestTimeoutNanos) {
+        Connection connection;
+        try {
+            connection = dataSource.getConnection();
+        } catch (SQLException e) {
+            throw new BucketExceptions.BucketExecutionException(e);
+        }
+
+        return new SelectForUpdateBasedTransaction() {
+            @Override
+            public void begin(Optional<Long> timeoutNanos) {
+                try {
+                    connection.setAutoCommit(false);
+                } catch (SQLException e) {
+                    throw new BucketExceptions.BucketExecutionException(e);
+                }
+            }
+
+            @Override
+            public LockAndGetResult tryLockAndGet(Optional<Long> timeoutNanos) {
+                try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+                    applyTimeout(statement, timeoutNanos);
+                    statement.setString(1, key);
+                    try (ResultSet rs = statement.executeQuery()) {
+                        return rs.next() ? LockAndGetResult.locked(rs.getBytes(1)) : LockAndGetResult.notLocked();
+                    }
+                } catch (SQLException e) {
+                    throw new BucketExceptions.BucketExecutionException(e);
+                }
+            }
+
+            @Override
+            public boolean tryInsertEmptyData(Optional<Long> timeoutNanos) {
+                try (PreparedStatement statement = connection.prepareStatement(insertSql)) {
+                    applyTimeout(statement, timeoutNanos);
+                    statement.setString(1, key);
+                    return statement.executeUpdate() > 0;
+                } catch (SQLException e) {
+                    throw new BucketExceptions.BucketExecutionException(e);
+                }
+            }
+
+            @Override
+            public void update(byte[] data, RemoteBucketState newState, Optional<Long> timeoutNanos) {
+                try (PreparedStatement statement = connection.prepareStatement(updateSql)) {
+                    applyTimeout(statement, timeoutNanos);
+                    statement.setBytes(1, data);
+                    statement.setString(2, key);
+                    statement.executeUpdate();
+                } catch (SQLException e) {
+                    throw new BucketExceptions.BucketExecutionException(e);
+                }
+            }
+
+            @Override
+            public void commit(Optional<Long> timeoutNanos) {
+                try {
+                    connection.commit();
+                } catch (SQLException e) {
+                    throw new BucketExceptions.BucketExecutionException(e);
+                }
+            }
+
+            @Override
+            public void rollback() {
+                try {
+                    connection.rollback();
+                } catch (SQLException e) {
+                    throw new BucketExceptions.BucketExecutionException(e);
+                }
+            }
+
+            @Override
+            public void release() {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    throw new BucketExceptions.BucketExecutionException(e);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void removeProxy(String key) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(deleteSql)) {
+            statement.setString(1, key);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new BucketExceptions.BucketExecutionException(e);
+        }
+    }
+}
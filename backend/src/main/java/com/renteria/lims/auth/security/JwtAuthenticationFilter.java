@@ -5,30 +5,27 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.Set;
-import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
-
     private final JwtService jwtService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final AccessTokenRevocationStore revocationStore;
+    private final WebAuthenticationDetailsSource detailsSource = new WebAuthenticationDetailsSource();
 
-    public JwtAuthenticationFilter(JwtService jwtService) {
+    public JwtAuthenticationFilter(JwtService jwtService, VerifiedTokenCache verifiedTokenCache,
+                                   AccessTokenRevocationStore revocationStore) {
         this.jwtService = jwtService;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.revocationStore = revocationStore;
     }
 
     @Override
@@ -43,26 +40,24 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         final String jwt = authHeader.substring(7);
-        
-        if (jwtService.isTokenValid(jwt)) {
-            String userId = jwtService.extractUserId(jwt).toString();
-            Set<String> permissions = jwtService.extractPermissions(jwt);
 
-            if (userId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                // Build authorities from JWT permissions - no DB lookup needed
-                List<SimpleGrantedAuthority> authorities = permissions.stream()
-                    .map(SimpleGrantedAuthority::new)
-                    .collect(Collectors.toList());
+        // Repeat requests with the same bearer skip decoding and HMAC verification entirely
+        JwtPrincipal principal = verifiedTokenCache.get(jwt, jwtService::verifyAccessToken);
+
+        // Checked on every request, after the cache, so revocation applies to cached tokens too
+        if (principal != null && revocationStore.isRevoked(principal)) {
+            principal = null;
+        }
 
-                // Create authentication token with userId as principal
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userId,
-                        null,
-                        authorities
-                );
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
-            }
+        if (principal != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            // Authorities come pre-built from the token - no DB lookup needed
+            UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                    principal,
+                    null,
+                    principal.authorities()
+            );
+            authToken.setDetails(detailsSource.buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authToken);
         }
 
         filterChain.doFilter(request, response);
@@ -0,0 +1,38 @@
+package com.renteria.lims.auth.security;
+
+import com.renteria.lims.user.model.Role;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Immutable view of a verified access token. Built once per verification so the
+ * request path never has to touch the raw claims again.
+ */
+public record JwtPrincipal(
+    UUID userId,
+    UUID tokenId,
+    String email,
+    Role role,
+    PermissionBits permissionBits,
+    List<GrantedAuthority> authorities,
+    Instant issuedAt,
+    Instant expiresAt
+) implements AuthenticatedPrincipal {
+
+    public JwtPrincipal {
+        authorities = List.copyOf(authorities);
+    }
+
+    public boolean hasPermission(int bit) {
+        return permissionBits.has(bit);
+    }
+
+    @Override
+    public String getName() {
+        return userId.toString();
+    }
+}
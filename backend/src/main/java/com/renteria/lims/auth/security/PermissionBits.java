@@ -0,0 +1,70 @@
+package com.renteria.lims.auth.security;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Immutable permission bitmask. Bit positions come from {@code permissions.bit_index}
+ * via {@link com.renteria.lims.user.service.PermissionRegistry}.
+ */
+public final class PermissionBits {
+
+    public static final PermissionBits EMPTY = new PermissionBits(new long[0]);
+
+    private final long[] words;
+
+    private PermissionBits(long[] words) {
+        this.words = words;
+    }
+
+    public static PermissionBits of(BitSet bits) {
+        return bits.isEmpty() ? EMPTY : new PermissionBits(bits.toLongArray());
+    }
+
+    public boolean has(int bit) {
+        int word = bit >>> 6;
+        return bit >= 0 && word < words.length && (words[word] & (1L << bit)) != 0;
+    }
+
+    /** True when every bit of {@code required} is also set here. */
+    public boolean containsAll(PermissionBits required) {
+        if (required.words.length > words.length) {
+            for (int i = words.length; i < required.words.length; i++) {
+                if (required.words[i] != 0) return false;
+            }
+        }
+        int common = Math.min(words.length, required.words.length);
+        for (int i = 0; i < common; i++) {
+            if ((words[i] & required.words[i]) != required.words[i]) return false;
+        }
+        return true;
+    }
+
+    /** True when at least one bit of {@code other} is also set here. */
+    public boolean intersects(PermissionBits other) {
+        int common = Math.min(words.length, other.words.length);
+        for (int i = 0; i < common; i++) {
+            if ((words[i] & other.words[i]) != 0) return true;
+        }
+        return false;
+    }
+
+    public BitSet toBitSet() {
+        return BitSet.valueOf(words);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof PermissionBits other && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        return toBitSet().toString();
+    }
+}
@@ -0,0 +1,52 @@
+package com.renteria.lims.auth.security;
+
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.AbstractUserDetailsAuthenticationProvider;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Username/password provider that accepts a {@link UserDetails} already loaded by the
+ * caller (passed as the authentication details), so login does not query the user a
+ * second time. Falls back to the {@link UserDetailsService} otherwise; the standard
+ * account status checks from the base class still apply.
+ */
+public class PreloadedUserAuthenticationProvider extends AbstractUserDetailsAuthenticationProvider {
+
+    private final UserDetailsService userDetailsService;
+    private final PasswordEncoder passwordEncoder;
+
+    public PreloadedUserAuthenticationProvider(UserDetailsService userDetailsService, PasswordEncoder passwordEncoder) {
+        this.userDetailsService = userDetailsService;
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    @Override
+    protected UserDetails retrieveUser(String username, UsernamePasswordAuthenticationToken authentication)
+            throws AuthenticationException {
+        if (authentication.getDetails() instanceof UserDetails preloaded
+                && preloaded.getUsername().equals(username)) {
+            return preloaded;
+        }
+
+        UserDetails loaded = userDetailsService.loadUserByUsername(username);
+        if (loaded == null) {
+            throw new InternalAuthenticationServiceException("UserDetailsService returned null");
+        }
+        return loaded;
+    }
+
+    @Override
+    protected void additionalAuthenticationChecks(UserDetails userDetails, UsernamePasswordAuthenticationToken authentication)
+            throws AuthenticationException {
+        if (authentication.getCredentials() == null
+                || !passwordEncoder.matches(authentication.getCredentials().toString(), userDetails.getPassword())) {
+            throw new BadCredentialsException(messages.getMessage(
+                "AbstractUserDetailsAuthenticationProvider.badCredentials", "Bad credentials"));
+        }
+    }
+}
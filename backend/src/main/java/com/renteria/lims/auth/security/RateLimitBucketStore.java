@@ -0,0 +1,52 @@
+package com.renteria.lims.auth.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.github.bucket4j.Bucket;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Size-bounded map of bucket4j buckets keyed by a caller-chosen string (e.g. email).
+ * An idle bucket is evicted once its refill window has passed: by then it would be full
+ * again, so dropping it and starting from a fresh bucket is indistinguishable to the caller.
+ * The buckets themselves may be local or proxies onto shared state.
+ */
+public class RateLimitBucketStore {
+
+    private final Function<String, ? extends Bucket> bucketFactory;
+    private final Cache<String, Bucket> buckets;
+
+    public RateLimitBucketStore(String name, Function<String, ? extends Bucket> bucketFactory, Duration refillWindow,
+                                long maxEntries, MeterRegistry meterRegistry) {
+        this(bucketFactory, refillWindow, maxEntries, Ticker.systemTicker(), ForkJoinPool.commonPool());
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, name);
+    }
+
+    RateLimitBucketStore(Function<String, ? extends Bucket> bucketFactory, Duration refillWindow, long maxEntries,
+                         Ticker ticker, Executor executor) {
+        this.bucketFactory = bucketFactory;
+        this.buckets = Caffeine.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfterAccess(refillWindow)
+            .ticker(ticker)
+            .executor(executor)
+            .recordStats()
+            .build();
+    }
+
+    public boolean tryConsume(String key) {
+        return buckets.get(key, bucketFactory).tryConsume(1);
+    }
+
+    long estimatedSize() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+}
@@ -0,0 +1,116 @@
+package com.renteria.lims.auth.security;
+
+import com.renteria.lims.config.JwtConfig;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Self-authenticating refresh token format:
+ * {@code base64url(version | row id | expiry epoch seconds | 16 random bytes | HMAC-SHA256)}.
+ * Malformed, forged and expired cookies are rejected here without touching the database, and
+ * valid ones carry the {@code (id, expires_at)} primary key of their row.
+ *
+ * <p>The stored {@code token_hash} is the SHA-256 of the whole token, expiry included. The
+ * partitioned table can only enforce {@code UNIQUE (token_hash, expires_at)}; that is
+ * equivalent to global hash uniqueness only while the expiry stays part of the hashed token.
+ *
+ * <p>The MAC key is derived from the JWT secret, so rotating that secret also invalidates
+ * outstanding refresh tokens.
+ */
+@Component
+public class RefreshTokenCodec {
+
+    private static final byte VERSION = 1;
+    private static final int PAYLOAD_BYTES = 1 + 16 + 8 + 16;
+    private static final int MAC_BYTES = 32;
+    private static final int TOKEN_BYTES = PAYLOAD_BYTES + MAC_BYTES;
+    private static final int ENCODED_LENGTH = (TOKEN_BYTES * 4 + 2) / 3;
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+    private final SecureRandom random = new SecureRandom();
+
+    public RefreshTokenCodec(JwtConfig jwtConfig) {
+        this.key = deriveKey(jwtConfig.getSecret());
+        this.macs = ThreadLocal.withInitial(() -> newMac(key));
+    }
+
+    public String issue(UUID id, Instant expiresAt) {
+        ByteBuffer buffer = ByteBuffer.allocate(TOKEN_BYTES);
+        buffer.put(VERSION)
+            .putLong(id.getMostSignificantBits())
+            .putLong(id.getLeastSignificantBits())
+            .putLong(expiresAt.getEpochSecond());
+        byte[] nonce = new byte[16];
+        random.nextBytes(nonce);
+        buffer.put(nonce);
+
+        Mac mac = macs.get();
+        mac.update(buffer.array(), 0, PAYLOAD_BYTES);
+        buffer.put(mac.doFinal());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * Returns the row id and expiry for a genuine, unexpired token; empty otherwise.
+     */
+    public Optional<Claims> verify(String token) {
+        if (token == null || token.length() != ENCODED_LENGTH) {
+            return Optional.empty();
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (bytes.length != TOKEN_BYTES || bytes[0] != VERSION) {
+            return Optional.empty();
+        }
+
+        Mac mac = macs.get();
+        mac.update(bytes, 0, PAYLOAD_BYTES);
+        if (!MessageDigest.isEqual(mac.doFinal(), Arrays.copyOfRange(bytes, PAYLOAD_BYTES, TOKEN_BYTES))) {
+            return Optional.empty();
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, 24);
+        UUID id = new UUID(buffer.getLong(), buffer.getLong());
+        Instant expiresAt = Instant.ofEpochSecond(buffer.getLong());
+        if (!expiresAt.isAfter(Instant.now())) {
+            return Optional.empty();
+        }
+        return Optional.of(new Claims(id, expiresAt));
+    }
+
+    private static SecretKeySpec deriveKey(String secret) {
+        Mac mac = newMac(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+        byte[] derived = mac.doFinal("renteria-refresh-token-v1".getBytes(StandardCharsets.UTF_8));
+        return new SecretKeySpec(derived, ALGORITHM);
+    }
+
+    private static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    public record Claims(UUID id, Instant expiresAt) {}
+}
@@ -0,0 +1,26 @@
+package com.renteria.lims.auth.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Requires the caller's access token to carry the given permission codes. Checked by
+ * {@link RequiresPermissionInterceptor} against the token's permission bitmask; on a type it
+ * applies to every method that is not annotated itself.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface RequiresPermission {
+
+    /** Permission codes, e.g. {@code "PATIENT_VIEW"}. */
+    String[] value();
+
+    /** When true, any one of the codes is enough; by default all are required. */
+    boolean any() default false;
+}
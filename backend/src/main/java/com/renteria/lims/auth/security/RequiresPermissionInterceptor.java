@@ -0,0 +1,148 @@
+package com.renteria.lims.auth.security;
+
+import com.renteria.lims.user.service.PermissionRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.Pointcuts;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.MethodClassKey;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Enforces {@link RequiresPermission}. The codes of each method are resolved to a bitmask and
+ * cached per method and target class, since an inherited method can carry a different
+ * type-level requirement in each subclass (re-resolved only if the permission registry version
+ * changes), so a call costs a map lookup and a few word-wise ANDs against the principal's
+ * {@link PermissionBits} instead of scanning authorities or evaluating SpEL.
+ *
+ * <p>As a {@link BeanPostProcessor} it resolves every guarded method when the bean is created
+ * and fails the context on a code the registry does not know. A code that disappears later,
+ * through a registry reload, can never be satisfied: the method is denied and the code logged.
+ */
+public class RequiresPermissionInterceptor implements MethodInterceptor, BeanPostProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(RequiresPermissionInterceptor.class);
+
+    private final Supplier<PermissionRegistry> permissionRegistry;
+    private final Map<MethodClassKey, Requirement> requirements = new ConcurrentHashMap<>();
+
+    public RequiresPermissionInterceptor(Supplier<PermissionRegistry> permissionRegistry) {
+        this.permissionRegistry = permissionRegistry;
+    }
+
+    public static Advisor advisor(Supplier<PermissionRegistry> permissionRegistry) {
+        return advisor(new RequiresPermissionInterceptor(permissionRegistry));
+    }
+
+    public static Advisor advisor(RequiresPermissionInterceptor interceptor) {
+        return new DefaultPointcutAdvisor(
+            Pointcuts.union(new AnnotationMatchingPointcut(RequiresPermission.class, true),
+                AnnotationMatchingPointcut.forMethodAnnotation(RequiresPermission.class)),
+            interceptor);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Class<?> targetClass = ClassUtils.getUserClass(AopUtils.getTargetClass(bean));
+        boolean typeGuarded = AnnotatedElementUtils.hasAnnotation(targetClass, RequiresPermission.class);
+        PermissionRegistry[] registry = new PermissionRegistry[1];
+        ReflectionUtils.doWithMethods(targetClass, method -> {
+            if (registry[0] == null) {
+                registry[0] = permissionRegistry.get();
+            }
+            Requirement requirement = resolve(method, targetClass, registry[0]);
+            if (requirement.unknown()) {
+                throw new IllegalStateException("@RequiresPermission on " + method + " in bean '" + beanName
+                    + "' names an unknown permission: " + String.join(", ", requirement.unknownCodes()));
+            }
+            requirements.put(new MethodClassKey(method, targetClass), requirement);
+        }, method -> Modifier.isPublic(method.getModifiers())
+            && method.getDeclaringClass() != Object.class
+            && (typeGuarded || AnnotatedElementUtils.hasAnnotation(method, RequiresPermission.class)));
+        return bean;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        PermissionRegistry registry = permissionRegistry.get();
+        Method method = invocation.getMethod();
+        Object target = invocation.getThis();
+        Class<?> targetClass = target != null
+            ? ClassUtils.getUserClass(AopUtils.getTargetClass(target))
+            : method.getDeclaringClass();
+        MethodClassKey key = new MethodClassKey(method, targetClass);
+        Requirement requirement = requirements.get(key);
+        if (requirement == null || requirement.version() != registry.getVersion()) {
+            requirement = resolve(method, targetClass, registry);
+            if (requirement.unknown()) {
+                log.error("@RequiresPermission on {} names unknown permission {}; access will be denied",
+                    method, requirement.unknownCodes());
+            }
+            requirements.put(key, requirement);
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof JwtPrincipal principal)
+                || !requirement.isSatisfiedBy(principal.permissionBits())) {
+            throw new AccessDeniedException("Access denied");
+        }
+        return invocation.proceed();
+    }
+
+    private static Requirement resolve(Method method, Class<?> targetClass, PermissionRegistry registry) {
+        Method specific = AopUtils.getMostSpecificMethod(method, targetClass);
+        RequiresPermission annotation = AnnotatedElementUtils.findMergedAnnotation(specific, RequiresPermission.class);
+        if (annotation == null) {
+            annotation = AnnotatedElementUtils.findMergedAnnotation(targetClass, RequiresPermission.class);
+        }
+        if (annotation == null) {
+            throw new IllegalStateException("No @RequiresPermission on " + specific);
+        }
+
+        BitSet bits = new BitSet();
+        List<String> unknownCodes = new ArrayList<>();
+        for (String code : annotation.value()) {
+            int bit = registry.bitOf(code);
+            if (bit < 0) {
+                unknownCodes.add(code);
+                continue;
+            }
+            bits.set(bit);
+        }
+        return new Requirement(PermissionBits.of(bits), annotation.any(), List.copyOf(unknownCodes), registry.getVersion());
+    }
+
+    private record Requirement(PermissionBits bits, boolean any, List<String> unknownCodes, long version) {
+
+        boolean unknown() {
+            return !unknownCodes.isEmpty();
+        }
+
+        boolean isSatisfiedBy(PermissionBits granted) {
+            if (any) {
+                return granted.intersects(bits);
+            }
+            return !unknown() && granted.containsAll(bits);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.renteria.lims.auth.security;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size Bloom filter over UUIDs. Index positions come from double hashing of the two
+ * UUID halves, so a probe is a handful of multiplications and array reads with no allocation.
+ * Bits are only ever set, atomically, so concurrent {@link #put} and {@link #mightContain} calls
+ * are safe and a completed put is visible to every later probe.
+ */
+final class UuidBloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    private UuidBloomFilter(long bitCount, int hashCount) {
+        this.words = new AtomicLongArray((int) ((bitCount + 63) >>> 6));
+        this.bitCount = words.length() * 64L;
+        this.hashCount = hashCount;
+    }
+
+    static UuidBloomFilter create(int expectedEntries, double falsePositiveRate) {
+        int n = Math.max(1, expectedEntries);
+        long bits = Math.max(64, (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+        int hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+        return new UuidBloomFilter(bits, hashes);
+    }
+
+    void put(UUID id) {
+        long h1 = mix(id.getMostSignificantBits() ^ mix(id.getLeastSignificantBits()));
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            long mask = 1L << bit;
+            words.accumulateAndGet((int) (bit >>> 6), mask, (word, m) -> word | m);
+        }
+    }
+
+    boolean mightContain(UUID id) {
+        long h1 = mix(id.getMostSignificantBits() ^ mix(id.getLeastSignificantBits()));
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // MurmurHash3 64-bit finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+}
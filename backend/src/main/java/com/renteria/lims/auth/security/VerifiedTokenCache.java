@@ -0,0 +1,71 @@
+package com.renteria.lims.auth.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.renteria.lims.common.util.TokenUtils;
+import com.renteria.lims.config.JwtConfig;
+import com.renteria.lims.user.service.PermissionRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Function;
+
+/**
+ * Size-bounded cache of already verified access tokens, keyed by the SHA-256 of the
+ * raw token so the bearer string itself is never retained. Each entry expires at the
+ * token's own {@code exp}, so a cached principal can never outlive its token.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final Cache<String, JwtPrincipal> cache;
+
+    public VerifiedTokenCache(JwtConfig jwtConfig, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(jwtConfig.getVerifiedCacheMaxSize())
+            .expireAfter(new TokenExpiry())
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verified-tokens");
+    }
+
+    /**
+     * Returns the cached principal for the token, verifying it with {@code verifier}
+     * on a miss. Invalid tokens ({@code null} from the verifier) are never cached.
+     */
+    public JwtPrincipal get(String token, Function<String, JwtPrincipal> verifier) {
+        return cache.get(TokenUtils.sha256Hex(token), key -> verifier.apply(token));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @EventListener
+    public void onPermissionRegistryReloaded(PermissionRegistry.ReloadedEvent event) {
+        invalidateAll();
+    }
+
+    private static final class TokenExpiry implements Expiry<String, JwtPrincipal> {
+
+        @Override
+        public long expireAfterCreate(String key, JwtPrincipal principal, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), principal.expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, JwtPrincipal principal, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, principal, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, JwtPrincipal principal, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
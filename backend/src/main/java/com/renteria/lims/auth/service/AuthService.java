@@ -4,16 +4,19 @@ import com.renteria.lims.auth.model.PasswordResetToken;
 import com.renteria.lims.auth.model.dto.*;
 import com.renteria.lims.auth.repository.PasswordResetTokenRepository;
 import com.renteria.lims.auth.repository.RefreshTokenRepository;
+import com.renteria.lims.auth.security.AccessTokenRevocationStore;
+import com.renteria.lims.auth.security.AuthRateLimiter;
+import com.renteria.lims.auth.security.JwtPrincipal;
+import com.renteria.lims.auth.security.RefreshTokenCodec;
 import com.renteria.lims.common.util.StringUtils;
 import com.renteria.lims.common.util.TokenUtils;
 import com.renteria.lims.config.SecurityConfigProps;
 import com.renteria.lims.email.service.EmailService;
 import com.renteria.lims.user.model.User;
-import com.renteria.lims.user.repository.PermissionRepository;
+import com.renteria.lims.user.model.UserCredentials;
 import com.renteria.lims.user.repository.UserRepository;
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.Refill;
+import com.renteria.lims.user.service.PermissionCache;
+import com.renteria.lims.user.service.UserDetailsServiceImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -26,12 +29,10 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.Duration;
 import java.time.Instant;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class AuthService {
@@ -40,7 +41,7 @@ public class AuthService {
 
     private final AuthenticationManager authenticationManager;
     private final UserRepository userRepository;
-    private final PermissionRepository permissionRepository;
+    private final PermissionCache permissionCache;
     private final RefreshTokenService refreshTokenService;
     private final RefreshTokenRepository refreshTokenRepository;
     private final PasswordResetTokenRepository passwordResetTokenRepository;
@@ -48,24 +49,26 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final SecurityConfigProps securityConfig;
     private final EmailService emailService;
-    
-    // Rate limiting buckets
-    private final ConcurrentHashMap<String, Bucket> loginBuckets = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, Bucket> resetBuckets = new ConcurrentHashMap<>();
+    private final AuthRateLimiter rateLimiter;
+    private final RefreshSingleFlight refreshSingleFlight;
+    private final AccessTokenRevocationStore revocationStore;
 
     public AuthService(AuthenticationManager authenticationManager,
                        UserRepository userRepository,
-                       PermissionRepository permissionRepository,
+                       PermissionCache permissionCache,
                        RefreshTokenService refreshTokenService,
                        RefreshTokenRepository refreshTokenRepository,
                        PasswordResetTokenRepository passwordResetTokenRepository,
                        JwtService jwtService,
                        PasswordEncoder passwordEncoder,
                        SecurityConfigProps securityConfig,
-                       EmailService emailService) {
+                       EmailService emailService,
+                       AuthRateLimiter rateLimiter,
+                       RefreshSingleFlight refreshSingleFlight,
+                       AccessTokenRevocationStore revocationStore) {
         this.authenticationManager = authenticationManager;
         this.userRepository = userRepository;
-        this.permissionRepository = permissionRepository;
+        this.permissionCache = permissionCache;
         this.refreshTokenService = refreshTokenService;
         this.refreshTokenRepository = refreshTokenRepository;
         this.passwordResetTokenRepository = passwordResetTokenRepository;
@@ -73,26 +76,51 @@ public class AuthService {
         this.passwordEncoder = passwordEncoder;
         this.securityConfig = securityConfig;
         this.emailService = emailService;
+        this.rateLimiter = rateLimiter;
+        this.refreshSingleFlight = refreshSingleFlight;
+        this.revocationStore = revocationStore;
     }
 
-    @Transactional
-    public LoginResult login(LoginRequest request) {
-        String normalizedEmail = request.email().toLowerCase().trim();
-        
-        // Check rate limit
-        if (!checkLoginLimit(normalizedEmail)) {
+    /**
+     * Consumes a login attempt from the per-email bucket. Call before {@link #login}: the
+     * JDBC bucket store takes its own connection, which must not be held alongside the login
+     * transaction's.
+     */
+    public void checkLoginRateLimit(String email) {
+        String normalizedEmail = email.toLowerCase().trim();
+        if (!rateLimiter.tryConsumeLogin(normalizedEmail)) {
             log.warn("Rate limit exceeded for login: {}", StringUtils.maskEmail(normalizedEmail));
             throw new BadCredentialsException("Too many login attempts. Please try again later.");
         }
+    }
+
+    /**
+     * Consumes a reset request from the per-email bucket; {@code false} means the request must
+     * be silently dropped. Call before {@link #requestPasswordReset}, outside its transaction.
+     */
+    public boolean tryConsumeResetRateLimit(String email) {
+        String normalizedEmail = email.toLowerCase().trim();
+        if (!rateLimiter.tryConsumeReset(normalizedEmail)) {
+            log.warn("Rate limit exceeded for password reset: {}", StringUtils.maskEmail(normalizedEmail));
+            return false;
+        }
+        return true;
+    }
+
+    // Failed attempts must be committed even though the method exits with BadCredentialsException
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public LoginResult login(LoginRequest request) {
+        String normalizedEmail = request.email().toLowerCase().trim();
+
+        // Single round trip: user row and effective permissions together
+        Optional<UserCredentials> credentialsOpt = userRepository.findCredentialsByEmail(normalizedEmail);
         
-        Optional<User> userOpt = userRepository.findByEmail(normalizedEmail);
-        
-        if (userOpt.isEmpty()) {
+        if (credentialsOpt.isEmpty()) {
             log.warn("Login attempt for non-existent email: {}", StringUtils.maskEmail(normalizedEmail));
             throw new BadCredentialsException("Invalid credentials");
         }
 
-        User user = userOpt.get();
+        UserCredentials user = credentialsOpt.get();
 
         if (user.isLocked()) {
             log.warn("Login attempt for locked account: {}", StringUtils.maskEmail(normalizedEmail));
@@ -100,22 +128,26 @@ public class AuthService {
         }
 
         try {
-            Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                    normalizedEmail,
-                    request.password()
-                )
+            UsernamePasswordAuthenticationToken authRequest = new UsernamePasswordAuthenticationToken(
+                normalizedEmail,
+                request.password()
             );
+            // Hand the already-loaded user to the provider so it does not query it again
+            authRequest.setDetails(UserDetailsServiceImpl.toUserDetails(user));
+            Authentication authentication = authenticationManager.authenticate(authRequest);
 
             SecurityContextHolder.getContext().setAuthentication(authentication);
 
-            user.setFailedLoginAttempts(0);
-            user.setLastLoginAt(Instant.now());
-            userRepository.save(user);
+            // Transparently move outdated hashes (legacy format or lower cost) to the current scheme
+            if (passwordEncoder.upgradeEncoding(user.passwordHash())) {
+                userRepository.recordSuccessfulLogin(user.id(), Instant.now(), passwordEncoder.encode(request.password()));
+                log.info("Rehashed password with current parameters for user: {}", StringUtils.maskEmail(normalizedEmail));
+            } else {
+                userRepository.recordSuccessfulLogin(user.id(), Instant.now());
+            }
 
-            Set<String> permissions = permissionRepository.findEffectivePermissions(user.getId(), user.getRole().name());
-            String accessToken = jwtService.generateAccessToken(user.getId(), user.getEmail(), user.getRole(), permissions);
-            RefreshTokenService.RefreshTokenResult refreshResult = refreshTokenService.createRefreshToken(user.getId());
+            String accessToken = jwtService.generateAccessToken(user.id(), user.email(), user.role(), user.permissions());
+            RefreshTokenService.RefreshTokenResult refreshResult = refreshTokenService.createRefreshToken(user.id());
 
             String fullName = getUserFullName(user);
 
@@ -124,8 +156,8 @@ public class AuthService {
             LoginResponse response = new LoginResponse(
                 accessToken,
                 jwtService.getAccessTokenExpiryMs() / 1000,
-                user.isForcePasswordChange(),
-                new LoginResponse.UserInfo(user.getId(), user.getEmail(), user.getRole().name(), fullName)
+                user.forcePasswordChange(),
+                new LoginResponse.UserInfo(user.id(), user.email(), user.role().name(), fullName)
             );
             
             return new LoginResult(response, refreshResult.rawToken());
@@ -136,13 +168,21 @@ public class AuthService {
         }
     }
 
-    @Transactional
+    // Not @Transactional: requests waiting on a shared rotation must not hold a connection
     public RefreshResult refresh(String refreshTokenCookie) {
         if (refreshTokenCookie == null || refreshTokenCookie.isBlank()) {
             throw new BadCredentialsException("Refresh token required");
         }
+        RefreshTokenCodec.Claims claims = refreshTokenService.verify(refreshTokenCookie)
+            .orElseThrow(() -> new BadCredentialsException("Invalid refresh token"));
 
-        Optional<RefreshTokenService.RefreshTokenResult> rotatedOpt = refreshTokenService.rotateRefreshToken(refreshTokenCookie);
+        return refreshSingleFlight.execute(refreshTokenService.getTokenHash(refreshTokenCookie),
+            () -> rotate(refreshTokenCookie, claims));
+    }
+
+    private RefreshResult rotate(String refreshTokenCookie, RefreshTokenCodec.Claims claims) {
+        Optional<RefreshTokenService.RefreshTokenResult> rotatedOpt =
+            refreshTokenService.rotateRefreshToken(refreshTokenCookie, claims);
         
         if (rotatedOpt.isEmpty()) {
             throw new BadCredentialsException("Invalid refresh token");
@@ -152,7 +192,7 @@ public class AuthService {
         User user = userRepository.findById(rotated.token().getUserId())
             .orElseThrow(() -> new BadCredentialsException("User not found"));
 
-        Set<String> permissions = permissionRepository.findEffectivePermissions(user.getId(), user.getRole().name());
+        Set<String> permissions = permissionCache.getEffectivePermissions(user.getId(), user.getRole());
         String accessToken = jwtService.generateAccessToken(user.getId(), user.getEmail(), user.getRole(), permissions);
 
         log.debug("Token refreshed for user: {}", StringUtils.maskEmail(user.getEmail()));
@@ -162,11 +202,13 @@ public class AuthService {
     }
 
     @Transactional
-    public void logout(UUID userId, String refreshTokenCookie) {
+    public void logout(JwtPrincipal principal, String refreshTokenCookie) {
+        UUID userId = principal.userId();
         if (refreshTokenCookie != null && !refreshTokenCookie.isBlank()) {
             refreshTokenService.rotateRefreshToken(refreshTokenCookie);
         }
         refreshTokenService.revokeAllUserTokens(userId);
+        revocationStore.revokeToken(principal);
         SecurityContextHolder.clearContext();
         log.info("Logout for user: {}", userId);
     }
@@ -186,6 +228,7 @@ public class AuthService {
         userRepository.save(user);
 
         refreshTokenService.revokeAllUserTokens(userId);
+        revocationStore.revokeUser(userId);
         
         log.info("Password changed for user: {}", StringUtils.maskEmail(user.getEmail()));
     }
@@ -193,13 +236,7 @@ public class AuthService {
     @Transactional
     public void requestPasswordReset(PasswordResetRequest request) {
         String normalizedEmail = request.email().toLowerCase().trim();
-        
-        // Check rate limit
-        if (!checkResetLimit(normalizedEmail)) {
-            log.warn("Rate limit exceeded for password reset: {}", StringUtils.maskEmail(normalizedEmail));
-            return;
-        }
-        
+
         Optional<User> userOpt = userRepository.findByEmail(normalizedEmail);
         
         if (userOpt.isEmpty()) {
@@ -216,24 +253,19 @@ public class AuthService {
         }
 
         String rawToken = UUID.randomUUID().toString();
-        String tokenHash = TokenUtils.sha256Hex(rawToken);
+        byte[] tokenHash = TokenUtils.sha256(rawToken);
         Instant expiresAt = Instant.now().plusMillis(securityConfig.getPasswordResetExpiryMs());
 
         PasswordResetToken resetToken = new PasswordResetToken(user.getId(), tokenHash, expiresAt);
         passwordResetTokenRepository.save(resetToken);
 
-        try {
-            emailService.sendPasswordReset(user.getEmail(), rawToken);
-            log.info("Password reset token created and email sent for user: {}", StringUtils.maskEmail(user.getEmail()));
-        } catch (Exception e) {
-            log.error("Failed to send password reset email to: {}", StringUtils.maskEmail(user.getEmail()), e);
-            throw new RuntimeException("Failed to send password reset email. Please try again later.", e);
-        }
+        emailService.sendPasswordReset(user.getEmail(), rawToken);
+        log.info("Password reset token created and email queued for user: {}", StringUtils.maskEmail(user.getEmail()));
     }
 
     @Transactional
     public void confirmPasswordReset(PasswordResetConfirm request) {
-        String tokenHash = TokenUtils.sha256Hex(request.token());
+        byte[] tokenHash = TokenUtils.sha256(request.token());
         
         PasswordResetToken resetToken = passwordResetTokenRepository.findByTokenHash(tokenHash)
             .orElseThrow(() -> new IllegalStateException("Invalid or expired reset token"));
@@ -254,55 +286,37 @@ public class AuthService {
         passwordResetTokenRepository.save(resetToken);
 
         refreshTokenService.revokeAllUserTokens(user.getId());
+        revocationStore.revokeUser(user.getId());
         
         log.info("Password reset completed for user: {}", StringUtils.maskEmail(user.getEmail()));
     }
 
-    private void handleFailedLogin(User user) {
-        int attempts = user.getFailedLoginAttempts() + 1;
-        user.setFailedLoginAttempts(attempts);
+    private void handleFailedLogin(UserCredentials user) {
+        int attempts = user.failedLoginAttempts() + 1;
+        Instant lockedUntil = user.lockedUntil();
 
         if (attempts >= securityConfig.getMaxLoginAttempts()) {
-            user.setLockedUntil(Instant.now().plusMillis(securityConfig.getLockoutDurationMs()));
-            log.warn("Account locked after {} failed attempts: {}", attempts, StringUtils.maskEmail(user.getEmail()));
+            lockedUntil = Instant.now().plusMillis(securityConfig.getLockoutDurationMs());
+            log.warn("Account locked after {} failed attempts: {}", attempts, StringUtils.maskEmail(user.email()));
             
-            // Lockout email is best-effort - must NOT break login flow
-            try {
-                emailService.sendAccountLockout(user.getEmail());
-            } catch (Exception e) {
-                log.error("Failed to send lockout notification to: {}", StringUtils.maskEmail(user.getEmail()), e);
-                // Do NOT rethrow - lockout notification is secondary to the lock itself
-            }
+            // Queued in the outbox within this transaction, so it goes out only if the lock
+            // commits; SMTP failures are retried by the dispatcher and never reach login
+            emailService.sendAccountLockout(user.email());
         }
 
-        userRepository.save(user);
+        userRepository.recordFailedLogin(user.id(), attempts, lockedUntil);
     }
 
-    private String getUserFullName(User user) {
-        return user.getEmail();
+    private String getUserFullName(UserCredentials user) {
+        return user.email();
     }
     
-    // Rate limiting methods
-    private boolean checkLoginLimit(String email) {
-        Bucket bucket = loginBuckets.computeIfAbsent(email.toLowerCase(), k -> createLoginBucket());
-        return bucket.tryConsume(1);
-    }
-
-    private boolean checkResetLimit(String email) {
-        Bucket bucket = resetBuckets.computeIfAbsent(email.toLowerCase(), k -> createResetBucket());
-        return bucket.tryConsume(1);
-    }
-
-    private Bucket createLoginBucket() {
-        Bandwidth limit = Bandwidth.classic(5, Refill.intervally(5, Duration.ofMinutes(15)));
-        return Bucket.builder().addLimit(limit).build();
-    }
+    public record LoginResult(LoginResponse response, String rawRefreshToken) {}
+    /** {@code rawRefreshToken} is null when the refresh was served from another caller's rotation. */
+    public record RefreshResult(RefreshResponse response, String rawRefreshToken) {
 
-    private Bucket createResetBucket() {
-        Bandwidth limit = Bandwidth.classic(3, Refill.intervally(3, Duration.ofHours(1)));
-        return Bucket.builder().addLimit(limit).build();
+        RefreshResult withoutRefreshToken() {
+            return new RefreshResult(response, null);
+        }
     }
-    
-    public record LoginResult(LoginResponse response, String rawRefreshToken) {}
-    public record RefreshResult(RefreshResponse response, String rawRefreshToken) {}
 }
@@ -0,0 +1,107 @@
+package com.renteria.lims.auth.service;
+
+import com.renteria.lims.auth.repository.PasswordResetTokenRepository;
+import com.renteria.lims.auth.repository.RefreshTokenRepository;
+import com.renteria.lims.config.TokenPurgeConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.function.ToIntFunction;
+
+/**
+ * Retention job for refresh and password reset tokens. Rows are deleted in small batches,
+ * each in its own short transaction with a pause in between, so the job never holds locks
+ * for long or saturates the database. A run stops after {@code max-batches-per-run}; any
+ * backlog is picked up by the next run.
+ *
+ * <p>Revoked refresh tokens are kept for the retention period so reuse of a recently
+ * rotated token is still detected. When {@code refresh_tokens} is partitioned its retention is
+ * handled by {@link RefreshTokenPartitionManager} and only reset tokens are purged here.
+ */
+@Service
+public class ExpiredTokenPurger {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpiredTokenPurger.class);
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final PasswordResetTokenRepository passwordResetTokenRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TokenPurgeConfig config;
+    private final Counter refreshDeleted;
+    private final Counter resetDeleted;
+    private final Timer runTimer;
+
+    public ExpiredTokenPurger(RefreshTokenRepository refreshTokenRepository,
+                              PasswordResetTokenRepository passwordResetTokenRepository,
+                              TransactionTemplate transactionTemplate,
+                              TokenPurgeConfig config,
+                              MeterRegistry meterRegistry) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.passwordResetTokenRepository = passwordResetTokenRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.config = config;
+        this.refreshDeleted = Counter.builder("auth.token.purge.deleted").tag("table", "refresh_tokens").register(meterRegistry);
+        this.resetDeleted = Counter.builder("auth.token.purge.deleted").tag("table", "password_reset_tokens").register(meterRegistry);
+        this.runTimer = Timer.builder("auth.token.purge.duration").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.token-purge.interval-ms:3600000}", initialDelayString = "${app.token-purge.initial-delay-ms:300000}")
+    public void scheduledPurge() {
+        if (config.isEnabled()) {
+            purge();
+        }
+    }
+
+    public PurgeResult purge() {
+        Instant cutoff = Instant.now().minusMillis(config.getRetentionMs());
+        return runTimer.record(() -> {
+            long refresh = config.isRefreshTokenPartitions() ? 0
+                : purgeInBatches(batch -> refreshTokenRepository.deleteExpiredBatch(cutoff, batch), refreshDeleted);
+            long reset = purgeInBatches(batch -> passwordResetTokenRepository.deleteExpiredBatch(cutoff, batch), resetDeleted);
+            if (refresh > 0 || reset > 0) {
+                log.info("Purged {} refresh tokens and {} password reset tokens older than {}", refresh, reset, cutoff);
+            }
+            return new PurgeResult(refresh, reset);
+        });
+    }
+
+    private long purgeInBatches(ToIntFunction<Integer> deleteBatch, Counter counter) {
+        int batchSize = config.getBatchSize();
+        long total = 0;
+        for (int i = 0; i < config.getMaxBatchesPerRun(); i++) {
+            Integer deleted = transactionTemplate.execute(status -> deleteBatch.applyAsInt(batchSize));
+            int count = deleted == null ? 0 : deleted;
+            total += count;
+            counter.increment(count);
+            if (count < batchSize) {
+                break;
+            }
+            if (!pause()) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private boolean pause() {
+        if (config.getBatchPauseMs() <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(config.getBatchPauseMs());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public record PurgeResult(long refreshTokens, long passwordResetTokens) {}
+}
@@ -1,9 +1,13 @@
 package com.renteria.lims.auth.service;
 
+import com.renteria.lims.auth.security.JwtPrincipal;
+import com.renteria.lims.auth.security.PermissionBits;
 import com.renteria.lims.config.JwtConfig;
 import com.renteria.lims.user.model.Role;
+import com.renteria.lims.user.service.PermissionRegistry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -21,13 +25,23 @@ import java.util.UUID;
 public class JwtService {
 
     private static final Logger log = LoggerFactory.getLogger(JwtService.class);
+    private static final String PERMISSIONS_CLAIM = "perms";
+    private static final String PERMISSIONS_VERSION_CLAIM = "pv";
+    private static final String PERMISSIONS_BIT_COUNT_CLAIM = "pb";
 
     private final JwtConfig jwtConfig;
+    private final PermissionRegistry permissionRegistry;
     private final SecretKey signingKey;
+    private final JwtParser parser;
 
-    public JwtService(JwtConfig jwtConfig) {
+    public JwtService(JwtConfig jwtConfig, PermissionRegistry permissionRegistry) {
         this.jwtConfig = jwtConfig;
+        this.permissionRegistry = permissionRegistry;
         this.signingKey = createSigningKey(jwtConfig.getSecret());
+        // Parsers are immutable and thread-safe; build it once instead of per token
+        this.parser = Jwts.parser()
+            .verifyWith(signingKey)
+            .build();
     }
 
     private SecretKey createSigningKey(String secret) {
@@ -43,10 +57,13 @@ public class JwtService {
         Instant expiry = now.plusMillis(jwtConfig.getAccessTokenExpiryMs());
 
         return Jwts.builder()
+            .id(UUID.randomUUID().toString())
             .subject(userId.toString())
             .claim("email", email)
             .claim("role", role.name())
-            .claim("permissions", permissions)
+            .claim(PERMISSIONS_CLAIM, permissionRegistry.encode(permissions))
+            .claim(PERMISSIONS_VERSION_CLAIM, permissionRegistry.getVersion())
+            .claim(PERMISSIONS_BIT_COUNT_CLAIM, permissionRegistry.getBitCount())
             .issuedAt(Date.from(now))
             .expiration(Date.from(expiry))
             .signWith(signingKey)
@@ -55,17 +72,41 @@ public class JwtService {
 
     public Claims validateToken(String token) {
         try {
-            return Jwts.parser()
-                .verifyWith(signingKey)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+            return parser.parseSignedClaims(token).getPayload();
         } catch (JwtException | IllegalArgumentException e) {
             log.warn("Invalid JWT token: {}", e.getMessage());
             return null;
         }
     }
 
+    /**
+     * Parses and verifies the token exactly once and returns everything the request
+     * path needs, or {@code null} when the token is invalid or expired.
+     */
+    public JwtPrincipal verifyAccessToken(String token) {
+        Claims claims = validateToken(token);
+        if (claims == null) return null;
+
+        try {
+            PermissionBits permissionBits = readPermissions(claims);
+            if (permissionBits == null) return null;
+
+            return new JwtPrincipal(
+                UUID.fromString(claims.getSubject()),
+                UUID.fromString(claims.getId()),
+                claims.get("email", String.class),
+                Role.valueOf(claims.get("role", String.class)),
+                permissionBits,
+                permissionRegistry.authoritiesOf(permissionBits),
+                claims.getIssuedAt().toInstant(),
+                claims.getExpiration().toInstant()
+            );
+        } catch (RuntimeException e) {
+            log.warn("Malformed JWT claims: {}", e.getMessage());
+            return null;
+        }
+    }
+
     public UUID extractUserId(String token) {
         Claims claims = validateToken(token);
         if (claims == null) return null;
@@ -84,17 +125,34 @@ public class JwtService {
         return Role.valueOf(claims.get("role", String.class));
     }
 
-    @SuppressWarnings("unchecked")
     public Set<String> extractPermissions(String token) {
         Claims claims = validateToken(token);
         if (claims == null) return Set.of();
-        return claims.get("permissions", Set.class);
+        PermissionBits permissionBits = readPermissions(claims);
+        return permissionBits == null ? Set.of() : permissionRegistry.codesOf(permissionBits);
     }
 
     public boolean isTokenValid(String token) {
         return validateToken(token) != null;
     }
 
+    /**
+     * Decodes the permission bitmask, or returns {@code null} when one of the bits the token
+     * was encoded with has since been reassigned or removed and its bits can no longer be
+     * trusted. Permissions added after the token was issued do not affect it.
+     */
+    private PermissionBits readPermissions(Claims claims) {
+        Number version = claims.get(PERMISSIONS_VERSION_CLAIM, Number.class);
+        Number bitCount = claims.get(PERMISSIONS_BIT_COUNT_CLAIM, Number.class);
+        if (version == null || bitCount == null
+                || !permissionRegistry.isCurrent(version.longValue(), bitCount.intValue())) {
+            log.debug("Rejecting token with stale permission registry version {}", version);
+            return null;
+        }
+        String encoded = claims.get(PERMISSIONS_CLAIM, String.class);
+        return encoded == null ? PermissionBits.EMPTY : permissionRegistry.decode(encoded);
+    }
+
     public long getAccessTokenExpiryMs() {
         return jwtConfig.getAccessTokenExpiryMs();
     }
@@ -0,0 +1,88 @@
+package com.renteria.lims.auth.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.renteria.lims.config.JwtConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses refreshes of the same refresh token into a single rotation. Callers that arrive
+ * while a rotation is in flight wait for it, and callers within the grace window after it
+ * completed get its access token, instead of presenting an already-rotated token and tripping
+ * reuse detection. Only the caller that rotated receives the new refresh token: a replay of the
+ * old cookie, by another tab or by whoever copied it, never learns the successor. Failures are
+ * shared with waiters but never cached.
+ *
+ * <p>The window is per node; a near-simultaneous refresh landing on another node still goes
+ * to the database.
+ */
+@Component
+public class RefreshSingleFlight {
+
+    private final ConcurrentHashMap<String, CompletableFuture<AuthService.RefreshResult>> inFlight = new ConcurrentHashMap<>();
+    private final Cache<String, AuthService.RefreshResult> recent;
+    private final Counter shared;
+
+    public RefreshSingleFlight(JwtConfig jwtConfig, MeterRegistry meterRegistry) {
+        this.recent = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMillis(jwtConfig.getRefreshGraceWindowMs()))
+            .maximumSize(jwtConfig.getVerifiedCacheMaxSize())
+            .build();
+        this.shared = Counter.builder("auth.refresh.shared")
+            .description("Refresh requests served from an in-flight or just-completed rotation")
+            .register(meterRegistry);
+    }
+
+    public AuthService.RefreshResult execute(String tokenHash, Supplier<AuthService.RefreshResult> rotation) {
+        AuthService.RefreshResult cached = recent.getIfPresent(tokenHash);
+        if (cached != null) {
+            shared.increment();
+            return cached.withoutRefreshToken();
+        }
+
+        CompletableFuture<AuthService.RefreshResult> mine = new CompletableFuture<>();
+        CompletableFuture<AuthService.RefreshResult> existing = inFlight.putIfAbsent(tokenHash, mine);
+        if (existing != null) {
+            shared.increment();
+            return await(existing).withoutRefreshToken();
+        }
+
+        try {
+            // A rotation may have completed between the cache check and taking the slot
+            AuthService.RefreshResult result = recent.getIfPresent(tokenHash);
+            if (result != null) {
+                shared.increment();
+                mine.complete(result);
+                return result.withoutRefreshToken();
+            }
+            result = rotation.get();
+            recent.put(tokenHash, result);
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(tokenHash, mine);
+        }
+    }
+
+    private static AuthService.RefreshResult await(CompletableFuture<AuthService.RefreshResult> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.renteria.lims.auth.service;
+
+import com.renteria.lims.config.JwtConfig;
+import com.renteria.lims.config.TokenPurgeConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Maintains the monthly {@code refresh_tokens} partitions created by V12. Partitions are always
+ * created ahead, far enough to hold the longest refresh token issued before the next run
+ * ({@code partitions-ahead} months or the refresh expiry, whichever is longer); without them
+ * inserts fail once the last partition is passed. Retiring partitions whose whole range expired
+ * more than the retention period ago, with {@code DETACH ... CONCURRENTLY} + {@code DROP}, only
+ * happens when token purging and partition retention are enabled. PostgreSQL only; a no-op
+ * when {@code refresh_tokens} is not partitioned.
+ *
+ * <p>Every node runs this at startup and on the schedule, so a run holds a session-level
+ * {@code pg_try_advisory_lock} on one connection and is skipped when another node has it.
+ * Partitions left half-retired by an interrupted run (detach pending, or detached but not
+ * dropped) are finished on the next one, and a failing partition is logged and retried
+ * later rather than failing startup.
+ */
+@Service
+public class RefreshTokenPartitionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenPartitionManager.class);
+
+    private static final String PREFIX = "refresh_tokens_p";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    // Arbitrary application-wide key for pg_try_advisory_lock
+    static final long LOCK_KEY = 0x52544B5041525431L;
+
+    // The schedule runs daily; leave room for a missed run before the next one
+    private static final Duration SCHEDULE_SLACK = Duration.ofDays(2);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TokenPurgeConfig config;
+    private final JwtConfig jwtConfig;
+
+    public RefreshTokenPartitionManager(JdbcTemplate jdbcTemplate, TokenPurgeConfig config, JwtConfig jwtConfig) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.config = config;
+        this.jwtConfig = jwtConfig;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        try {
+            maintain();
+        } catch (DataAccessException e) {
+            log.error("Refresh token partition maintenance failed at startup; retrying on schedule", e);
+        }
+    }
+
+    @Scheduled(cron = "${app.token-purge.partition-cron:0 15 3 * * *}", zone = "UTC")
+    public void maintain() {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            if ("PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+                maintain(new JdbcTemplate(new SingleConnectionDataSource(connection, true)));
+            }
+            return null;
+        });
+    }
+
+    // The advisory lock belongs to the session, so everything runs on the one connection
+    void maintain(JdbcTemplate session) {
+        if (!Boolean.TRUE.equals(session.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('refresh_tokens'))",
+                Boolean.class))) {
+            return;
+        }
+        if (!Boolean.TRUE.equals(session.queryForObject("SELECT pg_try_advisory_lock(?)", Boolean.class, LOCK_KEY))) {
+            log.debug("Refresh token partitions are being maintained by another node");
+            return;
+        }
+        try {
+            createPartitionsAhead(session);
+            if (config.isEnabled() && config.isRefreshTokenPartitions()) {
+                dropExpiredPartitions(session);
+            }
+        } finally {
+            session.queryForObject("SELECT pg_advisory_unlock(?)", Boolean.class, LOCK_KEY);
+        }
+    }
+
+    private void createPartitionsAhead(JdbcTemplate session) {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        YearMonth last = current.plusMonths(Math.max(0, config.getPartitionsAhead()));
+        YearMonth latestExpiry = YearMonth.from(Instant.now()
+            .plusMillis(jwtConfig.getRefreshTokenExpiryMs())
+            .plus(SCHEDULE_SLACK)
+            .atZone(ZoneOffset.UTC));
+        if (latestExpiry.isAfter(last)) {
+            last = latestExpiry;
+        }
+        for (YearMonth month = current; !month.isAfter(last); month = month.plusMonths(1)) {
+            createPartition(session, month);
+        }
+    }
+
+    private void dropExpiredPartitions(JdbcTemplate session) {
+        Instant cutoff = Instant.now().minusMillis(config.getRetentionMs());
+        for (Partition partition : listPartitions(session)) {
+            YearMonth month = parseMonth(partition.name());
+            if (month != null && start(month.plusMonths(1)).isBefore(cutoff)) {
+                dropPartition(session, partition);
+            }
+        }
+    }
+
+    private void createPartition(JdbcTemplate session, YearMonth month) {
+        String partition = PREFIX + month.format(SUFFIX);
+        try {
+            session.execute(String.format(
+                "CREATE TABLE IF NOT EXISTS %s PARTITION OF refresh_tokens FOR VALUES FROM ('%s') TO ('%s')",
+                partition, start(month), start(month.plusMonths(1))));
+        } catch (DataAccessException e) {
+            log.warn("Could not create refresh token partition {}: {}", partition, e.getMessage());
+        }
+    }
+
+    // Attached partitions and leftovers of an interrupted retirement, which pg_inherits no longer lists
+    private List<Partition> listPartitions(JdbcTemplate session) {
+        return session.query("""
+            SELECT c.relname, i.inhrelid IS NOT NULL AS attached, COALESCE(i.inhdetachpending, false) AS detach_pending
+            FROM pg_class c
+            LEFT JOIN pg_inherits i ON i.inhrelid = c.oid AND i.inhparent = 'refresh_tokens'::regclass
+            WHERE c.relkind = 'r'
+              AND c.relnamespace = current_schema()::regnamespace
+              AND c.relname LIKE 'refresh_tokens_p%'
+            """, (rs, rowNum) -> new Partition(
+                rs.getString("relname"), rs.getBoolean("attached"), rs.getBoolean("detach_pending")));
+    }
+
+    // DETACH CONCURRENTLY cannot run inside a transaction; the session connection is in autocommit
+    private void dropPartition(JdbcTemplate session, Partition partition) {
+        try {
+            if (partition.detachPending()) {
+                session.execute("ALTER TABLE refresh_tokens DETACH PARTITION " + partition.name() + " FINALIZE");
+            } else if (partition.attached()) {
+                session.execute("ALTER TABLE refresh_tokens DETACH PARTITION " + partition.name() + " CONCURRENTLY");
+            }
+            session.execute("DROP TABLE IF EXISTS " + partition.name());
+            log.info("Dropped expired refresh token partition {}", partition.name());
+        } catch (DataAccessException e) {
+            log.warn("Could not drop refresh token partition {}; retrying on the next run: {}",
+                partition.name(), e.getMessage());
+        }
+    }
+
+    static YearMonth parseMonth(String partition) {
+        if (!partition.startsWith(PREFIX) || partition.length() != PREFIX.length() + 6) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partition.substring(PREFIX.length()), SUFFIX);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Instant start(YearMonth month) {
+        return month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    record Partition(String name, boolean attached, boolean detachPending) {}
+}
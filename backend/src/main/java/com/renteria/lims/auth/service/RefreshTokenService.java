@@ -2,6 +2,7 @@ package com.renteria.lims.auth.service;
 
 import com.renteria.lims.auth.model.RefreshToken;
 import com.renteria.lims.auth.repository.RefreshTokenRepository;
+import com.renteria.lims.auth.security.RefreshTokenCodec;
 import com.renteria.lims.common.util.TokenUtils;
 import com.renteria.lims.config.JwtConfig;
 import org.slf4j.Logger;
@@ -10,6 +11,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -20,67 +22,86 @@ public class RefreshTokenService {
 
     private final RefreshTokenRepository refreshTokenRepository;
     private final JwtConfig jwtConfig;
+    private final RefreshTokenCodec refreshTokenCodec;
 
-    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, JwtConfig jwtConfig) {
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, JwtConfig jwtConfig,
+                               RefreshTokenCodec refreshTokenCodec) {
         this.refreshTokenRepository = refreshTokenRepository;
         this.jwtConfig = jwtConfig;
+        this.refreshTokenCodec = refreshTokenCodec;
     }
 
     @Transactional
     public RefreshTokenResult createRefreshToken(UUID userId) {
-        String rawToken = UUID.randomUUID().toString();
-        String tokenHash = TokenUtils.sha256Hex(rawToken);
+        UUID id = UUID.randomUUID();
+        Instant expiresAt = newExpiry();
+        String rawToken = refreshTokenCodec.issue(id, expiresAt);
+        byte[] tokenHash = TokenUtils.sha256(rawToken);
         UUID familyId = UUID.randomUUID();
-        Instant expiresAt = Instant.now().plusMillis(jwtConfig.getRefreshTokenExpiryMs());
 
-        RefreshToken refreshToken = new RefreshToken(userId, tokenHash, familyId, expiresAt);
+        RefreshToken refreshToken = new RefreshToken(id, userId, tokenHash, familyId, expiresAt);
         RefreshToken saved = refreshTokenRepository.save(refreshToken);
         
         log.debug("Created refresh token for user {} with family {}", userId, familyId);
         return new RefreshTokenResult(saved, rawToken);
     }
 
+    /**
+     * Rotates the presented token with a single conditional statement. Only the caller whose
+     * update actually flipped {@code revoked} gets a successor, so concurrent refreshes with the
+     * same cookie cannot both succeed. A token that was already revoked before this statement
+     * started is reuse and revokes its family; one revoked by a concurrent rotation while this
+     * statement waited on the row lock just loses the race.
+     *
+     * <p>Tokens that fail signature or expiry checks are rejected before any query runs.
+     */
     @Transactional
     public Optional<RefreshTokenResult> rotateRefreshToken(String rawToken) {
-        String tokenHash = TokenUtils.sha256Hex(rawToken);
-        
-        Optional<RefreshToken> existingOpt = refreshTokenRepository.findByTokenHash(tokenHash);
-        if (existingOpt.isEmpty()) {
+        Optional<RefreshTokenCodec.Claims> claims = verify(rawToken);
+        if (claims.isEmpty()) {
+            log.warn("Refresh token rejected: malformed, forged or expired");
+            return Optional.empty();
+        }
+        return rotateRefreshToken(rawToken, claims.get());
+    }
+
+    /**
+     * Same as {@link #rotateRefreshToken(String)} for a token whose claims the caller already
+     * got from {@link #verify(String)}, so the MAC is only checked once per request.
+     */
+    @Transactional
+    public Optional<RefreshTokenResult> rotateRefreshToken(String rawToken, RefreshTokenCodec.Claims claims) {
+        byte[] tokenHash = TokenUtils.sha256(rawToken);
+        UUID newId = UUID.randomUUID();
+        Instant newExpiresAt = newExpiry();
+        String newRawToken = refreshTokenCodec.issue(newId, newExpiresAt);
+        byte[] newTokenHash = TokenUtils.sha256(newRawToken);
+
+        Optional<RefreshTokenRepository.RotationRow> rowOpt = refreshTokenRepository.rotate(
+            claims.id(), claims.expiresAt(), tokenHash, newId, newTokenHash, newExpiresAt);
+        if (rowOpt.isEmpty()) {
             log.warn("Refresh token not found");
             return Optional.empty();
         }
 
-        RefreshToken existing = existingOpt.get();
+        RefreshTokenRepository.RotationRow row = rowOpt.get();
 
-        if (existing.isRevoked()) {
-            log.warn("Refresh token reuse detected - revoking entire family {}", existing.getFamilyId());
-            revokeFamily(existing.getFamilyId());
-            return Optional.empty();
+        if (row.getNewTokenId() != null) {
+            RefreshToken rotated = new RefreshToken(
+                row.getNewTokenId(), row.getUserId(), newTokenHash, row.getFamilyId(), newExpiresAt);
+            log.debug("Rotated refresh token for user {}", row.getUserId());
+            return Optional.of(new RefreshTokenResult(rotated, newRawToken));
         }
 
-        if (!existing.isValid()) {
+        if (row.isRevoked()) {
+            log.warn("Refresh token reuse detected - revoking entire family {}", row.getFamilyId());
+            revokeFamily(row.getFamilyId());
+        } else if (row.isExpired()) {
             log.warn("Refresh token expired or invalid");
-            return Optional.empty();
+        } else {
+            log.debug("Refresh token for family {} was rotated by a concurrent request", row.getFamilyId());
         }
-
-        existing.setRevoked(true);
-        refreshTokenRepository.save(existing);
-
-        String newRawToken = UUID.randomUUID().toString();
-        String newTokenHash = TokenUtils.sha256Hex(newRawToken);
-        Instant newExpiresAt = Instant.now().plusMillis(jwtConfig.getRefreshTokenExpiryMs());
-
-        RefreshToken newToken = new RefreshToken(
-            existing.getUserId(),
-            newTokenHash,
-            existing.getFamilyId(),
-            newExpiresAt
-        );
-
-        RefreshToken saved = refreshTokenRepository.save(newToken);
-        log.debug("Rotated refresh token for user {}", existing.getUserId());
-        
-        return Optional.of(new RefreshTokenResult(saved, newRawToken));
+        return Optional.empty();
     }
 
     @Transactional
@@ -95,9 +116,25 @@ public class RefreshTokenService {
         log.info("Revoked {} tokens for user {}", revoked, userId);
     }
 
+    /**
+     * Cheap in-memory check that the token was issued by this service and has not expired;
+     * returns its claims, or empty otherwise.
+     */
+    public Optional<RefreshTokenCodec.Claims> verify(String rawToken) {
+        return refreshTokenCodec.verify(rawToken);
+    }
+
+    /**
+     * Hex form of the token hash, for in-memory keys; the database stores the raw bytes.
+     */
     public String getTokenHash(String rawToken) {
         return TokenUtils.sha256Hex(rawToken);
     }
 
+    // Second precision so the expiry embedded in the token matches the stored partition key
+    private Instant newExpiry() {
+        return Instant.now().plusMillis(jwtConfig.getRefreshTokenExpiryMs()).truncatedTo(ChronoUnit.SECONDS);
+    }
+
     public record RefreshTokenResult(RefreshToken token, String rawToken) {}
 }
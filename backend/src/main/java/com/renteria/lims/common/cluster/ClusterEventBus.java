@@ -0,0 +1,227 @@
+package com.renteria.lims.common.cluster;
+
+import com.renteria.lims.config.ClusterBusConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+/**
+ * Invalidation events for node-local caches. With the {@code postgres} backend an event is a
+ * {@code pg_notify} on the caller's connection, so it joins the current transaction and is only
+ * delivered once that commits; every node (including this one) keeps a single dedicated
+ * {@code LISTEN} connection and dispatches what arrives. Events arriving together are
+ * coalesced, and after a reconnect every subscriber is asked to re-sync because events may
+ * have been missed while disconnected.
+ *
+ * <p>The {@code local} backend dispatches in-process after commit and is meant for single-node
+ * deployments and tests.
+ */
+@Component
+public class ClusterEventBus implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterEventBus.class);
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]*");
+    private static final char SEPARATOR = '|';
+
+    private final ClusterBusConfig config;
+    private final DataSource dataSource;
+    private final DataSourceProperties dataSourceProperties;
+    private final boolean postgres;
+    private final Map<String, List<Listener>> listeners = new ConcurrentHashMap<>();
+    private final Counter received;
+    private final Counter reconnects;
+
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    public ClusterEventBus(ClusterBusConfig config, DataSource dataSource,
+                           DataSourceProperties dataSourceProperties, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.dataSource = dataSource;
+        this.dataSourceProperties = dataSourceProperties;
+        this.postgres = "postgres".equalsIgnoreCase(config.getBackend());
+        if (!CHANNEL.matcher(config.getChannel()).matches()) {
+            throw new IllegalArgumentException("Invalid cluster bus channel: " + config.getChannel());
+        }
+        this.received = Counter.builder("cluster.bus.received").register(meterRegistry);
+        this.reconnects = Counter.builder("cluster.bus.reconnects").register(meterRegistry);
+    }
+
+    public void subscribe(String topic, Listener listener) {
+        listeners.computeIfAbsent(topic, t -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * Publishes an event to every node once the current transaction commits, or immediately
+     * when there is none.
+     */
+    public void publish(String topic, String payload) {
+        if (topic.indexOf(SEPARATOR) >= 0) {
+            throw new IllegalArgumentException("Topic must not contain '" + SEPARATOR + "': " + topic);
+        }
+        String message = topic + SEPARATOR + payload;
+        if (postgres) {
+            new JdbcTemplate(dataSource).query("SELECT pg_notify(?, ?)",
+                (ResultSetExtractor<Void>) rs -> null, config.getChannel(), message);
+        } else if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(List.of(message));
+                }
+            });
+        } else {
+            dispatch(List.of(message));
+        }
+    }
+
+    /**
+     * Delivers a batch of raw messages, dropping duplicates so a burst of identical
+     * invalidations runs each handler once.
+     */
+    void dispatch(Collection<String> messages) {
+        for (String message : new LinkedHashSet<>(messages)) {
+            int split = message.indexOf(SEPARATOR);
+            if (split < 0) {
+                log.warn("Ignoring malformed cluster event");
+                continue;
+            }
+            String topic = message.substring(0, split);
+            String payload = message.substring(split + 1);
+            for (Listener listener : listeners.getOrDefault(topic, List.of())) {
+                try {
+                    listener.onEvent(payload);
+                } catch (RuntimeException e) {
+                    log.error("Cluster event handler for {} failed", topic, e);
+                }
+            }
+        }
+    }
+
+    void resyncAll() {
+        listeners.forEach((topic, topicListeners) -> topicListeners.forEach(listener -> {
+            try {
+                listener.onResync();
+            } catch (RuntimeException e) {
+                log.error("Cluster re-sync for {} failed", topic, e);
+            }
+        }));
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (postgres) {
+            listenerThread = new Thread(this::listenLoop, "cluster-bus-listener");
+            listenerThread.setDaemon(true);
+            listenerThread.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listenLoop() {
+        long backoff = config.getReconnectBackoffMs();
+        boolean connectedBefore = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + config.getChannel());
+                }
+                onListening(connectedBefore);
+                connectedBefore = true;
+                backoff = config.getReconnectBackoffMs();
+                poll(connection);
+            } catch (SQLException e) {
+                if (!running) {
+                    break;
+                }
+                log.warn("Cluster bus connection lost, retrying in {} ms: {}", backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                backoff = Math.min(backoff * 2, config.getMaxReconnectBackoffMs());
+            }
+        }
+    }
+
+    /**
+     * Re-syncs every subscriber once LISTEN is active, on the first connect as well as on
+     * reconnects: events published between a subscriber's initial load and the first LISTEN
+     * are never delivered.
+     */
+    void onListening(boolean reconnected) {
+        if (reconnected) {
+            reconnects.increment();
+            log.info("Cluster bus reconnected; re-syncing subscribers");
+        }
+        resyncAll();
+    }
+
+    private void poll(Connection connection) throws SQLException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        long lastActivity = System.currentTimeMillis();
+        while (running) {
+            PGNotification[] notifications = pgConnection.getNotifications((int) config.getPollTimeoutMs());
+            long now = System.currentTimeMillis();
+            if (notifications != null && notifications.length > 0) {
+                lastActivity = now;
+                received.increment(notifications.length);
+                List<String> messages = new ArrayList<>(notifications.length);
+                for (PGNotification notification : notifications) {
+                    messages.add(notification.getParameter());
+                }
+                dispatch(messages);
+            } else if (now - lastActivity >= config.getKeepaliveMs()) {
+                // A silently dropped socket would otherwise look like a quiet channel forever
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SELECT 1");
+                }
+                lastActivity = now;
+            }
+        }
+    }
+
+    public interface Listener {
+
+        void onEvent(String payload);
+
+        /** Called after events may have been missed; reload from the source of truth. */
+        default void onResync() {}
+    }
+}
@@ -0,0 +1,19 @@
+package com.renteria.lims.common.exception;
+
+/**
+ * Thrown when a bounded resource is saturated and the request should be retried later
+ * instead of queueing behind it. Mapped to 503 with a {@code Retry-After} header.
+ */
+public class ServiceBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
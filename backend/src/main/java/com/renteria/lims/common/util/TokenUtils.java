@@ -6,18 +6,34 @@ import java.security.NoSuchAlgorithmException;
 import java.util.HexFormat;
 
 public final class TokenUtils {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    // MessageDigest is not thread-safe but is reusable: digest() resets it for the next call
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    });
     
     private TokenUtils() {
         // Utility class
     }
 
+    /**
+     * Raw 32-byte SHA-256 of the input; this is what gets stored in {@code token_hash} columns.
+     */
+    public static byte[] sha256(byte[] input) {
+        return SHA_256.get().digest(input);
+    }
+
+    public static byte[] sha256(String input) {
+        return sha256(input.getBytes(StandardCharsets.UTF_8));
+    }
+
     public static String sha256Hex(String input) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(input.getBytes(StandardCharsets.UTF_8));
-            return HexFormat.of().formatHex(hash);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("SHA-256 algorithm not available", e);
-        }
+        return HEX.formatHex(sha256(input));
     }
 }
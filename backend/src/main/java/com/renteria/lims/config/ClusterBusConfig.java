@@ -0,0 +1,64 @@
+package com.renteria.lims.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.cluster-bus")
+public class ClusterBusConfig {
+    
+    private String backend = "local";
+    private String channel = "lims_invalidation";
+    private long pollTimeoutMs = 500;
+    private long keepaliveMs = 30_000;
+    private long reconnectBackoffMs = 1_000;
+    private long maxReconnectBackoffMs = 30_000;
+    
+    public String getBackend() {
+        return backend;
+    }
+    
+    public void setBackend(String backend) {
+        this.backend = backend;
+    }
+    
+    public String getChannel() {
+        return channel;
+    }
+    
+    public void setChannel(String channel) {
+        this.channel = channel;
+    }
+    
+    public long getPollTimeoutMs() {
+        return pollTimeoutMs;
+    }
+    
+    public void setPollTimeoutMs(long pollTimeoutMs) {
+        this.pollTimeoutMs = pollTimeoutMs;
+    }
+    
+    public long getKeepaliveMs() {
+        return keepaliveMs;
+    }
+    
+    public void setKeepaliveMs(long keepaliveMs) {
+        this.keepaliveMs = keepaliveMs;
+    }
+    
+    public long getReconnectBackoffMs() {
+        return reconnectBackoffMs;
+    }
+    
+    public void setReconnectBackoffMs(long reconnectBackoffMs) {
+        this.reconnectBackoffMs = reconnectBackoffMs;
+    }
+    
+    public long getMaxReconnectBackoffMs() {
+        return maxReconnectBackoffMs;
+    }
+    
+    public void setMaxReconnectBackoffMs(long maxReconnectBackoffMs) {
+        this.maxReconnectBackoffMs = maxReconnectBackoffMs;
+    }
+}
@@ -9,6 +9,18 @@ public class EmailConfig {
     
     private String from;
     private String frontendUrl;
+    private boolean outboxEnabled = true;
+    private int outboxBatchSize = 50;
+    private int outboxMaxBatchesPerRun = 20;
+    private int outboxMaxAttempts = 8;
+    private long outboxBackoffMs = 30_000;
+    private long outboxMaxBackoffMs = 3_600_000;
+    private long outboxLeaseMs = 300_000;
+    private long outboxRetentionMs = 604_800_000;
+    private int smtpMaxConnections = 4;
+    private int smtpMaxMessagesPerConnection = 100;
+    private long smtpIdleTimeoutMs = 60_000;
+    private long smtpAcquireTimeoutMs = 10_000;
     
     public String getFrom() {
         return from;
@@ -25,4 +37,100 @@ public class EmailConfig {
     public void setFrontendUrl(String frontendUrl) {
         this.frontendUrl = frontendUrl;
     }
+    
+    public boolean isOutboxEnabled() {
+        return outboxEnabled;
+    }
+    
+    public void setOutboxEnabled(boolean outboxEnabled) {
+        this.outboxEnabled = outboxEnabled;
+    }
+    
+    public int getOutboxBatchSize() {
+        return outboxBatchSize;
+    }
+    
+    public void setOutboxBatchSize(int outboxBatchSize) {
+        this.outboxBatchSize = outboxBatchSize;
+    }
+    
+    public int getOutboxMaxBatchesPerRun() {
+        return outboxMaxBatchesPerRun;
+    }
+    
+    public void setOutboxMaxBatchesPerRun(int outboxMaxBatchesPerRun) {
+        this.outboxMaxBatchesPerRun = outboxMaxBatchesPerRun;
+    }
+    
+    public int getOutboxMaxAttempts() {
+        return outboxMaxAttempts;
+    }
+    
+    public void setOutboxMaxAttempts(int outboxMaxAttempts) {
+        this.outboxMaxAttempts = outboxMaxAttempts;
+    }
+    
+    public long getOutboxBackoffMs() {
+        return outboxBackoffMs;
+    }
+    
+    public void setOutboxBackoffMs(long outboxBackoffMs) {
+        this.outboxBackoffMs = outboxBackoffMs;
+    }
+    
+    public long getOutboxMaxBackoffMs() {
+        return outboxMaxBackoffMs;
+    }
+    
+    public void setOutboxMaxBackoffMs(long outboxMaxBackoffMs) {
+        this.outboxMaxBackoffMs = outboxMaxBackoffMs;
+    }
+    
+    public long getOutboxLeaseMs() {
+        return outboxLeaseMs;
+    }
+    
+    public void setOutboxLeaseMs(long outboxLeaseMs) {
+        this.outboxLeaseMs = outboxLeaseMs;
+    }
+    
+    public long getOutboxRetentionMs() {
+        return outboxRetentionMs;
+    }
+    
+    public void setOutboxRetentionMs(long outboxRetentionMs) {
+        this.outboxRetentionMs = outboxRetentionMs;
+    }
+    
+    public int getSmtpMaxConnections() {
+        return smtpMaxConnections;
+    }
+    
+    public void setSmtpMaxConnections(int smtpMaxConnections) {
+        this.smtpMaxConnections = smtpMaxConnections;
+    }
+    
+    public int getSmtpMaxMessagesPerConnection() {
+        return smtpMaxMessagesPerConnection;
+    }
+    
+    public void setSmtpMaxMessagesPerConnection(int smtpMaxMessagesPerConnection) {
+        this.smtpMaxMessagesPerConnection = smtpMaxMessagesPerConnection;
+    }
+    
+    public long getSmtpIdleTimeoutMs() {
+        return smtpIdleTimeoutMs;
+    }
+    
+    public void setSmtpIdleTimeoutMs(long smtpIdleTimeoutMs) {
+        this.smtpIdleTimeoutMs = smtpIdleTimeoutMs;
+    }
+    
+    public long getSmtpAcquireTimeoutMs() {
+        return smtpAcquireTimeoutMs;
+    }
+    
+    public void setSmtpAcquireTimeoutMs(long smtpAcquireTimeoutMs) {
+        this.smtpAcquireTimeoutMs = smtpAcquireTimeoutMs;
+    }
 }
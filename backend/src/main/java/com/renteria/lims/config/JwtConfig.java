@@ -10,6 +10,10 @@ public class JwtConfig {
     private String secret;
     private long accessTokenExpiryMs;
     private long refreshTokenExpiryMs;
+    private long verifiedCacheMaxSize = 10_000;
+    private long refreshGraceWindowMs = 5_000;
+    private long revocationRefreshMs = 60_000;
+    private double revocationFalsePositiveRate = 0.01;
     
     public String getSecret() {
         return secret;
@@ -34,4 +38,36 @@ public class JwtConfig {
     public void setRefreshTokenExpiryMs(long refreshTokenExpiryMs) {
         this.refreshTokenExpiryMs = refreshTokenExpiryMs;
     }
+    
+    public long getVerifiedCacheMaxSize() {
+        return verifiedCacheMaxSize;
+    }
+    
+    public void setVerifiedCacheMaxSize(long verifiedCacheMaxSize) {
+        this.verifiedCacheMaxSize = verifiedCacheMaxSize;
+    }
+    
+    public long getRefreshGraceWindowMs() {
+        return refreshGraceWindowMs;
+    }
+    
+    public void setRefreshGraceWindowMs(long refreshGraceWindowMs) {
+        this.refreshGraceWindowMs = refreshGraceWindowMs;
+    }
+    
+    public long getRevocationRefreshMs() {
+        return revocationRefreshMs;
+    }
+    
+    public void setRevocationRefreshMs(long revocationRefreshMs) {
+        this.revocationRefreshMs = revocationRefreshMs;
+    }
+    
+    public double getRevocationFalsePositiveRate() {
+        return revocationFalsePositiveRate;
+    }
+    
+    public void setRevocationFalsePositiveRate(double revocationFalsePositiveRate) {
+        this.revocationFalsePositiveRate = revocationFalsePositiveRate;
+    }
 }
@@ -0,0 +1,80 @@
+package com.renteria.lims.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.patient-import")
+public class PatientImportConfig {
+    
+    private int chunkSize = 500;
+    private int hashThreads = 0;
+    private int maxReportedErrors = 1_000;
+    private int temporaryPasswordHashCost = 6;
+    private long jobRetentionMs = 86_400_000;
+    private long jobHeartbeatMs = 60_000;
+    
+    public int getChunkSize() {
+        return chunkSize;
+    }
+    
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+    
+    /**
+     * Threads hashing temporary passwords; 0 means half the available processors, leaving
+     * the rest to live traffic.
+     */
+    public int getHashThreads() {
+        return hashThreads;
+    }
+    
+    public void setHashThreads(int hashThreads) {
+        this.hashThreads = hashThreads;
+    }
+    
+    public int getMaxReportedErrors() {
+        return maxReportedErrors;
+    }
+    
+    public void setMaxReportedErrors(int maxReportedErrors) {
+        this.maxReportedErrors = maxReportedErrors;
+    }
+    
+    /**
+     * BCrypt cost for the generated temporary passwords; 0 uses the login encoder's cost. The
+     * passwords are random (about 70 bits), so a low cost does not make them guessable, and
+     * login rehashes them at the full cost through {@code upgradeEncoding}.
+     */
+    public int getTemporaryPasswordHashCost() {
+        return temporaryPasswordHashCost;
+    }
+    
+    public void setTemporaryPasswordHashCost(int temporaryPasswordHashCost) {
+        this.temporaryPasswordHashCost = temporaryPasswordHashCost;
+    }
+    
+    /**
+     * How long a finished import's report stays available from the status endpoint.
+     */
+    public long getJobRetentionMs() {
+        return jobRetentionMs;
+    }
+    
+    public void setJobRetentionMs(long jobRetentionMs) {
+        this.jobRetentionMs = jobRetentionMs;
+    }
+    
+    /**
+     * How often the node running an import refreshes its heartbeat; a job whose heartbeat is
+     * five intervals old is marked failed.
+     */
+    public long getJobHeartbeatMs() {
+        return jobHeartbeatMs;
+    }
+    
+    public void setJobHeartbeatMs(long jobHeartbeatMs) {
+        this.jobHeartbeatMs = jobHeartbeatMs;
+    }
+}
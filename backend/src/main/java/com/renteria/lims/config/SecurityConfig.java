@@ -1,11 +1,24 @@
 package com.renteria.lims.config;
 
+import com.renteria.lims.auth.security.AuthThrottlingFilter;
+import com.renteria.lims.auth.security.BcryptCostCalibrator;
+import com.renteria.lims.auth.security.BoundedPasswordEncoder;
 import com.renteria.lims.auth.security.JwtAuthenticationFilter;
+import com.renteria.lims.auth.security.PreloadedUserAuthenticationProvider;
+import com.renteria.lims.auth.security.RequiresPermissionInterceptor;
+import com.renteria.lims.user.service.PermissionRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.Advisor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
-import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -13,10 +26,14 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.time.Duration;
+import java.util.Map;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
@@ -31,7 +48,7 @@ public class SecurityConfig {
     }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, AuthenticationProvider authenticationProvider) throws Exception {
         http
             .csrf(AbstractHttpConfigurer::disable)
             .cors(cors -> {})
@@ -43,18 +60,43 @@ public class SecurityConfig {
                 .requestMatchers("/actuator/health").permitAll()
                 .anyRequest().authenticated()
             )
-            .authenticationProvider(authenticationProvider())
+            .authenticationProvider(authenticationProvider)
             .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
 
+    // Registered as a servlet filter ahead of springSecurityFilterChain so throttled requests
+    // are rejected before security, transactions or BCrypt get involved
+    @Bean
+    public FilterRegistrationBean<AuthThrottlingFilter> authThrottlingFilter(SecurityConfigProps securityConfigProps,
+                                                                             ObjectMapper objectMapper,
+                                                                             MeterRegistry meterRegistry) {
+        FilterRegistrationBean<AuthThrottlingFilter> registration = new FilterRegistrationBean<>(
+            new AuthThrottlingFilter(securityConfigProps, objectMapper.getFactory(), meterRegistry));
+        registration.addUrlPatterns("/api/v1/auth/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    // Infrastructure role so the auto-proxy creator applies it; static and lazy on the registry
+    // so creating the interceptor does not pull the repository layer in early. As a bean post
+    // processor it validates every @RequiresPermission when the guarded bean is created.
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static RequiresPermissionInterceptor requiresPermissionInterceptor(ObjectProvider<PermissionRegistry> permissionRegistry) {
+        return new RequiresPermissionInterceptor(permissionRegistry::getObject);
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor requiresPermissionAdvisor(RequiresPermissionInterceptor requiresPermissionInterceptor) {
+        return RequiresPermissionInterceptor.advisor(requiresPermissionInterceptor);
+    }
+
     @Bean
-    public AuthenticationProvider authenticationProvider() {
-        DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
-        authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
-        return authProvider;
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
+        return new PreloadedUserAuthenticationProvider(userDetailsService, passwordEncoder);
     }
 
     @Bean
@@ -63,7 +105,24 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12);
+    public PasswordEncoder passwordEncoder(SecurityConfigProps securityConfigProps, MeterRegistry meterRegistry) {
+        int cost = securityConfigProps.getPasswordHashCost() > 0
+            ? securityConfigProps.getPasswordHashCost()
+            : BcryptCostCalibrator.calibrate(Duration.ofMillis(securityConfigProps.getPasswordHashTargetMs()));
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(cost);
+
+        // New hashes are stored as {bcrypt}...; legacy unprefixed hashes still match and get
+        // flagged by upgradeEncoding so login can rehash them
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        // BCrypt runs off the request threads on a bounded pool; saturation surfaces as 503
+        return new BoundedPasswordEncoder(
+            delegating,
+            securityConfigProps.getPasswordHashThreads(),
+            securityConfigProps.getPasswordHashQueueCapacity(),
+            securityConfigProps.getPasswordHashRetryAfterSeconds(),
+            meterRegistry
+        );
     }
 }
@@ -11,6 +11,23 @@ public class SecurityConfigProps {
     private long lockoutDurationMs;
     private long passwordResetExpiryMs;
     private int maxResetTokensPerUser;
+    private long rateLimitMaxEntries = 100_000;
+    private long permissionCacheMaxSize = 50_000;
+    private long permissionCacheTtlMs = 600_000;
+    private boolean materializedPermissions = false;
+    private String rateLimitBackend = "local";
+    private long rateLimitSyncTokens = 2;
+    private long rateLimitSyncTimeoutMs = 500;
+    private long authThrottleIpLimit = 30;
+    private long authThrottleIpWindowSeconds = 60;
+    private long authThrottleEmailLimit = 10;
+    private long authThrottleEmailWindowSeconds = 900;
+    private long authThrottleGlobalPerSecond = 200;
+    private int passwordHashCost = 0;
+    private long passwordHashTargetMs = 150;
+    private int passwordHashThreads = 0;
+    private int passwordHashQueueCapacity = 32;
+    private long passwordHashRetryAfterSeconds = 2;
     
     public int getMaxLoginAttempts() {
         return maxLoginAttempts;
@@ -43,4 +60,143 @@ public class SecurityConfigProps {
     public void setMaxResetTokensPerUser(int maxResetTokensPerUser) {
         this.maxResetTokensPerUser = maxResetTokensPerUser;
     }
+    
+    /**
+     * Threads of the login hashing pool; 0 means one per available processor.
+     */
+    public int getPasswordHashThreads() {
+        return passwordHashThreads > 0 ? passwordHashThreads : Runtime.getRuntime().availableProcessors();
+    }
+    
+    public void setPasswordHashThreads(int passwordHashThreads) {
+        this.passwordHashThreads = passwordHashThreads;
+    }
+    
+    public int getPasswordHashQueueCapacity() {
+        return passwordHashQueueCapacity;
+    }
+    
+    public void setPasswordHashQueueCapacity(int passwordHashQueueCapacity) {
+        this.passwordHashQueueCapacity = passwordHashQueueCapacity;
+    }
+    
+    public long getPasswordHashRetryAfterSeconds() {
+        return passwordHashRetryAfterSeconds;
+    }
+    
+    public void setPasswordHashRetryAfterSeconds(long passwordHashRetryAfterSeconds) {
+        this.passwordHashRetryAfterSeconds = passwordHashRetryAfterSeconds;
+    }
+    
+    public int getPasswordHashCost() {
+        return passwordHashCost;
+    }
+    
+    public void setPasswordHashCost(int passwordHashCost) {
+        this.passwordHashCost = passwordHashCost;
+    }
+    
+    public long getPasswordHashTargetMs() {
+        return passwordHashTargetMs;
+    }
+    
+    public void setPasswordHashTargetMs(long passwordHashTargetMs) {
+        this.passwordHashTargetMs = passwordHashTargetMs;
+    }
+    
+    public long getRateLimitMaxEntries() {
+        return rateLimitMaxEntries;
+    }
+    
+    public void setRateLimitMaxEntries(long rateLimitMaxEntries) {
+        this.rateLimitMaxEntries = rateLimitMaxEntries;
+    }
+    
+    public String getRateLimitBackend() {
+        return rateLimitBackend;
+    }
+    
+    public void setRateLimitBackend(String rateLimitBackend) {
+        this.rateLimitBackend = rateLimitBackend;
+    }
+    
+    public long getRateLimitSyncTokens() {
+        return rateLimitSyncTokens;
+    }
+    
+    public void setRateLimitSyncTokens(long rateLimitSyncTokens) {
+        this.rateLimitSyncTokens = rateLimitSyncTokens;
+    }
+    
+    public long getRateLimitSyncTimeoutMs() {
+        return rateLimitSyncTimeoutMs;
+    }
+    
+    public void setRateLimitSyncTimeoutMs(long rateLimitSyncTimeoutMs) {
+        this.rateLimitSyncTimeoutMs = rateLimitSyncTimeoutMs;
+    }
+    
+    public long getAuthThrottleIpLimit() {
+        return authThrottleIpLimit;
+    }
+    
+    public void setAuthThrottleIpLimit(long authThrottleIpLimit) {
+        this.authThrottleIpLimit = authThrottleIpLimit;
+    }
+    
+    public long getAuthThrottleIpWindowSeconds() {
+        return authThrottleIpWindowSeconds;
+    }
+    
+    public void setAuthThrottleIpWindowSeconds(long authThrottleIpWindowSeconds) {
+        this.authThrottleIpWindowSeconds = authThrottleIpWindowSeconds;
+    }
+    
+    public long getAuthThrottleEmailLimit() {
+        return authThrottleEmailLimit;
+    }
+    
+    public void setAuthThrottleEmailLimit(long authThrottleEmailLimit) {
+        this.authThrottleEmailLimit = authThrottleEmailLimit;
+    }
+    
+    public long getAuthThrottleEmailWindowSeconds() {
+        return authThrottleEmailWindowSeconds;
+    }
+    
+    public void setAuthThrottleEmailWindowSeconds(long authThrottleEmailWindowSeconds) {
+        this.authThrottleEmailWindowSeconds = authThrottleEmailWindowSeconds;
+    }
+    
+    public long getAuthThrottleGlobalPerSecond() {
+        return authThrottleGlobalPerSecond;
+    }
+    
+    public void setAuthThrottleGlobalPerSecond(long authThrottleGlobalPerSecond) {
+        this.authThrottleGlobalPerSecond = authThrottleGlobalPerSecond;
+    }
+    
+    public long getPermissionCacheMaxSize() {
+        return permissionCacheMaxSize;
+    }
+    
+    public void setPermissionCacheMaxSize(long permissionCacheMaxSize) {
+        this.permissionCacheMaxSize = permissionCacheMaxSize;
+    }
+    
+    public long getPermissionCacheTtlMs() {
+        return permissionCacheTtlMs;
+    }
+    
+    public void setPermissionCacheTtlMs(long permissionCacheTtlMs) {
+        this.permissionCacheTtlMs = permissionCacheTtlMs;
+    }
+    
+    public boolean isMaterializedPermissions() {
+        return materializedPermissions;
+    }
+    
+    public void setMaterializedPermissions(boolean materializedPermissions) {
+        this.materializedPermissions = materializedPermissions;
+    }
 }
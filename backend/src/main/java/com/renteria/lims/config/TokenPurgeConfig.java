@@ -0,0 +1,73 @@
+package com.renteria.lims.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.token-purge")
+public class TokenPurgeConfig {
+    
+    private boolean enabled = true;
+    private long retentionMs = 86_400_000;
+    private int batchSize = 5_000;
+    private long batchPauseMs = 100;
+    private int maxBatchesPerRun = 500;
+    private boolean refreshTokenPartitions = true;
+    private int partitionsAhead = 3;
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public long getRetentionMs() {
+        return retentionMs;
+    }
+    
+    public void setRetentionMs(long retentionMs) {
+        this.retentionMs = retentionMs;
+    }
+    
+    public int getBatchSize() {
+        return batchSize;
+    }
+    
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+    
+    public long getBatchPauseMs() {
+        return batchPauseMs;
+    }
+    
+    public void setBatchPauseMs(long batchPauseMs) {
+        this.batchPauseMs = batchPauseMs;
+    }
+    
+    public int getMaxBatchesPerRun() {
+        return maxBatchesPerRun;
+    }
+    
+    public void setMaxBatchesPerRun(int maxBatchesPerRun) {
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+    
+    public boolean isRefreshTokenPartitions() {
+        return refreshTokenPartitions;
+    }
+    
+    public void setRefreshTokenPartitions(boolean refreshTokenPartitions) {
+        this.refreshTokenPartitions = refreshTokenPartitions;
+    }
+    
+    public int getPartitionsAhead() {
+        return partitionsAhead;
+    }
+    
+    public void setPartitionsAhead(int partitionsAhead) {
+        this.partitionsAhead = partitionsAhead;
+    }
+}
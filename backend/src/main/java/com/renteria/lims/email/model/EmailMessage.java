@@ -0,0 +1,13 @@
+package com.renteria.lims.email.model;
+
+import java.util.Map;
+
+/**
+ * A templated email ready to render: the template, the recipient and the template variables.
+ */
+public record EmailMessage(EmailTemplate template, String to, Map<String, Object> variables) {
+
+    public EmailMessage {
+        variables = Map.copyOf(variables);
+    }
+}
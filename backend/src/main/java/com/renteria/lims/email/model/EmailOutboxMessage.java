@@ -0,0 +1,110 @@
+package com.renteria.lims.email.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Queued email. {@code payload} holds the template variables as JSON and is cleared once the
+ * message is sent, since it can contain reset tokens or temporary passwords.
+ */
+@Entity
+@Table(name = "email_outbox")
+public class EmailOutboxMessage {
+
+    public enum Status { PENDING, SENT, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 50)
+    private EmailTemplate template;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "sent_at")
+    private Instant sentAt;
+
+    public EmailOutboxMessage() {}
+
+    public EmailOutboxMessage(EmailTemplate template, String recipient, String payload) {
+        this.template = template;
+        this.recipient = recipient;
+        this.payload = payload;
+        this.nextAttemptAt = Instant.now();
+    }
+
+    /**
+     * Counts an attempt and hides the message from other dispatchers until {@code leaseUntil},
+     * so a node that dies mid-send only delays it.
+     */
+    public void lease(Instant leaseUntil) {
+        this.attempts++;
+        this.nextAttemptAt = leaseUntil;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public EmailTemplate getTemplate() {
+        return template;
+    }
+
+    public String getRecipient() {
+        return recipient;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public Instant getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getSentAt() {
+        return sentAt;
+    }
+}
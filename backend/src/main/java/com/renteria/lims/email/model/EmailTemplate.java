@@ -1,16 +1,22 @@
 package com.renteria.lims.email.model;
 
+import java.util.List;
+
 public enum EmailTemplate {
-    INITIAL_PASSWORD("initial-password", "Bienvenido a Laboratorio Renteria - Tu contraseña temporal"),
-    PASSWORD_RESET("password-reset", "Restablecer tu contraseña - Laboratorio Renteria"),
-    ACCOUNT_LOCKOUT("account-lockout", "Cuenta bloqueada por seguridad - Laboratorio Renteria");
+    INITIAL_PASSWORD("email/initial-password", "Bienvenido a Laboratorio Renteria - Tu contraseña temporal",
+        "temporaryPassword"),
+    PASSWORD_RESET("email/password-reset", "Restablecer tu contraseña - Laboratorio Renteria",
+        "resetToken", "resetUrl"),
+    ACCOUNT_LOCKOUT("email/account-lockout", "Cuenta bloqueada por seguridad - Laboratorio Renteria");
 
     private final String templateName;
     private final String subject;
+    private final List<String> recipientVariables;
 
-    EmailTemplate(String templateName, String subject) {
+    EmailTemplate(String templateName, String subject, String... recipientVariables) {
         this.templateName = templateName;
         this.subject = subject;
+        this.recipientVariables = List.of(recipientVariables);
     }
 
     public String getTemplateName() {
@@ -20,4 +26,11 @@ public enum EmailTemplate {
     public String getSubject() {
         return subject;
     }
+
+    /**
+     * Variables that differ per message; everything else in the template is rendered once.
+     */
+    public List<String> getRecipientVariables() {
+        return recipientVariables;
+    }
 }
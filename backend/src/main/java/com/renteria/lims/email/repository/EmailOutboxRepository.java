@@ -0,0 +1,61 @@
+package com.renteria.lims.email.repository;
+
+import com.renteria.lims.email.model.EmailOutboxMessage;
+import com.renteria.lims.email.model.EmailOutboxMessage.Status;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, UUID> {
+
+    /**
+     * Locks up to {@code limit} due messages, skipping rows another dispatcher already holds.
+     */
+    @Query(value = """
+        SELECT * FROM email_outbox
+        WHERE status = 'PENDING' AND next_attempt_at <= :now
+        ORDER BY next_attempt_at
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<EmailOutboxMessage> lockDue(@Param("now") Instant now, @Param("limit") int limit);
+
+    /**
+     * Records delivery of a batch in one statement and clears the payloads, which can hold
+     * reset tokens or temporary passwords.
+     */
+    @Modifying
+    @Query("""
+        UPDATE EmailOutboxMessage m
+        SET m.status = :status, m.sentAt = :sentAt, m.payload = null, m.lastError = null
+        WHERE m.id IN :ids
+        """)
+    int markSent(@Param("ids") Collection<UUID> ids, @Param("status") Status status, @Param("sentAt") Instant sentAt);
+
+    @Modifying
+    @Query("UPDATE EmailOutboxMessage m SET m.lastError = :error, m.nextAttemptAt = :retryAt WHERE m.id = :id")
+    int scheduleRetry(@Param("id") UUID id, @Param("error") String error, @Param("retryAt") Instant retryAt);
+
+    @Modifying
+    @Query("UPDATE EmailOutboxMessage m SET m.status = :status, m.lastError = :error, m.payload = null WHERE m.id = :id")
+    int markFailed(@Param("id") UUID id, @Param("status") Status status, @Param("error") String error);
+
+    @Modifying
+    @Query(value = """
+        DELETE FROM email_outbox
+        WHERE id IN (
+            SELECT id FROM email_outbox
+            WHERE status <> 'PENDING' AND created_at < :cutoff
+            LIMIT :batchSize
+        )
+        """, nativeQuery = true)
+    int deleteFinishedBatch(@Param("cutoff") Instant cutoff, @Param("batchSize") int batchSize);
+}
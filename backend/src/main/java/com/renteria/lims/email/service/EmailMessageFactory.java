@@ -0,0 +1,54 @@
+package com.renteria.lims.email.service;
+
+import com.renteria.lims.config.EmailConfig;
+import com.renteria.lims.email.model.EmailMessage;
+import com.renteria.lims.email.model.EmailTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Builds the variables of each email template, shared by direct SMTP delivery and the outbox.
+ * Messages carry only the per-recipient variables; {@link #staticVariables} holds the rest,
+ * which {@link EmailTemplateRenderer} renders once at startup.
+ */
+@Component
+public class EmailMessageFactory {
+
+    static final int RESET_EXPIRY_HOURS = 1;
+    static final int LOCKOUT_MINUTES = 15;
+
+    private final EmailConfig emailConfig;
+
+    public EmailMessageFactory(EmailConfig emailConfig) {
+        this.emailConfig = emailConfig;
+    }
+
+    public EmailMessage initialPassword(String to, String temporaryPassword) {
+        return new EmailMessage(EmailTemplate.INITIAL_PASSWORD, to, Map.of(
+            "temporaryPassword", temporaryPassword));
+    }
+
+    public EmailMessage passwordReset(String to, String resetToken) {
+        return new EmailMessage(EmailTemplate.PASSWORD_RESET, to, Map.of(
+            "resetToken", resetToken,
+            "resetUrl", emailConfig.getFrontendUrl() + "/reset-password?token=" + resetToken));
+    }
+
+    public EmailMessage accountLockout(String to) {
+        return new EmailMessage(EmailTemplate.ACCOUNT_LOCKOUT, to, Map.of());
+    }
+
+    /**
+     * Variables that are the same for every message of the template.
+     */
+    public Map<String, Object> staticVariables(EmailTemplate template) {
+        return switch (template) {
+            case INITIAL_PASSWORD -> Map.of("frontendUrl", emailConfig.getFrontendUrl());
+            case PASSWORD_RESET -> Map.of("expiryHours", RESET_EXPIRY_HOURS);
+            case ACCOUNT_LOCKOUT -> Map.of(
+                "frontendUrl", emailConfig.getFrontendUrl(),
+                "lockoutMinutes", LOCKOUT_MINUTES);
+        };
+    }
+}
@@ -0,0 +1,192 @@
+package com.renteria.lims.email.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.renteria.lims.common.util.StringUtils;
+import com.renteria.lims.config.EmailConfig;
+import com.renteria.lims.email.model.EmailMessage;
+import com.renteria.lims.email.model.EmailOutboxMessage;
+import com.renteria.lims.email.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Delivers queued emails. Each round claims a batch of due rows with
+ * {@code FOR UPDATE SKIP LOCKED} and leases them in a short transaction, sends them over one
+ * pooled SMTP connection with no database transaction held, then records the outcomes by id in
+ * a second short transaction.
+ * Failures are retried with exponential backoff until {@code outbox-max-attempts}, after which
+ * the message is marked {@code FAILED}. Safe to run on every node.
+ */
+@Service
+public class EmailOutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+    private static final TypeReference<Map<String, Object>> VARIABLES = new TypeReference<>() {};
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final EmailOutboxRepository outboxRepository;
+    private final SmtpEmailService smtpEmailService;
+    private final TransactionTemplate transactionTemplate;
+    private final EmailConfig config;
+    private final ObjectMapper objectMapper;
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter failed;
+
+    public EmailOutboxDispatcher(EmailOutboxRepository outboxRepository,
+                                 SmtpEmailService smtpEmailService,
+                                 TransactionTemplate transactionTemplate,
+                                 EmailConfig config,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.smtpEmailService = smtpEmailService;
+        this.transactionTemplate = transactionTemplate;
+        this.config = config;
+        this.objectMapper = objectMapper;
+        this.sent = Counter.builder("email.outbox.sent").register(meterRegistry);
+        this.retried = Counter.builder("email.outbox.retried").register(meterRegistry);
+        this.failed = Counter.builder("email.outbox.failed").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.email.outbox-poll-interval-ms:2000}")
+    public void scheduledDispatch() {
+        if (config.isOutboxEnabled()) {
+            dispatch();
+        }
+    }
+
+    /**
+     * Delivers due messages until none are left or {@code outbox-max-batches-per-run} is
+     * reached, and returns how many were attempted.
+     */
+    public int dispatch() {
+        int attempted = 0;
+        for (int i = 0; i < config.getOutboxMaxBatchesPerRun(); i++) {
+            List<EmailOutboxMessage> batch = claim();
+            if (batch.isEmpty()) {
+                break;
+            }
+            deliver(batch);
+            attempted += batch.size();
+            if (batch.size() < config.getOutboxBatchSize()) {
+                break;
+            }
+        }
+        return attempted;
+    }
+
+    @Scheduled(fixedDelayString = "${app.email.outbox-purge-interval-ms:3600000}", initialDelayString = "${app.email.outbox-purge-interval-ms:3600000}")
+    public void purgeFinished() {
+        Instant cutoff = Instant.now().minusMillis(config.getOutboxRetentionMs());
+        long total = 0;
+        Integer deleted;
+        do {
+            deleted = transactionTemplate.execute(status ->
+                outboxRepository.deleteFinishedBatch(cutoff, config.getOutboxBatchSize()));
+            total += deleted == null ? 0 : deleted;
+        } while (deleted != null && deleted == config.getOutboxBatchSize());
+        if (total > 0) {
+            log.info("Purged {} finished outbox emails older than {}", total, cutoff);
+        }
+    }
+
+    private List<EmailOutboxMessage> claim() {
+        return transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<EmailOutboxMessage> batch = outboxRepository.lockDue(now, config.getOutboxBatchSize());
+            batch.forEach(message -> message.lease(now.plusMillis(config.getOutboxLeaseMs())));
+            return batch;
+        });
+    }
+
+    private void deliver(List<EmailOutboxMessage> batch) {
+        List<EmailOutboxMessage> parsed = new ArrayList<>(batch.size());
+        List<EmailMessage> messages = new ArrayList<>(batch.size());
+        List<Failure> failures = new ArrayList<>();
+        for (EmailOutboxMessage message : batch) {
+            try {
+                Map<String, Object> variables = objectMapper.readValue(message.getPayload(), VARIABLES);
+                messages.add(new EmailMessage(message.getTemplate(), message.getRecipient(), variables));
+                parsed.add(message);
+            } catch (Exception e) {
+                failures.add(recordFailure(message, e));
+            }
+        }
+
+        List<Exception> results;
+        try {
+            results = smtpEmailService.sendAll(messages);
+        } catch (Exception e) {
+            results = Collections.nCopies(messages.size(), e);
+        }
+        List<UUID> sentIds = new ArrayList<>(parsed.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            EmailOutboxMessage message = parsed.get(i);
+            if (results.get(i) == null) {
+                sentIds.add(message.getId());
+                sent.increment();
+            } else {
+                failures.add(recordFailure(message, results.get(i)));
+            }
+        }
+
+        // The claimed entities are detached by now; update by id instead of merging them back
+        Instant sentAt = Instant.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sentIds.isEmpty()) {
+                outboxRepository.markSent(sentIds, EmailOutboxMessage.Status.SENT, sentAt);
+            }
+            for (Failure failure : failures) {
+                if (failure.retryAt() == null) {
+                    outboxRepository.markFailed(failure.id(), EmailOutboxMessage.Status.FAILED, failure.error());
+                } else {
+                    outboxRepository.scheduleRetry(failure.id(), failure.error(), failure.retryAt());
+                }
+            }
+        });
+    }
+
+    private Failure recordFailure(EmailOutboxMessage message, Exception e) {
+        Instant retryAt = retryAt(message.getAttempts());
+        if (retryAt == null) {
+            failed.increment();
+            log.error("Giving up on {} email to {} after {} attempts", message.getTemplate(),
+                StringUtils.maskEmail(message.getRecipient()), message.getAttempts(), e);
+        } else {
+            retried.increment();
+            log.warn("Failed to send {} email to {}, retrying at {}: {}", message.getTemplate(),
+                StringUtils.maskEmail(message.getRecipient()), retryAt, e.getMessage());
+        }
+        return new Failure(message.getId(), truncate(e.toString()), retryAt);
+    }
+
+    /** Next attempt after {@code attempts} failures, or {@code null} when out of attempts. */
+    Instant retryAt(int attempts) {
+        if (attempts >= config.getOutboxMaxAttempts()) {
+            return null;
+        }
+        long backoff = config.getOutboxBackoffMs() << Math.min(attempts - 1, 20);
+        return Instant.now().plus(Duration.ofMillis(Math.min(backoff, config.getOutboxMaxBackoffMs())));
+    }
+
+    private static String truncate(String error) {
+        return error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    private record Failure(UUID id, String error, Instant retryAt) {}
+}
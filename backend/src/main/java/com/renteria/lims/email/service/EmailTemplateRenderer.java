@@ -0,0 +1,129 @@
+package com.renteria.lims.email.service;
+
+import com.renteria.lims.email.model.EmailMessage;
+import com.renteria.lims.email.model.EmailTemplate;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+import org.unbescape.html.HtmlEscape;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Renders email bodies without running Thymeleaf per message. At startup each template is
+ * rendered once with its static variables and a marker in place of every recipient variable;
+ * the output is split at the markers into pre-encoded UTF-8 fragments. A send only escapes the
+ * recipient values and concatenates them between the fragments.
+ *
+ * <p>Every template is checked at startup against a full Thymeleaf render with probe values,
+ * so a template whose output depends on a recipient variable in any way other than printing it
+ * (e.g. {@code th:if}) fails the context instead of sending wrong emails.
+ */
+@Component
+public class EmailTemplateRenderer {
+
+    private static final String MARKER_PREFIX = "@@recipient:";
+    private static final String MARKER_SUFFIX = "@@";
+    private static final Pattern MARKER = Pattern.compile(
+        Pattern.quote(MARKER_PREFIX) + "(\\w+)" + Pattern.quote(MARKER_SUFFIX));
+
+    private final Map<EmailTemplate, CompiledTemplate> compiled = new EnumMap<>(EmailTemplate.class);
+
+    public EmailTemplateRenderer(ITemplateEngine templateEngine, EmailMessageFactory messageFactory) {
+        for (EmailTemplate template : EmailTemplate.values()) {
+            Map<String, Object> staticVariables = messageFactory.staticVariables(template);
+            CompiledTemplate compiledTemplate = compile(templateEngine, template, staticVariables);
+            verify(templateEngine, template, staticVariables, compiledTemplate);
+            compiled.put(template, compiledTemplate);
+        }
+    }
+
+    /**
+     * Returns the UTF-8 HTML body of the message.
+     *
+     * @throws IllegalArgumentException if a recipient variable of the template is missing
+     */
+    public byte[] render(EmailMessage message) {
+        return compiled.get(message.template()).render(message.variables());
+    }
+
+    private static CompiledTemplate compile(ITemplateEngine templateEngine, EmailTemplate template,
+                                            Map<String, Object> staticVariables) {
+        Context context = new Context();
+        context.setVariables(staticVariables);
+        for (String variable : template.getRecipientVariables()) {
+            context.setVariable(variable, MARKER_PREFIX + variable + MARKER_SUFFIX);
+        }
+        String html = templateEngine.process(template.getTemplateName(), context);
+
+        List<byte[]> fragments = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+        Matcher matcher = MARKER.matcher(html);
+        int start = 0;
+        while (matcher.find()) {
+            fragments.add(html.substring(start, matcher.start()).getBytes(StandardCharsets.UTF_8));
+            slots.add(matcher.group(1));
+            start = matcher.end();
+        }
+        fragments.add(html.substring(start).getBytes(StandardCharsets.UTF_8));
+
+        Set<String> missing = new LinkedHashSet<>(template.getRecipientVariables());
+        slots.forEach(missing::remove);
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Email template " + template + " does not render " + missing);
+        }
+        return new CompiledTemplate(template, fragments.toArray(byte[][]::new), slots.toArray(String[]::new));
+    }
+
+    private static void verify(ITemplateEngine templateEngine, EmailTemplate template,
+                               Map<String, Object> staticVariables, CompiledTemplate compiledTemplate) {
+        Map<String, Object> variables = new HashMap<>(staticVariables);
+        for (String variable : template.getRecipientVariables()) {
+            variables.put(variable, "<probe & \"" + variable + "\" 'ñ'>");
+        }
+        Context context = new Context();
+        context.setVariables(variables);
+        String expected = templateEngine.process(template.getTemplateName(), context);
+        String actual = new String(compiledTemplate.render(variables), StandardCharsets.UTF_8);
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException("Email template " + template
+                + " cannot be pre-rendered: its output depends on recipient variables beyond printing them");
+        }
+    }
+
+    private record CompiledTemplate(EmailTemplate template, byte[][] fragments, String[] slots) {
+
+        byte[] render(Map<String, ?> variables) {
+            byte[][] values = new byte[slots.length][];
+            int size = 0;
+            for (byte[] fragment : fragments) {
+                size += fragment.length;
+            }
+            for (int i = 0; i < slots.length; i++) {
+                Object value = variables.get(slots[i]);
+                if (value == null) {
+                    throw new IllegalArgumentException("Missing variable " + slots[i] + " for " + template);
+                }
+                values[i] = HtmlEscape.escapeHtml4Xml(value.toString()).getBytes(StandardCharsets.UTF_8);
+                size += values[i].length;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+            for (int i = 0; i < slots.length; i++) {
+                out.writeBytes(fragments[i]);
+                out.writeBytes(values[i]);
+            }
+            out.writeBytes(fragments[slots.length]);
+            return out.toByteArray();
+        }
+    }
+}
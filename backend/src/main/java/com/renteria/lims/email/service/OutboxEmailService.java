@@ -0,0 +1,79 @@
+package com.renteria.lims.email.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.renteria.lims.common.util.StringUtils;
+import com.renteria.lims.email.model.EmailMessage;
+import com.renteria.lims.email.model.EmailOutboxMessage;
+import com.renteria.lims.email.repository.EmailOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+
+/**
+ * Default {@link EmailService}: writes the message to {@code email_outbox} in the caller's
+ * transaction and returns without talking to SMTP. The message is only delivered if that
+ * transaction commits; {@link EmailOutboxDispatcher} sends it in the background.
+ */
+@Primary
+@Service
+public class OutboxEmailService implements EmailService {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxEmailService.class);
+
+    private final EmailOutboxRepository outboxRepository;
+    private final EmailMessageFactory messageFactory;
+    private final ObjectMapper objectMapper;
+
+    public OutboxEmailService(EmailOutboxRepository outboxRepository, EmailMessageFactory messageFactory,
+                              ObjectMapper objectMapper) {
+        this.outboxRepository = outboxRepository;
+        this.messageFactory = messageFactory;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    @Transactional
+    public void sendInitialPassword(String to, String temporaryPassword) {
+        enqueue(messageFactory.initialPassword(to, temporaryPassword));
+    }
+
+    @Override
+    @Transactional
+    public void sendPasswordReset(String to, String resetToken) {
+        enqueue(messageFactory.passwordReset(to, resetToken));
+    }
+
+    @Override
+    @Transactional
+    public void sendAccountLockout(String to) {
+        enqueue(messageFactory.accountLockout(to));
+    }
+
+    /**
+     * Queues several messages in the caller's transaction; used by bulk jobs.
+     */
+    @Transactional
+    public void enqueueAll(Collection<EmailMessage> messages) {
+        outboxRepository.saveAll(messages.stream().map(this::toOutboxMessage).toList());
+        log.debug("Queued {} emails", messages.size());
+    }
+
+    private void enqueue(EmailMessage message) {
+        outboxRepository.save(toOutboxMessage(message));
+        log.debug("Queued {} email for: {}", message.template(), StringUtils.maskEmail(message.to()));
+    }
+
+    private EmailOutboxMessage toOutboxMessage(EmailMessage message) {
+        try {
+            return new EmailOutboxMessage(message.template(), message.to(),
+                objectMapper.writeValueAsString(message.variables()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Email variables are not serializable", e);
+        }
+    }
+}
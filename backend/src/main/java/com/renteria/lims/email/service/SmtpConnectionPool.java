@@ -0,0 +1,215 @@
+package com.renteria.lims.email.service;
+
+import com.renteria.lims.config.EmailConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps authenticated SMTP sessions open between sends. {@link JavaMailSenderImpl#send} opens,
+ * handshakes and quits a connection per call; here a batch borrows one connection and sends
+ * every message over it. At most {@code smtp-max-connections} are in use at once, idle ones
+ * are validated with NOOP before reuse and closed after {@code smtp-idle-timeout-ms}, and a
+ * connection is retired after {@code smtp-max-messages-per-connection} messages.
+ */
+@Component
+public class SmtpConnectionPool implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SmtpConnectionPool.class);
+
+    private final JavaMailSenderImpl mailSender;
+    private final EmailConfig config;
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final Timer sendSuccess;
+    private final Timer sendFailure;
+    private final Timer connectTimer;
+    private final Counter opened;
+
+    public SmtpConnectionPool(JavaMailSenderImpl mailSender, EmailConfig config, MeterRegistry meterRegistry) {
+        this.mailSender = mailSender;
+        this.config = config;
+        this.permits = new Semaphore(config.getSmtpMaxConnections(), true);
+        this.sendSuccess = Timer.builder("email.smtp.send").tag("outcome", "success").register(meterRegistry);
+        this.sendFailure = Timer.builder("email.smtp.send").tag("outcome", "failure").register(meterRegistry);
+        this.connectTimer = Timer.builder("email.smtp.connect").register(meterRegistry);
+        this.opened = Counter.builder("email.smtp.connections.opened").register(meterRegistry);
+        Gauge.builder("email.smtp.connections", idle, Deque::size).tag("state", "idle").register(meterRegistry);
+        Gauge.builder("email.smtp.connections", inUse, AtomicInteger::get).tag("state", "in-use").register(meterRegistry);
+    }
+
+    /**
+     * Sends the messages in order over a single pooled connection, replacing it only if it
+     * drops mid-batch. Returns one entry per message: {@code null} when the server accepted
+     * it, otherwise the failure. Throws only when no connection slot frees up in time.
+     */
+    public List<Exception> sendAll(List<MimeMessage> messages) throws MessagingException {
+        if (messages.isEmpty()) {
+            return List.of();
+        }
+        acquirePermit();
+        List<Exception> results = new ArrayList<>(messages.size());
+        PooledConnection connection = null;
+        try {
+            for (MimeMessage message : messages) {
+                if (connection != null && connection.sent >= config.getSmtpMaxMessagesPerConnection()) {
+                    close(connection);
+                    connection = null;
+                }
+                if (connection == null) {
+                    try {
+                        connection = obtain();
+                    } catch (MessagingException e) {
+                        // Server unreachable: don't pay a connect timeout for every remaining message
+                        results.addAll(Collections.nCopies(messages.size() - results.size(), e));
+                        break;
+                    }
+                }
+                try {
+                    send(connection, message);
+                    results.add(null);
+                } catch (MessagingException e) {
+                    results.add(e);
+                    if (!connection.transport.isConnected()) {
+                        close(connection);
+                        connection = null;
+                    }
+                }
+            }
+        } finally {
+            if (connection != null) {
+                release(connection);
+            }
+            permits.release();
+            inUse.decrementAndGet();
+        }
+        return results;
+    }
+
+    @Scheduled(fixedDelayString = "${app.email.smtp-idle-timeout-ms:60000}")
+    public void evictIdle() {
+        long cutoff = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(config.getSmtpIdleTimeoutMs());
+        for (PooledConnection connection : idle) {
+            if (connection.lastUsed - cutoff < 0 && idle.remove(connection)) {
+                close(connection);
+            }
+        }
+    }
+
+    /** Closes every idle connection; borrowed ones are closed or returned by their batch. */
+    public void closeIdle() {
+        PooledConnection connection;
+        while ((connection = idle.poll()) != null) {
+            close(connection);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        closeIdle();
+    }
+
+    private void acquirePermit() throws MessagingException {
+        try {
+            if (!permits.tryAcquire(config.getSmtpAcquireTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("No SMTP connection available within "
+                    + config.getSmtpAcquireTimeoutMs() + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted waiting for an SMTP connection", e);
+        }
+        inUse.incrementAndGet();
+    }
+
+    private PooledConnection obtain() throws MessagingException {
+        long cutoff = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(config.getSmtpIdleTimeoutMs());
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            // isConnected() issues a NOOP, so a session the server already dropped is caught here
+            if (connection.lastUsed - cutoff >= 0 && connection.transport.isConnected()) {
+                return connection;
+            }
+            close(connection);
+        }
+        return connect();
+    }
+
+    private PooledConnection connect() throws MessagingException {
+        long start = System.nanoTime();
+        Transport transport = mailSender.getSession().getTransport(
+            mailSender.getProtocol() != null ? mailSender.getProtocol() : "smtp");
+        String username = emptyToNull(mailSender.getUsername());
+        String password = emptyToNull(mailSender.getPassword());
+        transport.connect(mailSender.getHost(), mailSender.getPort(), username, password);
+        connectTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        opened.increment();
+        log.debug("Opened SMTP connection to {}:{}", mailSender.getHost(), mailSender.getPort());
+        return new PooledConnection(transport);
+    }
+
+    private void send(PooledConnection connection, MimeMessage message) throws MessagingException {
+        long start = System.nanoTime();
+        try {
+            message.saveChanges();
+            connection.transport.sendMessage(message, message.getAllRecipients());
+            connection.sent++;
+            sendSuccess.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } catch (MessagingException e) {
+            sendFailure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private void release(PooledConnection connection) {
+        if (connection.sent >= config.getSmtpMaxMessagesPerConnection()) {
+            close(connection);
+            return;
+        }
+        connection.lastUsed = System.nanoTime();
+        // Most recently used first, so surplus connections age out under light load
+        idle.offerFirst(connection);
+    }
+
+    private static void close(PooledConnection connection) {
+        try {
+            connection.transport.close();
+        } catch (MessagingException e) {
+            log.debug("Error closing SMTP connection: {}", e.getMessage());
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static final class PooledConnection {
+        private final Transport transport;
+        private int sent;
+        private long lastUsed = System.nanoTime();
+
+        private PooledConnection(Transport transport) {
+            this.transport = transport;
+        }
+    }
+}
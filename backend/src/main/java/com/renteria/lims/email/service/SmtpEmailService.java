@@ -2,91 +2,120 @@ package com.renteria.lims.email.service;
 
 import com.renteria.lims.common.util.StringUtils;
 import com.renteria.lims.config.EmailConfig;
-import com.renteria.lims.email.model.EmailTemplate;
+import com.renteria.lims.email.model.EmailMessage;
+import jakarta.activation.DataHandler;
+import jakarta.mail.Message;
 import jakarta.mail.MessagingException;
+import jakarta.mail.internet.InternetAddress;
 import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.util.ByteArrayDataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Renders and sends emails over SMTP on the calling thread, reusing connections from
+ * {@link SmtpConnectionPool}. Application code goes through
+ * {@link OutboxEmailService}; this is the delivery side used by {@link EmailOutboxDispatcher}.
+ */
 @Service
 public class SmtpEmailService implements EmailService {
 
     private static final Logger log = LoggerFactory.getLogger(SmtpEmailService.class);
 
     private final JavaMailSender mailSender;
-    private final TemplateEngine templateEngine;
+    private final EmailTemplateRenderer templateRenderer;
     private final EmailConfig emailConfig;
+    private final EmailMessageFactory messageFactory;
+    private final SmtpConnectionPool connectionPool;
 
-    public SmtpEmailService(JavaMailSender mailSender, TemplateEngine templateEngine, EmailConfig emailConfig) {
+    public SmtpEmailService(JavaMailSender mailSender, EmailTemplateRenderer templateRenderer, EmailConfig emailConfig,
+                            EmailMessageFactory messageFactory, SmtpConnectionPool connectionPool) {
         this.mailSender = mailSender;
-        this.templateEngine = templateEngine;
+        this.templateRenderer = templateRenderer;
         this.emailConfig = emailConfig;
+        this.messageFactory = messageFactory;
+        this.connectionPool = connectionPool;
     }
 
     @Override
     public void sendInitialPassword(String to, String temporaryPassword) {
-        Context context = new Context();
-        context.setVariable("temporaryPassword", temporaryPassword);
-        context.setVariable("frontendUrl", emailConfig.getFrontendUrl());
-
-        String htmlContent = templateEngine.process(EmailTemplate.INITIAL_PASSWORD.getTemplateName(), context);
-        
-        try {
-            sendHtmlEmail(to, EmailTemplate.INITIAL_PASSWORD.getSubject(), htmlContent);
-            log.info("Initial password email sent to: {}", StringUtils.maskEmail(to));
-        } catch (Exception e) {
-            log.error("Failed to send initial password email to: {}", StringUtils.maskEmail(to), e);
-            throw new RuntimeException("Failed to send initial password email", e);
-        }
+        sendOrThrow(messageFactory.initialPassword(to, temporaryPassword));
     }
 
     @Override
     public void sendPasswordReset(String to, String resetToken) {
-        Context context = new Context();
-        context.setVariable("resetToken", resetToken);
-        context.setVariable("resetUrl", emailConfig.getFrontendUrl() + "/reset-password?token=" + resetToken);
-        context.setVariable("expiryHours", 1);
-
-        String htmlContent = templateEngine.process(EmailTemplate.PASSWORD_RESET.getTemplateName(), context);
-        
-        try {
-            sendHtmlEmail(to, EmailTemplate.PASSWORD_RESET.getSubject(), htmlContent);
-            log.info("Password reset email sent to: {}", StringUtils.maskEmail(to));
-        } catch (Exception e) {
-            log.error("Failed to send password reset email to: {}", StringUtils.maskEmail(to), e);
-            throw new RuntimeException("Failed to send password reset email", e);
-        }
+        sendOrThrow(messageFactory.passwordReset(to, resetToken));
     }
 
     @Override
     public void sendAccountLockout(String to) {
-        Context context = new Context();
-        context.setVariable("frontendUrl", emailConfig.getFrontendUrl());
-        context.setVariable("lockoutMinutes", 15);
+        sendOrThrow(messageFactory.accountLockout(to));
+    }
+
+    /**
+     * Renders and sends one message, propagating any rendering or SMTP failure.
+     */
+    public void send(EmailMessage message) throws MessagingException {
+        Exception failure = sendAll(List.of(message)).get(0);
+        if (failure instanceof MessagingException e) {
+            throw e;
+        }
+        if (failure != null) {
+            throw new MessagingException("Failed to send " + message.template() + " email", failure);
+        }
+    }
+
+    /**
+     * Renders the messages and sends them over one pooled SMTP connection. Returns one entry per
+     * message: {@code null} when it was accepted, otherwise why it was not.
+     */
+    public List<Exception> sendAll(List<EmailMessage> messages) throws MessagingException {
+        Exception[] results = new Exception[messages.size()];
+        List<MimeMessage> rendered = new ArrayList<>(messages.size());
+        List<Integer> renderedIndexes = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            try {
+                rendered.add(render(messages.get(i)));
+                renderedIndexes.add(i);
+            } catch (Exception e) {
+                results[i] = e;
+            }
+        }
+        List<Exception> sent = connectionPool.sendAll(rendered);
+        for (int i = 0; i < sent.size(); i++) {
+            results[renderedIndexes.get(i)] = sent.get(i);
+        }
+        for (int i = 0; i < messages.size(); i++) {
+            if (results[i] == null) {
+                EmailMessage message = messages.get(i);
+                log.info("{} email sent to: {}", message.template(), StringUtils.maskEmail(message.to()));
+            }
+        }
+        return Arrays.asList(results);
+    }
 
-        String htmlContent = templateEngine.process(EmailTemplate.ACCOUNT_LOCKOUT.getTemplateName(), context);
-        
+    private void sendOrThrow(EmailMessage message) {
         try {
-            sendHtmlEmail(to, EmailTemplate.ACCOUNT_LOCKOUT.getSubject(), htmlContent);
-            log.info("Account lockout email sent to: {}", StringUtils.maskEmail(to));
+            send(message);
         } catch (Exception e) {
-            log.error("Failed to send account lockout email to: {}", StringUtils.maskEmail(to), e);
-            throw new RuntimeException("Failed to send account lockout email", e);
+            log.error("Failed to send {} email to: {}", message.template(), StringUtils.maskEmail(message.to()), e);
+            throw new RuntimeException("Failed to send " + message.template() + " email", e);
         }
     }
 
-    private void sendHtmlEmail(String to, String subject, String htmlContent) throws MessagingException {
-        MimeMessage message = mailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-        helper.setFrom(emailConfig.getFrom());
-        helper.setTo(to);
-        helper.setSubject(subject);
-        helper.setText(htmlContent, true);
-        mailSender.send(message);
+    private MimeMessage render(EmailMessage message) throws MessagingException {
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        mimeMessage.setFrom(new InternetAddress(emailConfig.getFrom()));
+        mimeMessage.setRecipient(Message.RecipientType.TO, new InternetAddress(message.to()));
+        mimeMessage.setSubject(message.template().getSubject(), "UTF-8");
+        mimeMessage.setDataHandler(new DataHandler(
+            new ByteArrayDataSource(templateRenderer.render(message), "text/html; charset=UTF-8")));
+        return mimeMessage;
     }
 }
@@ -0,0 +1,73 @@
+package com.renteria.lims.patient.controller;
+
+import com.renteria.lims.auth.security.JwtPrincipal;
+import com.renteria.lims.auth.security.RequiresPermission;
+import com.renteria.lims.patient.model.dto.PatientImportJobStatus;
+import com.renteria.lims.patient.model.dto.PatientPage;
+import com.renteria.lims.patient.service.PatientImportJobService;
+import com.renteria.lims.patient.service.PatientQueryService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/patients")
+public class PatientController {
+
+    private final PatientImportJobService patientImportJobService;
+    private final PatientQueryService patientQueryService;
+
+    public PatientController(PatientImportJobService patientImportJobService, PatientQueryService patientQueryService) {
+        this.patientImportJobService = patientImportJobService;
+        this.patientQueryService = patientQueryService;
+    }
+
+    /**
+     * Patients ordered by name. Pass the returned {@code nextCursor} back as {@code cursor}
+     * to get the following page.
+     */
+    @GetMapping
+    @RequiresPermission("PATIENT_LIST")
+    public ResponseEntity<PatientPage> listPatients(@RequestParam(required = false) String cursor,
+                                                    @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(patientQueryService.list(cursor, size));
+    }
+
+    /**
+     * Bulk onboarding from CSV ({@code email,first_name,last_name,id_type,id_number} plus
+     * optional {@code date_of_birth,blood_type,phone}). The import runs in the background:
+     * the response is 202 with the job, and {@code Location} points at its status.
+     */
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @RequiresPermission("PATIENT_CREATE")
+    public ResponseEntity<PatientImportJobStatus> importPatients(@RequestParam("file") MultipartFile file,
+                                                                 Authentication authentication) throws IOException {
+        JwtPrincipal principal = (JwtPrincipal) authentication.getPrincipal();
+        PatientImportJobStatus job = patientImportJobService.submit(file, principal.userId());
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+            .path("/{jobId}")
+            .buildAndExpand(job.jobId())
+            .toUri();
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+
+    /**
+     * Progress of an import and, once finished, its report: rows that failed are listed, the
+     * rest were imported. Only the user who submitted it, or an admin, can see it.
+     */
+    @GetMapping("/import/{jobId}")
+    @RequiresPermission("PATIENT_CREATE")
+    public ResponseEntity<PatientImportJobStatus> getImport(@PathVariable UUID jobId, Authentication authentication) {
+        JwtPrincipal principal = (JwtPrincipal) authentication.getPrincipal();
+        return patientImportJobService.find(jobId, principal.userId(), principal.role())
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,96 @@
+package com.renteria.lims.patient.model;
+
+import com.renteria.lims.patient.model.dto.PatientImportJobStatus.State;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Persisted state of a background patient import. {@code result} holds the
+ * {@code PatientImportResult} report as JSON once the job completes.
+ */
+@Entity
+@Table(name = "patient_import_jobs")
+public class PatientImportJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "submitted_by", nullable = false)
+    private UUID submittedBy;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private State state = State.QUEUED;
+
+    @Column(name = "submitted_at", nullable = false)
+    private Instant submittedAt;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    @Column(name = "heartbeat_at", nullable = false)
+    private Instant heartbeatAt;
+
+    @Column(name = "rows_processed", nullable = false)
+    private int rowsProcessed;
+
+    @Column(columnDefinition = "TEXT")
+    private String result;
+
+    @Column(length = 1000)
+    private String error;
+
+    public PatientImportJob() {}
+
+    public PatientImportJob(UUID submittedBy) {
+        this.submittedBy = submittedBy;
+        this.submittedAt = Instant.now();
+        this.heartbeatAt = submittedAt;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public UUID getSubmittedBy() {
+        return submittedBy;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public Instant getHeartbeatAt() {
+        return heartbeatAt;
+    }
+
+    public int getRowsProcessed() {
+        return rowsProcessed;
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
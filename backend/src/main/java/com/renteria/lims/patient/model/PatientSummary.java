@@ -0,0 +1,30 @@
+package com.renteria.lims.patient.model;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Listing row: {@code patient_profiles} joined to {@code users}, read as a projection so no
+ * {@code User} or {@code PatientProfile} entity (nor their one-to-one associations) is loaded.
+ */
+public interface PatientSummary {
+
+    UUID getUserId();
+
+    String getEmail();
+
+    String getFirstName();
+
+    String getLastName();
+
+    String getIdType();
+
+    String getIdNumber();
+
+    LocalDate getDateOfBirth();
+
+    boolean isActive();
+
+    Instant getCreatedAt();
+}
@@ -0,0 +1,22 @@
+package com.renteria.lims.patient.model.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record PatientImportJobStatus(
+    UUID jobId,
+    State state,
+    Instant submittedAt,
+    Instant startedAt,
+    Instant finishedAt,
+    int rowsProcessed,
+    PatientImportResult result,
+    String error
+) {
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
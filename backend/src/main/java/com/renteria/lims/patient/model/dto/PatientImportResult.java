@@ -0,0 +1,18 @@
+package com.renteria.lims.patient.model.dto;
+
+import java.util.List;
+
+public record PatientImportResult(
+    int totalRows,
+    int imported,
+    int failed,
+    List<RowError> errors,
+    boolean errorsTruncated
+) {
+    public record RowError(
+        int line,
+        String idType,
+        String idNumber,
+        String message
+    ) {}
+}
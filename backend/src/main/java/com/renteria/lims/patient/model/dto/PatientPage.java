@@ -0,0 +1,13 @@
+package com.renteria.lims.patient.model.dto;
+
+import com.renteria.lims.patient.model.PatientSummary;
+
+import java.util.List;
+
+/**
+ * One page of the patient listing; {@code nextCursor} is null on the last page.
+ */
+public record PatientPage(
+    List<PatientSummary> items,
+    String nextCursor
+) {}
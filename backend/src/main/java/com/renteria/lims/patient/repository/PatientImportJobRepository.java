@@ -0,0 +1,61 @@
+package com.renteria.lims.patient.repository;
+
+import com.renteria.lims.patient.model.PatientImportJob;
+import com.renteria.lims.patient.model.dto.PatientImportJobStatus.State;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * State changes are single-statement updates by id, so the worker never holds a managed
+ * entity across an import.
+ */
+@Repository
+public interface PatientImportJobRepository extends JpaRepository<PatientImportJob, UUID> {
+
+    @Modifying
+    @Query("""
+        UPDATE PatientImportJob j SET j.state = :state, j.startedAt = :now, j.heartbeatAt = :now
+        WHERE j.id = :id
+        """)
+    int markRunning(@Param("id") UUID id, @Param("state") State state, @Param("now") Instant now);
+
+    @Modifying
+    @Query("UPDATE PatientImportJob j SET j.rowsProcessed = :rows, j.heartbeatAt = :now WHERE j.id = :id")
+    int recordProgress(@Param("id") UUID id, @Param("rows") int rows, @Param("now") Instant now);
+
+    @Modifying
+    @Query("""
+        UPDATE PatientImportJob j
+        SET j.state = :state, j.rowsProcessed = :rows, j.result = :result, j.error = :error,
+            j.finishedAt = :now, j.heartbeatAt = :now
+        WHERE j.id = :id
+        """)
+    int markFinished(@Param("id") UUID id, @Param("state") State state, @Param("rows") int rows,
+                     @Param("result") String result, @Param("error") String error, @Param("now") Instant now);
+
+    @Modifying
+    @Query("UPDATE PatientImportJob j SET j.heartbeatAt = :now WHERE j.id IN :ids")
+    int heartbeat(@Param("ids") Collection<UUID> ids, @Param("now") Instant now);
+
+    /**
+     * Fails unfinished jobs whose node stopped refreshing their heartbeat.
+     */
+    @Modifying
+    @Query("""
+        UPDATE PatientImportJob j SET j.state = :failed, j.error = :error, j.finishedAt = :now
+        WHERE j.state IN :unfinished AND j.heartbeatAt < :staleBefore
+        """)
+    int failStale(@Param("unfinished") Collection<State> unfinished, @Param("staleBefore") Instant staleBefore,
+                  @Param("failed") State failed, @Param("error") String error, @Param("now") Instant now);
+
+    @Modifying
+    @Query("DELETE FROM PatientImportJob j WHERE j.finishedAt < :cutoff")
+    int deleteFinishedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,51 @@
+package com.renteria.lims.patient.repository;
+
+import com.renteria.lims.patient.model.PatientSummary;
+import com.renteria.lims.user.model.PatientProfile;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Keyset pagination over {@code (last_name, first_name, user_id)}, backed by
+ * {@code idx_patient_profiles_listing}: every page is an index range scan from the previous
+ * page's last key, so page 1000 costs the same as page 1.
+ */
+@Repository
+public interface PatientListingRepository extends org.springframework.data.repository.Repository<PatientProfile, UUID> {
+
+    @Query("""
+        SELECT p.userId AS userId, u.email AS email, p.firstName AS firstName, p.lastName AS lastName,
+               p.idType AS idType, p.idNumber AS idNumber, p.dateOfBirth AS dateOfBirth,
+               u.active AS active, p.createdAt AS createdAt
+        FROM PatientProfile p
+        JOIN p.user u
+        ORDER BY p.lastName, p.firstName, p.userId
+        """)
+    List<PatientSummary> findFirstPage(Limit limit);
+
+    /**
+     * Rows strictly after the given key. The leading {@code lastName >= :lastName} bound gives
+     * the planner the index range start; the rest breaks ties on the same name.
+     */
+    @Query("""
+        SELECT p.userId AS userId, u.email AS email, p.firstName AS firstName, p.lastName AS lastName,
+               p.idType AS idType, p.idNumber AS idNumber, p.dateOfBirth AS dateOfBirth,
+               u.active AS active, p.createdAt AS createdAt
+        FROM PatientProfile p
+        JOIN p.user u
+        WHERE p.lastName >= :lastName
+          AND (p.lastName > :lastName
+               OR p.firstName > :firstName
+               OR (p.firstName = :firstName AND p.userId > :userId))
+        ORDER BY p.lastName, p.firstName, p.userId
+        """)
+    List<PatientSummary> findPageAfter(@Param("lastName") String lastName,
+                                       @Param("firstName") String firstName,
+                                       @Param("userId") UUID userId,
+                                       Limit limit);
+}
@@ -0,0 +1,48 @@
+package com.renteria.lims.patient.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits one CSV line (RFC 4180 quoting, comma separated). Quoted fields may contain commas
+ * and doubled quotes but not line breaks, so the import can stream the file line by line.
+ */
+final class CsvLineParser {
+
+    private CsvLineParser() {
+        // Utility class
+    }
+
+    static List<String> parse(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+}
@@ -0,0 +1,179 @@
+package com.renteria.lims.patient.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.renteria.lims.config.PatientImportConfig;
+import com.renteria.lims.patient.model.PatientImportJob;
+import com.renteria.lims.patient.model.dto.PatientImportJobStatus;
+import com.renteria.lims.patient.model.dto.PatientImportJobStatus.State;
+import com.renteria.lims.patient.model.dto.PatientImportResult;
+import com.renteria.lims.patient.repository.PatientImportJobRepository;
+import com.renteria.lims.user.model.Role;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs patient imports off the request thread. The upload is spooled to a temporary file (so
+ * the request can finish and the file is still streamed, never held in memory), its header is
+ * checked up front, and the import is queued on a single worker: imports run one at a time,
+ * each already parallel on the hash pool.
+ *
+ * <p>Job state is kept in {@code patient_import_jobs}, so any node answers the status
+ * endpoint. The spooled file only exists on the node that accepted the upload; that node
+ * refreshes the heartbeat of its unfinished jobs every {@code job-heartbeat-ms}, and a job
+ * whose heartbeat stops (the node died or restarted) is marked failed by whichever node
+ * notices first. Finished jobs are deleted after {@code job-retention-ms}.
+ */
+@Service
+public class PatientImportJobService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PatientImportJobService.class);
+
+    static final String INTERRUPTED = "Import interrupted: the node running it stopped";
+    private static final List<State> UNFINISHED = List.of(State.QUEUED, State.RUNNING);
+    // Missed heartbeats before a job is considered abandoned
+    private static final int STALE_HEARTBEATS = 5;
+
+    private final PatientImportService importService;
+    private final PatientImportJobRepository jobRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final PatientImportConfig config;
+    private final Set<UUID> running = ConcurrentHashMap.newKeySet();
+    private final ExecutorService worker;
+
+    public PatientImportJobService(PatientImportService importService, PatientImportJobRepository jobRepository,
+                                   TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+                                   PatientImportConfig config) {
+        this.importService = importService;
+        this.jobRepository = jobRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.config = config;
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "patient-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Spools the upload and queues it. A file without the required header columns is rejected
+     * here with {@link IllegalStateException} instead of failing later in the background.
+     */
+    public PatientImportJobStatus submit(MultipartFile file, UUID submittedBy) throws IOException {
+        Path spooled = Files.createTempFile("patient-import-", ".csv");
+        try {
+            file.transferTo(spooled);
+            try (BufferedReader reader = Files.newBufferedReader(spooled, StandardCharsets.UTF_8)) {
+                PatientImportService.readHeader(reader.readLine());
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spooled);
+            throw e;
+        }
+
+        PatientImportJob job = transactionTemplate.execute(status ->
+            jobRepository.save(new PatientImportJob(submittedBy)));
+        running.add(job.getId());
+        worker.execute(() -> run(job.getId(), spooled));
+        return toStatus(job);
+    }
+
+    /**
+     * The job, if it exists and was submitted by the requester; admins see every job. Other
+     * users get the same empty result as for an unknown id.
+     */
+    public Optional<PatientImportJobStatus> find(UUID jobId, UUID requesterId, Role requesterRole) {
+        return jobRepository.findById(jobId)
+            .filter(job -> job.getSubmittedBy().equals(requesterId) || requesterRole == Role.ADMIN)
+            .map(this::toStatus);
+    }
+
+    @Scheduled(fixedDelayString = "${app.patient-import.job-heartbeat-ms:60000}")
+    public void maintainJobs() {
+        Instant now = Instant.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!running.isEmpty()) {
+                jobRepository.heartbeat(Set.copyOf(running), now);
+            }
+            int abandoned = jobRepository.failStale(UNFINISHED,
+                now.minusMillis(config.getJobHeartbeatMs() * STALE_HEARTBEATS), State.FAILED, INTERRUPTED, now);
+            if (abandoned > 0) {
+                log.warn("Marked {} abandoned patient import jobs as failed", abandoned);
+            }
+            jobRepository.deleteFinishedBefore(now.minusMillis(config.getJobRetentionMs()));
+        });
+    }
+
+    @Override
+    public void destroy() {
+        worker.shutdownNow();
+    }
+
+    private void run(UUID jobId, Path spooled) {
+        AtomicInteger rows = new AtomicInteger();
+        try {
+            inTransaction(() -> jobRepository.markRunning(jobId, State.RUNNING, Instant.now()));
+            PatientImportResult result;
+            try (InputStream input = Files.newInputStream(spooled)) {
+                result = importService.importCsv(input, processed -> {
+                    rows.set(processed);
+                    inTransaction(() -> jobRepository.recordProgress(jobId, processed, Instant.now()));
+                });
+            }
+            String report = objectMapper.writeValueAsString(result);
+            inTransaction(() -> jobRepository.markFinished(jobId, State.COMPLETED, rows.get(), report, null, Instant.now()));
+        } catch (Exception e) {
+            log.error("Patient import {} failed", jobId, e);
+            String error = e instanceof IllegalStateException ? e.getMessage() : "Import failed";
+            inTransaction(() -> jobRepository.markFinished(jobId, State.FAILED, rows.get(), null, error, Instant.now()));
+        } finally {
+            running.remove(jobId);
+            try {
+                Files.deleteIfExists(spooled);
+            } catch (IOException e) {
+                log.warn("Could not delete spooled import file {}: {}", spooled, e.getMessage());
+            }
+        }
+    }
+
+    private void inTransaction(Runnable update) {
+        transactionTemplate.executeWithoutResult(status -> update.run());
+    }
+
+    private PatientImportJobStatus toStatus(PatientImportJob job) {
+        PatientImportResult result = null;
+        if (job.getResult() != null) {
+            try {
+                result = objectMapper.readValue(job.getResult(), PatientImportResult.class);
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return new PatientImportJobStatus(job.getId(), job.getState(), job.getSubmittedAt(), job.getStartedAt(),
+            job.getFinishedAt(), job.getRowsProcessed(), result, job.getError());
+    }
+}
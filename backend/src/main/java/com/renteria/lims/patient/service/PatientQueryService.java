@@ -0,0 +1,72 @@
+package com.renteria.lims.patient.service;
+
+import com.renteria.lims.patient.model.PatientSummary;
+import com.renteria.lims.patient.model.dto.PatientPage;
+import com.renteria.lims.patient.repository.PatientListingRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+public class PatientQueryService {
+
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 200;
+    private static final char SEPARATOR = '\u0000';
+
+    private final PatientListingRepository listingRepository;
+
+    public PatientQueryService(PatientListingRepository listingRepository) {
+        this.listingRepository = listingRepository;
+    }
+
+    /**
+     * Returns the page after {@code cursor} (the first page when null), ordered by last name,
+     * first name and id. The cursor is opaque to clients: the key of the previous page's last row.
+     */
+    @Transactional(readOnly = true)
+    public PatientPage list(String cursor, Integer size) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.clamp(size, 1, MAX_PAGE_SIZE);
+        // One extra row tells whether there is a next page without a COUNT
+        Limit limit = Limit.of(pageSize + 1);
+        List<PatientSummary> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = listingRepository.findFirstPage(limit);
+        } else {
+            Key key = decode(cursor);
+            rows = listingRepository.findPageAfter(key.lastName(), key.firstName(), key.userId(), limit);
+        }
+        if (rows.size() <= pageSize) {
+            return new PatientPage(rows, null);
+        }
+        List<PatientSummary> page = rows.subList(0, pageSize);
+        return new PatientPage(page, encode(page.get(pageSize - 1)));
+    }
+
+    private static String encode(PatientSummary last) {
+        String key = last.getLastName() + SEPARATOR + last.getFirstName() + SEPARATOR + last.getUserId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Key decode(String cursor) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int first = key.indexOf(SEPARATOR);
+            int second = key.indexOf(SEPARATOR, first + 1);
+            if (first < 0 || second < 0) {
+                throw new IllegalArgumentException("Missing key parts");
+            }
+            return new Key(key.substring(0, first), key.substring(first + 1, second),
+                UUID.fromString(key.substring(second + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid page cursor", e);
+        }
+    }
+
+    private record Key(String lastName, String firstName, UUID userId) {}
+}
@@ -21,6 +21,9 @@ public class Permission {
 
     private String category;
 
+    @Column(name = "bit_index", insertable = false, updatable = false)
+    private Integer bitIndex;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
@@ -65,6 +68,14 @@ public class Permission {
         this.category = category;
     }
 
+    public Integer getBitIndex() {
+        return bitIndex;
+    }
+
+    public void setBitIndex(Integer bitIndex) {
+        this.bitIndex = bitIndex;
+    }
+
     public Instant getCreatedAt() {
         return createdAt;
     }
@@ -1,10 +1,12 @@
 package com.renteria.lims.user.model;
 
+import com.renteria.lims.user.service.PermissionAssignmentListener;
 import jakarta.persistence.*;
 
 import java.util.UUID;
 
 @Entity
+@EntityListeners(PermissionAssignmentListener.class)
 @Table(name = "role_permissions")
 @IdClass(RolePermissionId.class)
 public class RolePermission {
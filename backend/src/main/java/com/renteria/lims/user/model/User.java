@@ -1,5 +1,6 @@
 package com.renteria.lims.user.model;
 
+import com.renteria.lims.user.service.PermissionAssignmentListener;
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
@@ -9,6 +10,7 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "users")
+@EntityListeners(PermissionAssignmentListener.class)
 public class User {
 
     @Id
@@ -54,6 +56,10 @@ public class User {
     @OneToOne(mappedBy = "user", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     private EmployeeProfile employeeProfile;
 
+    // Role as last read from or written to the database, to detect role changes on update
+    @Transient
+    private Role persistedRole;
+
     public User() {}
 
     public User(String email, String passwordHash, Role role) {
@@ -104,4 +110,16 @@ public class User {
     public boolean isLocked() {
         return lockedUntil != null && lockedUntil.isAfter(Instant.now());
     }
+
+    public boolean isRoleChanged() {
+        return persistedRole != null && persistedRole != role;
+    }
+
+    // Entity callbacks run after the listener's, so it still sees the previous role
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    void rememberPersistedRole() {
+        persistedRole = role;
+    }
 }
@@ -0,0 +1,29 @@
+package com.renteria.lims.user.model;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Everything login needs about a user, loaded in a single query: the columns checked
+ * before and after the password match plus the effective permission codes.
+ */
+public record UserCredentials(
+    UUID id,
+    String email,
+    String passwordHash,
+    Role role,
+    boolean active,
+    boolean forcePasswordChange,
+    int failedLoginAttempts,
+    Instant lockedUntil,
+    Set<String> permissions
+) {
+    public UserCredentials {
+        permissions = Set.copyOf(permissions);
+    }
+
+    public boolean isLocked() {
+        return lockedUntil != null && lockedUntil.isAfter(Instant.now());
+    }
+}
@@ -1,5 +1,6 @@
 package com.renteria.lims.user.model;
 
+import com.renteria.lims.user.service.PermissionAssignmentListener;
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
 
@@ -7,6 +8,7 @@ import java.time.Instant;
 import java.util.UUID;
 
 @Entity
+@EntityListeners(PermissionAssignmentListener.class)
 @Table(name = "user_groups")
 @IdClass(UserGroupId.class)
 public class UserGroup {
@@ -1,6 +1,7 @@
 package com.renteria.lims.user.repository;
 
 import com.renteria.lims.user.model.Permission;
+import com.renteria.lims.user.model.Role;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -12,16 +13,22 @@ import java.util.UUID;
 @Repository
 public interface PermissionRepository extends JpaRepository<Permission, UUID> {
 
+    @Query("""
+        SELECT p.code FROM Permission p
+        JOIN RolePermission rp ON rp.permissionId = p.id
+        WHERE rp.role = :role
+        """)
+    Set<String> findCodesByRole(@Param("role") Role role);
+
     @Query("""
         SELECT DISTINCT p.code FROM Permission p
-        WHERE p.id IN (
-            SELECT rp.permissionId FROM RolePermission rp WHERE rp.role = :role
-            UNION
-            SELECT gp.permissionId FROM GroupPermission gp 
-            WHERE gp.groupId IN (
-                SELECT ug.groupId FROM UserGroup ug WHERE ug.userId = :userId
-            )
-        )
+        JOIN GroupPermission gp ON gp.permissionId = p.id
+        JOIN UserGroup ug ON ug.groupId = gp.groupId
+        WHERE ug.userId = :userId
         """)
-    Set<String> findEffectivePermissions(@Param("userId") UUID userId, @Param("role") String role);
+    Set<String> findGroupCodesByUserId(@Param("userId") UUID userId);
+
+    // Trigger-maintained by V15; PostgreSQL only
+    @Query(value = "SELECT permission_code FROM user_effective_permissions WHERE user_id = :userId", nativeQuery = true)
+    Set<String> findMaterializedCodesByUserId(@Param("userId") UUID userId);
 }
@@ -1,12 +1,19 @@
 package com.renteria.lims.user.repository;
 
+import com.renteria.lims.user.model.Role;
 import com.renteria.lims.user.model.User;
+import com.renteria.lims.user.model.UserCredentials;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Repository
@@ -21,4 +28,78 @@ public interface UserRepository extends JpaRepository<User, UUID> {
 
     @Query("SELECT u FROM User u LEFT JOIN FETCH u.employeeProfile WHERE u.id = :id")
     Optional<User> findByIdWithEmployeeProfile(@Param("id") UUID id);
+
+    /**
+     * User columns joined to the effective permission codes: one row per permission,
+     * or a single row with a null code when the user has none.
+     */
+    @Query("""
+        SELECT u.id AS id, u.email AS email, u.passwordHash AS passwordHash, u.role AS role,
+               u.active AS active, u.forcePasswordChange AS forcePasswordChange,
+               u.failedLoginAttempts AS failedLoginAttempts, u.lockedUntil AS lockedUntil,
+               p.code AS permissionCode
+        FROM User u
+        LEFT JOIN RolePermission rp ON rp.role = u.role
+        LEFT JOIN Permission p ON p.id = rp.permissionId
+        WHERE u.email = :email
+        UNION
+        SELECT u.id, u.email, u.passwordHash, u.role,
+               u.active, u.forcePasswordChange,
+               u.failedLoginAttempts, u.lockedUntil,
+               p.code
+        FROM User u
+        JOIN UserGroup ug ON ug.userId = u.id
+        JOIN GroupPermission gp ON gp.groupId = ug.groupId
+        JOIN Permission p ON p.id = gp.permissionId
+        WHERE u.email = :email
+        """)
+    List<CredentialsRow> findCredentialRowsByEmail(@Param("email") String email);
+
+    default Optional<UserCredentials> findCredentialsByEmail(String email) {
+        List<CredentialsRow> rows = findCredentialRowsByEmail(email);
+        if (rows.isEmpty()) return Optional.empty();
+
+        Set<String> permissions = new HashSet<>();
+        for (CredentialsRow row : rows) {
+            if (row.getPermissionCode() != null) {
+                permissions.add(row.getPermissionCode());
+            }
+        }
+        CredentialsRow user = rows.get(0);
+        return Optional.of(new UserCredentials(
+            user.getId(),
+            user.getEmail(),
+            user.getPasswordHash(),
+            user.getRole(),
+            user.isActive(),
+            user.isForcePasswordChange(),
+            user.getFailedLoginAttempts(),
+            user.getLockedUntil(),
+            permissions
+        ));
+    }
+
+    @Modifying
+    @Query("UPDATE User u SET u.failedLoginAttempts = 0, u.lastLoginAt = :loginAt WHERE u.id = :id")
+    int recordSuccessfulLogin(@Param("id") UUID id, @Param("loginAt") Instant loginAt);
+
+    @Modifying
+    @Query("UPDATE User u SET u.failedLoginAttempts = 0, u.lastLoginAt = :loginAt, u.passwordHash = :passwordHash WHERE u.id = :id")
+    int recordSuccessfulLogin(@Param("id") UUID id, @Param("loginAt") Instant loginAt, @Param("passwordHash") String passwordHash);
+
+    @Modifying
+    @Query("UPDATE User u SET u.failedLoginAttempts = :attempts, u.lockedUntil = :lockedUntil WHERE u.id = :id")
+    int recordFailedLogin(@Param("id") UUID id, @Param("attempts") int attempts, @Param("lockedUntil") Instant lockedUntil);
+
+    interface CredentialsRow {
+        UUID getId();
+        String getEmail();
+        String getPasswordHash();
+        Role getRole();
+        boolean isActive();
+        boolean isForcePasswordChange();
+        int getFailedLoginAttempts();
+        Instant getLockedUntil();
+        String getPermissionCode();
+    }
 }
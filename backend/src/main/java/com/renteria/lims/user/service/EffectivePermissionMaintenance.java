@@ -0,0 +1,88 @@
+package com.renteria.lims.user.service;
+
+import com.renteria.lims.config.SecurityConfigProps;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rebuild and consistency check for the trigger-maintained {@code user_effective_permissions}
+ * table created by V15. The check runs nightly, exports the number of mismatched rows as
+ * {@code permissions.materialized.mismatches} and refreshes the users they belong to, so drift
+ * the triggers could not prevent does not outlive the next run; starting the application with
+ * {@code --rebuild-effective-permissions} rebuilds the whole table once. PostgreSQL only.
+ */
+@Service
+public class EffectivePermissionMaintenance implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(EffectivePermissionMaintenance.class);
+    static final String REBUILD_OPTION = "rebuild-effective-permissions";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SecurityConfigProps securityConfig;
+    private final PermissionCache permissionCache;
+    private final AtomicLong mismatches = new AtomicLong();
+
+    public EffectivePermissionMaintenance(JdbcTemplate jdbcTemplate, SecurityConfigProps securityConfig,
+                                          PermissionCache permissionCache, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.securityConfig = securityConfig;
+        this.permissionCache = permissionCache;
+        Gauge.builder("permissions.materialized.mismatches", mismatches, AtomicLong::get).register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (args.containsOption(REBUILD_OPTION)) {
+            rebuild();
+        }
+    }
+
+    public long rebuild() {
+        Long rows = jdbcTemplate.queryForObject("SELECT rebuild_user_effective_permissions()", Long.class);
+        permissionCache.invalidateAllNodes();
+        log.info("Rebuilt user_effective_permissions with {} rows", rows);
+        return rows == null ? 0 : rows;
+    }
+
+    public List<Mismatch> check() {
+        return jdbcTemplate.query("SELECT user_id, permission_code, problem FROM check_user_effective_permissions()",
+            (rs, rowNum) -> new Mismatch(rs.getObject("user_id", UUID.class), rs.getString("permission_code"),
+                rs.getString("problem")));
+    }
+
+    @Scheduled(cron = "${app.security.effective-permissions-check-cron:0 45 3 * * *}", zone = "UTC")
+    public void scheduledCheck() {
+        if (!securityConfig.isMaterializedPermissions()) {
+            return;
+        }
+        List<Mismatch> found = check();
+        mismatches.set(found.size());
+        if (!found.isEmpty()) {
+            UUID[] drifted = found.stream().map(Mismatch::userId).distinct().toArray(UUID[]::new);
+            refresh(drifted);
+            log.warn("user_effective_permissions had {} mismatched rows (first: {}); refreshed {} users",
+                found.size(), found.get(0), drifted.length);
+        }
+    }
+
+    void refresh(UUID[] userIds) {
+        jdbcTemplate.query("SELECT refresh_user_effective_permissions(?)",
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", userIds)),
+            (ResultSetExtractor<Void>) rs -> null);
+        permissionCache.invalidateAllNodes();
+    }
+
+    public record Mismatch(UUID userId, String permissionCode, String problem) {}
+}
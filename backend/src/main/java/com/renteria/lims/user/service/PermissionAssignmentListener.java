@@ -0,0 +1,41 @@
+package com.renteria.lims.user.service;
+
+import com.renteria.lims.user.model.GroupPermission;
+import com.renteria.lims.user.model.RolePermission;
+import com.renteria.lims.user.model.User;
+import com.renteria.lims.user.model.UserGroup;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener on the permission assignment entities and on {@link User} role changes. Hibernate resolves it through Spring,
+ * so it can reach the cache; bulk JPQL statements bypass it.
+ */
+@Component
+public class PermissionAssignmentListener {
+
+    private final PermissionCache permissionCache;
+
+    // Lazy: entity listeners are created while the EntityManagerFactory is still being built
+    public PermissionAssignmentListener(@Lazy PermissionCache permissionCache) {
+        this.permissionCache = permissionCache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        if (entity instanceof UserGroup userGroup) {
+            permissionCache.userChanged(userGroup.getUserId());
+        } else if (entity instanceof GroupPermission groupPermission) {
+            permissionCache.groupPermissionsChanged(groupPermission.getGroupId());
+        } else if (entity instanceof RolePermission rolePermission) {
+            permissionCache.rolePermissionsChanged(rolePermission.getRole());
+        } else if (entity instanceof User user && user.isRoleChanged()) {
+            permissionCache.userChanged(user.getId());
+        }
+    }
+}
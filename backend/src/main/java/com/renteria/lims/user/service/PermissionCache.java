@@ -0,0 +1,150 @@
+package com.renteria.lims.user.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.renteria.lims.common.cluster.ClusterEventBus;
+import com.renteria.lims.config.SecurityConfigProps;
+import com.renteria.lims.user.model.Role;
+import com.renteria.lims.user.repository.PermissionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Caches the two halves of a user's effective permissions: the codes granted to each role and
+ * the codes a user receives through group membership. Both only change when a
+ * {@code RolePermission}, {@code GroupPermission} or {@code UserGroup} row changes;
+ * {@link PermissionAssignmentListener} turns those writes into cluster events, and every node
+ * evicts the affected entries once the writing transaction commits. The TTL only bounds how
+ * long a change made outside JPA (bulk JPQL, manual SQL) can go unnoticed.
+ *
+ * <p>With {@code materialized-permissions} on, the whole effective set is read per user from
+ * the trigger-maintained {@code user_effective_permissions} table (a primary-key index-only
+ * scan) instead of being assembled from the two halves. The triggers keep that table in step
+ * with {@code users.role} without any JPA event, so each set is cached per user and role and
+ * a token carrying a different role reads its own entry. Loads go through Caffeine, so an
+ * eviction that arrives while a read is in flight discards that read's result.
+ */
+@Component
+public class PermissionCache {
+
+    static final String TOPIC = "permission-assignments";
+
+    private final PermissionRepository permissionRepository;
+    private final ClusterEventBus eventBus;
+    private final Cache<Role, Set<String>> rolePermissions;
+    private final Cache<UUID, Set<String>> groupPermissionsByUser;
+    private final Cache<MaterializedKey, Set<String>> materializedByUser;
+    private final boolean materialized;
+
+    public PermissionCache(PermissionRepository permissionRepository, ClusterEventBus eventBus,
+                           SecurityConfigProps securityConfig, MeterRegistry meterRegistry) {
+        this.permissionRepository = permissionRepository;
+        this.eventBus = eventBus;
+        Duration ttl = Duration.ofMillis(securityConfig.getPermissionCacheTtlMs());
+        this.rolePermissions = Caffeine.newBuilder()
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+        this.groupPermissionsByUser = Caffeine.newBuilder()
+            .maximumSize(securityConfig.getPermissionCacheMaxSize())
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+        this.materializedByUser = Caffeine.newBuilder()
+            .maximumSize(securityConfig.getPermissionCacheMaxSize())
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+        this.materialized = securityConfig.isMaterializedPermissions();
+        CaffeineCacheMetrics.monitor(meterRegistry, rolePermissions, "permissions.role");
+        CaffeineCacheMetrics.monitor(meterRegistry, groupPermissionsByUser, "permissions.user-groups");
+        CaffeineCacheMetrics.monitor(meterRegistry, materializedByUser, "permissions.materialized");
+        eventBus.subscribe(TOPIC, new ClusterEventBus.Listener() {
+            @Override
+            public void onEvent(String payload) {
+                evict(payload);
+            }
+
+            @Override
+            public void onResync() {
+                invalidateAll();
+            }
+        });
+    }
+
+    public Set<String> getEffectivePermissions(UUID userId, Role role) {
+        if (materialized) {
+            return materializedByUser.get(new MaterializedKey(userId, role),
+                key -> Set.copyOf(permissionRepository.findMaterializedCodesByUserId(key.userId())));
+        }
+        Set<String> fromRole = rolePermissions.get(role, r -> Set.copyOf(permissionRepository.findCodesByRole(r)));
+        Set<String> fromGroups = groupPermissionsByUser.get(userId,
+            id -> Set.copyOf(permissionRepository.findGroupCodesByUserId(id)));
+        if (fromGroups.isEmpty()) {
+            return fromRole;
+        }
+        Set<String> effective = new HashSet<>(fromRole);
+        effective.addAll(fromGroups);
+        return effective;
+    }
+
+    /**
+     * Evicts the user's cached permissions on every node: after a group membership change, or a
+     * role change the cache cannot infer from the role in tokens that are still in use.
+     */
+    public void userChanged(UUID userId) {
+        eventBus.publish(TOPIC, "user:" + userId);
+    }
+
+    // No reverse index from group to members; group grants change rarely enough to drop all users
+    public void groupPermissionsChanged(UUID groupId) {
+        eventBus.publish(TOPIC, "group:" + groupId);
+    }
+
+    public void rolePermissionsChanged(Role role) {
+        eventBus.publish(TOPIC, "role:" + role.name());
+    }
+
+    public void invalidateAll() {
+        rolePermissions.invalidateAll();
+        groupPermissionsByUser.invalidateAll();
+        materializedByUser.invalidateAll();
+    }
+
+    public void invalidateAllNodes() {
+        eventBus.publish(TOPIC, "all:");
+    }
+
+    private void evict(String payload) {
+        int split = payload.indexOf(':');
+        String kind = payload.substring(0, split);
+        String id = payload.substring(split + 1);
+        switch (kind) {
+            case "user" -> {
+                UUID userId = UUID.fromString(id);
+                groupPermissionsByUser.invalidate(userId);
+                for (Role role : Role.values()) {
+                    materializedByUser.invalidate(new MaterializedKey(userId, role));
+                }
+            }
+            case "group" -> {
+                groupPermissionsByUser.invalidateAll();
+                materializedByUser.invalidateAll();
+            }
+            case "role" -> {
+                rolePermissions.invalidate(Role.valueOf(id));
+                materializedByUser.invalidateAll();
+            }
+            default -> invalidateAll();
+        }
+    }
+
+    private record MaterializedKey(UUID userId, Role role) {
+    }
+}
@@ -0,0 +1,190 @@
+package com.renteria.lims.user.service;
+
+import com.renteria.lims.auth.security.PermissionBits;
+import com.renteria.lims.common.cluster.ClusterEventBus;
+import com.renteria.lims.user.model.Permission;
+import com.renteria.lims.user.repository.PermissionRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * In-memory map between permission codes and their stable bit index. Tokens carry
+ * permissions as a bitmask plus the registry version they were encoded with, and
+ * authorities are served from instances built once per reload. Other nodes are told to
+ * reload through the {@link ClusterEventBus} via {@link #publishChange()}.
+ *
+ * <p>The version is a checksum of which permission row owns each bit, taken over the bits a
+ * token was encoded with, so a token is only rejected when one of its own bits changed
+ * meaning. Adding a permission (V9 appends a fresh bit) or renaming a code keeps outstanding
+ * tokens valid. Moving a permission to another bit, giving a bit to another permission or
+ * deleting a permission rejects every token issued before the change, and those sessions
+ * need a new access token (a refresh is enough).
+ */
+@Service
+public class PermissionRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(PermissionRegistry.class);
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    static final String TOPIC = "permissions";
+
+    private final PermissionRepository permissionRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ClusterEventBus eventBus;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public PermissionRegistry(PermissionRepository permissionRepository, ApplicationEventPublisher eventPublisher,
+                              ClusterEventBus eventBus) {
+        this.permissionRepository = permissionRepository;
+        this.eventPublisher = eventPublisher;
+        this.eventBus = eventBus;
+        eventBus.subscribe(TOPIC, new ClusterEventBus.Listener() {
+            @Override
+            public void onEvent(String payload) {
+                reload();
+            }
+
+            @Override
+            public void onResync() {
+                reload();
+            }
+        });
+    }
+
+    @PostConstruct
+    public void reload() {
+        Map<String, Integer> bitsByCode = new HashMap<>();
+        Map<Integer, UUID> idsByBit = new HashMap<>();
+        int maxBit = -1;
+        for (Permission permission : permissionRepository.findAll()) {
+            if (permission.getBitIndex() == null) {
+                log.warn("Permission {} has no bit index and will not be encoded in tokens", permission.getCode());
+                continue;
+            }
+            bitsByCode.put(permission.getCode(), permission.getBitIndex());
+            idsByBit.put(permission.getBitIndex(), permission.getId());
+            maxBit = Math.max(maxBit, permission.getBitIndex());
+        }
+
+        GrantedAuthority[] authoritiesByBit = new GrantedAuthority[maxBit + 1];
+        bitsByCode.forEach((code, bit) -> authoritiesByBit[bit] = new SimpleGrantedAuthority(code));
+
+        Snapshot previous = snapshot;
+        snapshot = new Snapshot(Map.copyOf(bitsByCode), authoritiesByBit, computeVersions(idsByBit, maxBit + 1));
+        log.info("Loaded {} permissions into registry (version {})", bitsByCode.size(), snapshot.version());
+
+        // Any change, appends and renames included, makes authorities built earlier stale
+        if (!previous.bitsByCode().equals(snapshot.bitsByCode()) || previous.version() != snapshot.version()) {
+            eventPublisher.publishEvent(new ReloadedEvent(snapshot.version()));
+        }
+    }
+
+    /**
+     * Asks every node, this one included, to reload once the current transaction commits.
+     */
+    public void publishChange() {
+        eventBus.publish(TOPIC, "");
+    }
+
+    /** Version of the full current mapping, carried by newly issued tokens. */
+    public long getVersion() {
+        return snapshot.version();
+    }
+
+    /** Number of bits the current mapping spans; tokens record it next to the version. */
+    public int getBitCount() {
+        return snapshot.authoritiesByBit().length;
+    }
+
+    /**
+     * True when a token encoded over the first {@code bitCount} bits with {@code version}
+     * still decodes to the permissions it was issued with.
+     */
+    public boolean isCurrent(long version, int bitCount) {
+        long[] versions = snapshot.versionsByBitCount();
+        return bitCount >= 0 && bitCount < versions.length && versions[bitCount] == version;
+    }
+
+    /** Bit index for the code, or -1 when the code is unknown. */
+    public int bitOf(String code) {
+        return snapshot.bitsByCode().getOrDefault(code, -1);
+    }
+
+    public PermissionBits toBits(Collection<String> codes) {
+        Snapshot current = snapshot;
+        BitSet bits = new BitSet();
+        for (String code : codes) {
+            Integer bit = current.bitsByCode().get(code);
+            if (bit == null) {
+                log.warn("Unknown permission code {} skipped", code);
+                continue;
+            }
+            bits.set(bit);
+        }
+        return PermissionBits.of(bits);
+    }
+
+    public String encode(Collection<String> codes) {
+        return ENCODER.encodeToString(toBits(codes).toBitSet().toByteArray());
+    }
+
+    public PermissionBits decode(String encoded) {
+        return PermissionBits.of(BitSet.valueOf(DECODER.decode(encoded)));
+    }
+
+    public List<GrantedAuthority> authoritiesOf(PermissionBits bits) {
+        GrantedAuthority[] authoritiesByBit = snapshot.authoritiesByBit();
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        for (int bit = 0; bit < authoritiesByBit.length; bit++) {
+            if (authoritiesByBit[bit] != null && bits.has(bit)) {
+                authorities.add(authoritiesByBit[bit]);
+            }
+        }
+        return authorities;
+    }
+
+    public Set<String> codesOf(PermissionBits bits) {
+        Set<String> codes = new LinkedHashSet<>();
+        for (GrantedAuthority authority : authoritiesOf(bits)) {
+            codes.add(authority.getAuthority());
+        }
+        return codes;
+    }
+
+    // versions[n] covers the owners of bits 0..n-1; the checksum is order-dependent, so
+    // each prefix is one more update of the previous one
+    private static long[] computeVersions(Map<Integer, UUID> idsByBit, int bitCount) {
+        long[] versions = new long[bitCount + 1];
+        CRC32 crc = new CRC32();
+        versions[0] = crc.getValue();
+        for (int bit = 0; bit < bitCount; bit++) {
+            if (idsByBit.containsKey(bit)) {
+                crc.update((bit + ":" + idsByBit.get(bit) + ";").getBytes(StandardCharsets.UTF_8));
+            }
+            versions[bit + 1] = crc.getValue();
+        }
+        return versions;
+    }
+
+    /** Published when the code-to-bit mapping changes; principals built earlier are stale. */
+    public record ReloadedEvent(long version) {}
+
+    private record Snapshot(Map<String, Integer> bitsByCode, GrantedAuthority[] authoritiesByBit,
+                            long[] versionsByBitCount) {
+        static final Snapshot EMPTY = new Snapshot(Map.of(), new GrantedAuthority[0], new long[] {0});
+
+        long version() {
+            return versionsByBitCount[authoritiesByBit.length];
+        }
+    }
+}
@@ -1,10 +1,7 @@
 package com.renteria.lims.user.service;
 
-import com.renteria.lims.user.model.User;
-import com.renteria.lims.user.repository.PermissionRepository;
+import com.renteria.lims.user.model.UserCredentials;
 import com.renteria.lims.user.repository.UserRepository;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -13,40 +10,38 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
 
-    private static final Logger logger = LoggerFactory.getLogger(UserDetailsServiceImpl.class);
-
     private final UserRepository userRepository;
-    private final PermissionRepository permissionRepository;
 
-    public UserDetailsServiceImpl(UserRepository userRepository, PermissionRepository permissionRepository) {
+    public UserDetailsServiceImpl(UserRepository userRepository) {
         this.userRepository = userRepository;
-        this.permissionRepository = permissionRepository;
     }
 
     @Override
     @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByEmail(username)
+        UserCredentials credentials = userRepository.findCredentialsByEmail(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
 
-        Set<String> permissions = permissionRepository.findEffectivePermissions(user.getId(), user.getRole().name());
-        List<SimpleGrantedAuthority> authorities = permissions.stream()
+        return toUserDetails(credentials);
+    }
+
+    public static UserDetails toUserDetails(UserCredentials credentials) {
+        List<SimpleGrantedAuthority> authorities = credentials.permissions().stream()
                 .map(SimpleGrantedAuthority::new)
                 .collect(Collectors.toList());
 
         return new org.springframework.security.core.userdetails.User(
-                user.getEmail(),
-                user.getPasswordHash(),
-                user.isActive(),
+                credentials.email(),
+                credentials.passwordHash(),
+                credentials.active(),
                 true,
                 true,
-                !user.isLocked(),
+                !credentials.isLocked(),
                 authorities
         );
     }
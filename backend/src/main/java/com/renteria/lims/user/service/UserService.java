@@ -1,7 +1,7 @@
 package com.renteria.lims.user.service;
 
+import com.renteria.lims.user.model.Role;
 import com.renteria.lims.user.model.User;
-import com.renteria.lims.user.repository.PermissionRepository;
 import com.renteria.lims.user.repository.UserRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -14,11 +14,11 @@ import java.util.UUID;
 public class UserService {
 
     private final UserRepository userRepository;
-    private final PermissionRepository permissionRepository;
+    private final PermissionCache permissionCache;
 
-    public UserService(UserRepository userRepository, PermissionRepository permissionRepository) {
+    public UserService(UserRepository userRepository, PermissionCache permissionCache) {
         this.userRepository = userRepository;
-        this.permissionRepository = permissionRepository;
+        this.permissionCache = permissionCache;
     }
 
     @Transactional(readOnly = true)
@@ -33,7 +33,7 @@ public class UserService {
 
     @Transactional(readOnly = true)
     public Set<String> getUserPermissions(UUID userId, String role) {
-        return permissionRepository.findEffectivePermissions(userId, role);
+        return permissionCache.getEffectivePermissions(userId, Role.valueOf(role));
     }
 
     @Transactional(readOnly = true)
@@ -0,0 +1,8 @@
+-- V10: Shared bucket4j state so rate limits hold across all nodes
+CREATE TABLE rate_limit_buckets (
+    id VARCHAR(255) PRIMARY KEY,
+    state BYTEA,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_rate_limit_buckets_updated_at ON rate_limit_buckets (updated_at);
@@ -0,0 +1,3 @@
+-- V11: Index backing the batched password reset token retention job. Refresh tokens are
+-- retired by partition drops (V12) and used reset tokens by used_at (V18).
+CREATE INDEX idx_password_reset_expires_at ON password_reset_tokens (expires_at);
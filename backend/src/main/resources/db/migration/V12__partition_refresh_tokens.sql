@@ -0,0 +1,46 @@
+-- V12: Range-partition refresh_tokens by expires_at (monthly, UTC) so retention is a
+-- partition drop instead of row deletes. RefreshTokenPartitionManager keeps partitions
+-- created ahead and retires old ones.
+
+ALTER TABLE refresh_tokens RENAME TO refresh_tokens_legacy;
+DROP INDEX idx_refresh_tokens_user;
+DROP INDEX idx_refresh_tokens_family;
+
+-- Unique constraints on a partitioned table must include the partition key
+CREATE TABLE refresh_tokens (
+    id UUID NOT NULL DEFAULT gen_random_uuid(),
+    user_id UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    token_hash VARCHAR(64) NOT NULL,
+    family_id UUID NOT NULL,
+    expires_at TIMESTAMPTZ NOT NULL,
+    revoked BOOLEAN NOT NULL DEFAULT false,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    CONSTRAINT pk_refresh_tokens PRIMARY KEY (id, expires_at),
+    CONSTRAINT uq_refresh_tokens_token_hash UNIQUE (token_hash, expires_at)
+) PARTITION BY RANGE (expires_at);
+
+CREATE INDEX idx_refresh_tokens_user ON refresh_tokens (user_id) WHERE revoked = false;
+CREATE INDEX idx_refresh_tokens_family ON refresh_tokens (family_id);
+
+-- Previous month through three months ahead; the manager extends this at startup
+DO $$
+DECLARE
+    first_month timestamp := date_trunc('month', now() AT TIME ZONE 'UTC') - interval '1 month';
+    m timestamp;
+BEGIN
+    FOR i IN 0..4 LOOP
+        m := first_month + make_interval(months => i);
+        EXECUTE format(
+            'CREATE TABLE %I PARTITION OF refresh_tokens FOR VALUES FROM (%L) TO (%L)',
+            'refresh_tokens_p' || to_char(m, 'YYYYMM'),
+            m AT TIME ZONE 'UTC',
+            (m + interval '1 month') AT TIME ZONE 'UTC');
+    END LOOP;
+END $$;
+
+INSERT INTO refresh_tokens (id, user_id, token_hash, family_id, expires_at, revoked, created_at)
+SELECT id, user_id, token_hash, family_id, expires_at, revoked, created_at
+FROM refresh_tokens_legacy
+WHERE expires_at >= (date_trunc('month', now() AT TIME ZONE 'UTC') - interval '1 month') AT TIME ZONE 'UTC';
+
+DROP TABLE refresh_tokens_legacy;
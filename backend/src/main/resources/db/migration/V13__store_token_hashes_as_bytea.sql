@@ -0,0 +1,11 @@
+-- V13: Store token hashes as raw 32-byte SHA-256 instead of 64-char hex.
+-- The unique constraints are rebuilt by the type change, at roughly half the size.
+ALTER TABLE refresh_tokens
+    ALTER COLUMN token_hash TYPE BYTEA USING decode(token_hash, 'hex');
+ALTER TABLE refresh_tokens
+    ADD CONSTRAINT chk_refresh_tokens_token_hash_length CHECK (octet_length(token_hash) = 32);
+
+ALTER TABLE password_reset_tokens
+    ALTER COLUMN token_hash TYPE BYTEA USING decode(token_hash, 'hex');
+ALTER TABLE password_reset_tokens
+    ADD CONSTRAINT chk_password_reset_tokens_token_hash_length CHECK (octet_length(token_hash) = 32);
@@ -0,0 +1,9 @@
+-- V14: Access-token revocations. subject_id is either a token's jti or a user id;
+-- tokens issued at or before revoked_before for that subject are rejected.
+CREATE TABLE revoked_access_tokens (
+    subject_id UUID PRIMARY KEY,
+    revoked_before TIMESTAMPTZ NOT NULL,
+    expires_at TIMESTAMPTZ NOT NULL
+);
+
+CREATE INDEX idx_revoked_access_tokens_expires_at ON revoked_access_tokens (expires_at);
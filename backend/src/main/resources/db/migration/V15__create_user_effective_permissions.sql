@@ -0,0 +1,158 @@
+-- V15: Materialized effective permissions (role grants + group grants) per user, kept in
+-- sync by triggers on every table that feeds it. Lookups become an index-only scan on the
+-- primary key. rebuild_user_effective_permissions() and check_user_effective_permissions()
+-- are the one-shot rebuild and the consistency check.
+
+CREATE TABLE user_effective_permissions (
+    user_id UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    permission_code VARCHAR(50) NOT NULL,
+    PRIMARY KEY (user_id, permission_code)
+);
+
+-- What the table should contain for the given users, computed from the source tables
+CREATE FUNCTION effective_permissions_of(p_user_ids UUID[])
+RETURNS TABLE (user_id UUID, permission_code VARCHAR)
+LANGUAGE sql STABLE AS $$
+    SELECT u.id, p.code
+    FROM users u
+    JOIN role_permissions rp ON rp.role = u.role
+    JOIN permissions p ON p.id = rp.permission_id
+    WHERE u.id = ANY (p_user_ids)
+    UNION
+    SELECT ug.user_id, p.code
+    FROM user_groups ug
+    JOIN group_permissions gp ON gp.group_id = ug.group_id
+    JOIN permissions p ON p.id = gp.permission_id
+    WHERE ug.user_id = ANY (p_user_ids)
+$$;
+
+-- Applies only the difference, so unchanged grants are not rewritten
+CREATE FUNCTION refresh_user_effective_permissions(p_user_ids UUID[])
+RETURNS void
+LANGUAGE sql AS $$
+    DELETE FROM user_effective_permissions m
+    WHERE m.user_id = ANY (p_user_ids)
+      AND NOT EXISTS (
+          SELECT 1 FROM effective_permissions_of(p_user_ids) e
+          WHERE e.user_id = m.user_id AND e.permission_code = m.permission_code
+      );
+    INSERT INTO user_effective_permissions (user_id, permission_code)
+    SELECT e.user_id, e.permission_code FROM effective_permissions_of(p_user_ids) e
+    ON CONFLICT DO NOTHING;
+$$;
+
+CREATE FUNCTION trg_user_groups_effective_permissions() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM refresh_user_effective_permissions(ARRAY[OLD.user_id]);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM refresh_user_effective_permissions(ARRAY[NEW.user_id]);
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+CREATE FUNCTION trg_group_permissions_effective_permissions() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM refresh_user_effective_permissions(
+            ARRAY(SELECT user_id FROM user_groups WHERE group_id = OLD.group_id));
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM refresh_user_effective_permissions(
+            ARRAY(SELECT user_id FROM user_groups WHERE group_id = NEW.group_id));
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+CREATE FUNCTION trg_role_permissions_effective_permissions() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM refresh_user_effective_permissions(ARRAY(SELECT id FROM users WHERE role = OLD.role));
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM refresh_user_effective_permissions(ARRAY(SELECT id FROM users WHERE role = NEW.role));
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+CREATE FUNCTION trg_users_effective_permissions() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    PERFORM refresh_user_effective_permissions(ARRAY[NEW.id]);
+    RETURN NULL;
+END;
+$$;
+
+CREATE FUNCTION trg_permissions_effective_permissions() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    UPDATE user_effective_permissions SET permission_code = NEW.code WHERE permission_code = OLD.code;
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER user_groups_effective_permissions
+    AFTER INSERT OR UPDATE OR DELETE ON user_groups
+    FOR EACH ROW EXECUTE FUNCTION trg_user_groups_effective_permissions();
+
+CREATE TRIGGER group_permissions_effective_permissions
+    AFTER INSERT OR UPDATE OR DELETE ON group_permissions
+    FOR EACH ROW EXECUTE FUNCTION trg_group_permissions_effective_permissions();
+
+CREATE TRIGGER role_permissions_effective_permissions
+    AFTER INSERT OR UPDATE OR DELETE ON role_permissions
+    FOR EACH ROW EXECUTE FUNCTION trg_role_permissions_effective_permissions();
+
+CREATE TRIGGER users_effective_permissions
+    AFTER INSERT OR UPDATE OF role ON users
+    FOR EACH ROW EXECUTE FUNCTION trg_users_effective_permissions();
+
+CREATE TRIGGER permissions_effective_permissions
+    AFTER UPDATE OF code ON permissions
+    FOR EACH ROW WHEN (OLD.code IS DISTINCT FROM NEW.code)
+    EXECUTE FUNCTION trg_permissions_effective_permissions();
+
+CREATE FUNCTION rebuild_user_effective_permissions() RETURNS bigint
+LANGUAGE plpgsql AS $$
+DECLARE
+    inserted bigint;
+BEGIN
+    LOCK TABLE user_effective_permissions IN EXCLUSIVE MODE;
+    DELETE FROM user_effective_permissions;
+    INSERT INTO user_effective_permissions (user_id, permission_code)
+    SELECT e.user_id, e.permission_code FROM effective_permissions_of(ARRAY(SELECT id FROM users)) e;
+    GET DIAGNOSTICS inserted = ROW_COUNT;
+    RETURN inserted;
+END;
+$$;
+
+-- Rows that differ from what the source tables imply; empty when consistent
+CREATE FUNCTION check_user_effective_permissions()
+RETURNS TABLE (user_id UUID, permission_code VARCHAR, problem TEXT)
+LANGUAGE sql STABLE AS $$
+    WITH expected AS (
+        SELECT * FROM effective_permissions_of(ARRAY(SELECT id FROM users))
+    )
+    SELECT e.user_id, e.permission_code, 'missing'
+    FROM expected e
+    WHERE NOT EXISTS (
+        SELECT 1 FROM user_effective_permissions m
+        WHERE m.user_id = e.user_id AND m.permission_code = e.permission_code
+    )
+    UNION ALL
+    SELECT m.user_id, m.permission_code, 'unexpected'
+    FROM user_effective_permissions m
+    WHERE NOT EXISTS (
+        SELECT 1 FROM expected e
+        WHERE e.user_id = m.user_id AND e.permission_code = m.permission_code
+    )
+$$;
+
+SELECT rebuild_user_effective_permissions();
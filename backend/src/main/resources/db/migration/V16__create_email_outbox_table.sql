@@ -0,0 +1,18 @@
+-- V16: Transactional email outbox. Rows are written in the business transaction and
+-- delivered by EmailOutboxDispatcher, which claims due rows with FOR UPDATE SKIP LOCKED
+-- so several nodes can dispatch concurrently.
+CREATE TABLE email_outbox (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    template VARCHAR(50) NOT NULL,
+    recipient VARCHAR(255) NOT NULL,
+    payload TEXT,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING' CHECK (status IN ('PENDING', 'SENT', 'FAILED')),
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    last_error VARCHAR(1000),
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    sent_at TIMESTAMPTZ
+);
+
+CREATE INDEX idx_email_outbox_due ON email_outbox (next_attempt_at) WHERE status = 'PENDING';
+CREATE INDEX idx_email_outbox_sent_at ON email_outbox (sent_at) WHERE status = 'SENT';
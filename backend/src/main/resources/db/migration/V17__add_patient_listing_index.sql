@@ -0,0 +1,4 @@
+-- V17: Keyset pagination for GET /api/v1/patients. The sort key is (last_name, first_name, user_id);
+-- the remaining listed profile columns are included so the profile side never touches the heap.
+CREATE INDEX idx_patient_profiles_listing ON patient_profiles (last_name, first_name, user_id)
+    INCLUDE (id_type, id_number, date_of_birth, created_at);
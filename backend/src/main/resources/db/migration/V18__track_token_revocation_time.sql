@@ -0,0 +1,11 @@
+-- V18: Record when a refresh token was revoked and a reset token was used, so purge
+-- retention runs from that moment instead of from creation. Existing rows are stamped
+-- with the migration time, which only delays their purge by one retention period.
+
+ALTER TABLE refresh_tokens ADD COLUMN revoked_at TIMESTAMPTZ;
+UPDATE refresh_tokens SET revoked_at = now() WHERE revoked = true;
+CREATE INDEX idx_refresh_tokens_revoked_at ON refresh_tokens (revoked_at) WHERE revoked = true;
+
+ALTER TABLE password_reset_tokens ADD COLUMN used_at TIMESTAMPTZ;
+UPDATE password_reset_tokens SET used_at = now() WHERE used = true;
+CREATE INDEX idx_password_reset_used_at ON password_reset_tokens (used_at) WHERE used = true;
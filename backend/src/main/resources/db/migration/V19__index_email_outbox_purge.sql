@@ -0,0 +1,5 @@
+-- V19: The outbox purge deletes finished rows by created_at, so the V16 index on sent_at
+-- was never used. Index what the purge actually filters on.
+
+DROP INDEX idx_email_outbox_sent_at;
+CREATE INDEX idx_email_outbox_finished_created ON email_outbox (created_at) WHERE status <> 'PENDING';
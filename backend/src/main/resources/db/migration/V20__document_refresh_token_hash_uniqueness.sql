@@ -0,0 +1,9 @@
+-- V20: V12 had to widen the token_hash unique constraint to (token_hash, expires_at),
+-- because unique constraints on a partitioned table must include the partition key.
+-- The hash input is the whole signed token, which embeds expires_at, so two rows can
+-- only share a token_hash if they also share expires_at: the composite constraint is
+-- as strong as a global one for every token RefreshTokenCodec issues. Record that where
+-- the next schema change will see it.
+COMMENT ON CONSTRAINT uq_refresh_tokens_token_hash ON refresh_tokens IS
+    'Global token_hash uniqueness: the hashed token embeds expires_at (RefreshTokenCodec), '
+    'so equal hashes imply equal expires_at. Keep expires_at in the token if the format changes.';
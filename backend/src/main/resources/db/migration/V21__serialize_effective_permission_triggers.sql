@@ -0,0 +1,125 @@
+-- V21: Close the write skew between the V15 triggers and stop firing them per imported user.
+--
+-- A membership change and a grant change on the same group (or a user's role and that
+-- role's grants) each recomputed from a snapshot that could not see the other's
+-- uncommitted row, so the later commit left a stale materialized row. Both sides now take
+-- a transaction-scoped advisory lock on the group or role before reading. Under READ
+-- COMMITTED the statements that follow take a fresh snapshot and see the other side once
+-- it has committed. Locks are taken in sorted order to avoid deadlocks between multi-key
+-- statements.
+--
+-- The users INSERT trigger was per row, which refreshed every row of a bulk patient import
+-- one by one. A new user cannot have group memberships yet, so it is now a statement-level
+-- trigger over the transition table that inserts the role grants in one statement. Roles
+-- without grants insert nothing. Role changes are rare and stay per row, limited to
+-- actual changes.
+
+CREATE FUNCTION lock_effective_permissions(p_kind TEXT, p_keys TEXT[])
+RETURNS void
+LANGUAGE plpgsql AS $$
+DECLARE
+    lock_key TEXT;
+BEGIN
+    FOR lock_key IN SELECT DISTINCT u.k FROM unnest(p_keys) AS u(k) WHERE u.k IS NOT NULL ORDER BY u.k LOOP
+        PERFORM pg_advisory_xact_lock(
+            hashtextextended('user_effective_permissions:' || p_kind || ':' || lock_key, 0));
+    END LOOP;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION trg_user_groups_effective_permissions() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        PERFORM lock_effective_permissions('group', ARRAY[NEW.group_id::text]);
+    ELSIF TG_OP = 'UPDATE' THEN
+        PERFORM lock_effective_permissions('group', ARRAY[OLD.group_id::text, NEW.group_id::text]);
+    ELSE
+        PERFORM lock_effective_permissions('group', ARRAY[OLD.group_id::text]);
+    END IF;
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM refresh_user_effective_permissions(ARRAY[OLD.user_id]);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM refresh_user_effective_permissions(ARRAY[NEW.user_id]);
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION trg_group_permissions_effective_permissions() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        PERFORM lock_effective_permissions('group', ARRAY[NEW.group_id::text]);
+    ELSIF TG_OP = 'UPDATE' THEN
+        PERFORM lock_effective_permissions('group', ARRAY[OLD.group_id::text, NEW.group_id::text]);
+    ELSE
+        PERFORM lock_effective_permissions('group', ARRAY[OLD.group_id::text]);
+    END IF;
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM refresh_user_effective_permissions(
+            ARRAY(SELECT user_id FROM user_groups WHERE group_id = OLD.group_id));
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM refresh_user_effective_permissions(
+            ARRAY(SELECT user_id FROM user_groups WHERE group_id = NEW.group_id));
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION trg_role_permissions_effective_permissions() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        PERFORM lock_effective_permissions('role', ARRAY[NEW.role::text]);
+    ELSIF TG_OP = 'UPDATE' THEN
+        PERFORM lock_effective_permissions('role', ARRAY[OLD.role::text, NEW.role::text]);
+    ELSE
+        PERFORM lock_effective_permissions('role', ARRAY[OLD.role::text]);
+    END IF;
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM refresh_user_effective_permissions(ARRAY(SELECT id FROM users WHERE role = OLD.role));
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM refresh_user_effective_permissions(ARRAY(SELECT id FROM users WHERE role = NEW.role));
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION trg_users_effective_permissions() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    PERFORM lock_effective_permissions('role', ARRAY[OLD.role::text, NEW.role::text]);
+    PERFORM refresh_user_effective_permissions(ARRAY[NEW.id]);
+    RETURN NULL;
+END;
+$$;
+
+CREATE FUNCTION trg_users_insert_effective_permissions() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    PERFORM lock_effective_permissions('role', ARRAY(SELECT DISTINCT role::text FROM new_users));
+    INSERT INTO user_effective_permissions (user_id, permission_code)
+    SELECT n.id, p.code
+    FROM new_users n
+    JOIN role_permissions rp ON rp.role = n.role
+    JOIN permissions p ON p.id = rp.permission_id
+    ON CONFLICT DO NOTHING;
+    RETURN NULL;
+END;
+$$;
+
+DROP TRIGGER users_effective_permissions ON users;
+
+CREATE TRIGGER users_effective_permissions
+    AFTER UPDATE OF role ON users
+    FOR EACH ROW WHEN (OLD.role IS DISTINCT FROM NEW.role)
+    EXECUTE FUNCTION trg_users_effective_permissions();
+
+CREATE TRIGGER users_insert_effective_permissions
+    AFTER INSERT ON users
+    REFERENCING NEW TABLE AS new_users
+    FOR EACH STATEMENT EXECUTE FUNCTION trg_users_insert_effective_permissions();
@@ -0,0 +1,21 @@
+-- V22: Patient import jobs, so any node can answer the status endpoint and a job survives
+-- the restart of the node that ran it (as FAILED: the spooled upload is node-local).
+-- heartbeat_at is refreshed by the running node; PatientImportJobService fails jobs whose
+-- heartbeat stopped.
+CREATE TABLE patient_import_jobs (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    submitted_by UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    state VARCHAR(20) NOT NULL CHECK (state IN ('QUEUED', 'RUNNING', 'COMPLETED', 'FAILED')),
+    submitted_at TIMESTAMPTZ NOT NULL,
+    started_at TIMESTAMPTZ,
+    finished_at TIMESTAMPTZ,
+    heartbeat_at TIMESTAMPTZ NOT NULL,
+    rows_processed INT NOT NULL DEFAULT 0,
+    result TEXT,
+    error VARCHAR(1000)
+);
+
+CREATE INDEX idx_patient_import_jobs_active ON patient_import_jobs (heartbeat_at)
+    WHERE state IN ('QUEUED', 'RUNNING');
+CREATE INDEX idx_patient_import_jobs_finished_at ON patient_import_jobs (finished_at)
+    WHERE finished_at IS NOT NULL;
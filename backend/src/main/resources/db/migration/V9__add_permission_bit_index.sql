@@ -0,0 +1,31 @@
+-- V9: Stable bit index per permission for compact token claims
+CREATE SEQUENCE permission_bit_index_seq MINVALUE 0 START WITH 0;
+
+ALTER TABLE permissions ADD COLUMN bit_index SMALLINT;
+
+-- Seeded permissions get fixed bits in seed order so every node agrees on the mapping
+UPDATE permissions SET bit_index = CASE code
+    WHEN 'OWN_PROFILE_VIEW' THEN 0
+    WHEN 'OWN_PROFILE_EDIT' THEN 1
+    WHEN 'OWN_RESULTS_VIEW' THEN 2
+    WHEN 'PASSWORD_CHANGE' THEN 3
+    WHEN 'PATIENT_LIST' THEN 4
+    WHEN 'PATIENT_VIEW' THEN 5
+    WHEN 'PATIENT_CREATE' THEN 6
+    WHEN 'RESULTS_LIST' THEN 7
+    WHEN 'RESULTS_UPLOAD' THEN 8
+    WHEN 'EMPLOYEE_MANAGE' THEN 9
+    WHEN 'GROUP_MANAGE' THEN 10
+    WHEN 'AUDIT_VIEW' THEN 11
+    WHEN 'SETTINGS_MANAGE' THEN 12
+END;
+
+SELECT setval('permission_bit_index_seq', (SELECT COALESCE(MAX(bit_index), -1) + 1 FROM permissions), false);
+
+-- Anything added outside the seed is appended; bits are never reused
+UPDATE permissions SET bit_index = nextval('permission_bit_index_seq') WHERE bit_index IS NULL;
+
+ALTER TABLE permissions ALTER COLUMN bit_index SET DEFAULT nextval('permission_bit_index_seq');
+ALTER TABLE permissions ALTER COLUMN bit_index SET NOT NULL;
+ALTER TABLE permissions ADD CONSTRAINT uq_permissions_bit_index UNIQUE (bit_index);
+ALTER SEQUENCE permission_bit_index_seq OWNED BY permissions.bit_index;
@@ -16,6 +16,9 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -64,6 +67,18 @@ class AuthControllerTest {
             .andExpect(jsonPath("$.error").value("INVALID_CREDENTIALS"));
     }
 
+    @Test
+    void login_whenRateLimited_returns401WithoutStartingLogin() throws Exception {
+        doThrow(new BadCredentialsException("Too many login attempts")).when(authService).checkLoginRateLimit(any());
+
+        mockMvc.perform(post("/api/v1/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"test@example.com\",\"password\":\"password123\"}"))
+            .andExpect(status().isUnauthorized());
+
+        verify(authService, never()).login(any());
+    }
+
     @Test
     void login_withInvalidEmail_returns400() throws Exception {
         mockMvc.perform(post("/api/v1/auth/login")
@@ -94,6 +109,18 @@ class AuthControllerTest {
             .andExpect(jsonPath("$.expiresIn").value(900));
     }
 
+    @Test
+    void refresh_sharedWithAnotherRotation_leavesTheCookieAlone() throws Exception {
+        RefreshResponse response = new RefreshResponse("new-token", 900);
+        when(authService.refresh(any())).thenReturn(new AuthService.RefreshResult(response, null));
+
+        mockMvc.perform(post("/api/v1/auth/refresh")
+                .cookie(new jakarta.servlet.http.Cookie("refresh_token", "valid-token")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.accessToken").value("new-token"))
+            .andExpect(header().doesNotExist("Set-Cookie"));
+    }
+
     @Test
     void passwordResetRequest_withValidEmail_returns200() throws Exception {
         mockMvc.perform(post("/api/v1/auth/password-reset/request")
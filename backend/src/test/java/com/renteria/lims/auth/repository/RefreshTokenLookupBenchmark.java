@@ -0,0 +1,106 @@
+package com.renteria.lims.auth.repository;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup-by-hash latency on the pre-V12 plain table versus the monthly partitioned layout.
+ * Needs a scratch PostgreSQL database ({@code -Dbench.jdbc.url=...}); it creates and drops
+ * its own schema. See the README "Benchmarks" section.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RefreshTokenLookupBenchmark {
+
+    private static final String SCHEMA = "bench_refresh_lookup";
+
+    @Param({"plain", "partitioned"})
+    public String layout;
+
+    @Param({"1000000"})
+    public int rows;
+
+    private Connection connection;
+    private PreparedStatement lookup;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+            System.getProperty("bench.jdbc.url", "jdbc:postgresql://localhost:5432/lims"),
+            System.getProperty("bench.jdbc.user", "lims"),
+            System.getProperty("bench.jdbc.password", "lims"));
+
+        try (Statement st = connection.createStatement()) {
+            st.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+            st.execute("CREATE SCHEMA " + SCHEMA);
+            st.execute("SET search_path TO " + SCHEMA);
+
+            String columns = """
+                id UUID NOT NULL DEFAULT gen_random_uuid(),
+                user_id UUID NOT NULL,
+                token_hash BYTEA NOT NULL,
+                family_id UUID NOT NULL,
+                expires_at TIMESTAMPTZ NOT NULL,
+                revoked BOOLEAN NOT NULL DEFAULT false,
+                created_at TIMESTAMPTZ NOT NULL DEFAULT now()
+                """;
+            if ("plain".equals(layout)) {
+                st.execute("CREATE TABLE refresh_tokens (" + columns + ", PRIMARY KEY (id), UNIQUE (token_hash))");
+            } else {
+                st.execute("CREATE TABLE refresh_tokens (" + columns
+                    + ", PRIMARY KEY (id, expires_at), UNIQUE (token_hash, expires_at)) PARTITION BY RANGE (expires_at)");
+                st.execute("""
+                    DO $$
+                    DECLARE m timestamp;
+                    BEGIN
+                        FOR i IN -3..1 LOOP
+                            m := date_trunc('month', now() AT TIME ZONE 'UTC') + make_interval(months => i);
+                            EXECUTE format('CREATE TABLE %I PARTITION OF refresh_tokens FOR VALUES FROM (%L) TO (%L)',
+                                'refresh_tokens_p' || to_char(m, 'YYYYMM'), m AT TIME ZONE 'UTC',
+                                (m + interval '1 month') AT TIME ZONE 'UTC');
+                        END LOOP;
+                    END $$
+                    """);
+            }
+            // Spread expiries over the last ~3 months so several partitions hold data
+            st.execute("""
+                INSERT INTO refresh_tokens (user_id, token_hash, family_id, expires_at, revoked)
+                SELECT gen_random_uuid(), sha256(g::text::bytea), gen_random_uuid(),
+                       now() - (random() * interval '80 days') + interval '7 days', g % 4 <> 0
+                FROM generate_series(1, %d) g
+                """.formatted(rows));
+            st.execute("ANALYZE refresh_tokens");
+        }
+
+        lookup = connection.prepareStatement(
+            "SELECT id, user_id, family_id, revoked, expires_at FROM refresh_tokens WHERE token_hash = sha256(?::text::bytea)");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public boolean findByTokenHash() throws SQLException {
+        lookup.setInt(1, ThreadLocalRandom.current().nextInt(1, rows + 1));
+        try (ResultSet rs = lookup.executeQuery()) {
+            return rs.next();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.renteria.lims.auth.repository;
+
+import com.renteria.lims.auth.security.RefreshTokenCodec;
+import com.renteria.lims.auth.service.RefreshTokenService;
+import com.renteria.lims.config.JwtConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs {@link RefreshTokenRepository#rotate} against the real V12 partitioned table. The
+ * data-modifying CTE is PostgreSQL-only, so this is skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class RefreshTokenRotationMigrationTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "none");
+        registry.add("spring.jpa.properties.hibernate.dialect", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("spring.flyway.enabled", () -> "true");
+    }
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private RefreshTokenService refreshTokenService;
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        JwtConfig config = new JwtConfig();
+        config.setSecret("test-secret-minimum-32-chars-long!!");
+        config.setRefreshTokenExpiryMs(604800000);
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, config, new RefreshTokenCodec(config));
+        userId = jdbcTemplate.queryForObject(
+            "INSERT INTO users (email, password_hash, role) VALUES (?, 'hash', 'PATIENT') RETURNING id",
+            UUID.class, "rotation-" + UUID.randomUUID() + "@example.com");
+    }
+
+    private boolean isRevoked(UUID tokenId) {
+        return jdbcTemplate.queryForObject("SELECT revoked FROM refresh_tokens WHERE id = ?", Boolean.class, tokenId);
+    }
+
+    @Test
+    void rotate_revokesThePresentedTokenAndInsertsItsSuccessor() {
+        RefreshTokenService.RefreshTokenResult issued = refreshTokenService.createRefreshToken(userId);
+        refreshTokenRepository.flush();
+
+        RefreshTokenService.RefreshTokenResult rotated =
+            refreshTokenService.rotateRefreshToken(issued.rawToken()).orElseThrow();
+
+        assertTrue(isRevoked(issued.token().getId()));
+        assertFalse(isRevoked(rotated.token().getId()));
+        assertEquals(issued.token().getFamilyId(), jdbcTemplate.queryForObject(
+            "SELECT family_id FROM refresh_tokens WHERE id = ?", UUID.class, rotated.token().getId()));
+    }
+
+    @Test
+    void rotate_twiceWithTheSameToken_isReuseAndRevokesTheFamily() {
+        RefreshTokenService.RefreshTokenResult issued = refreshTokenService.createRefreshToken(userId);
+        refreshTokenRepository.flush();
+        RefreshTokenService.RefreshTokenResult rotated =
+            refreshTokenService.rotateRefreshToken(issued.rawToken()).orElseThrow();
+
+        RefreshTokenCodec.Claims claims = refreshTokenService.verify(issued.rawToken()).orElseThrow();
+        RefreshTokenRepository.RotationRow replay = refreshTokenRepository.rotate(
+            claims.id(), claims.expiresAt(), issued.token().getTokenHash(),
+            UUID.randomUUID(), new byte[32], claims.expiresAt()).orElseThrow();
+        assertTrue(replay.isRevoked());
+        assertNull(replay.getNewTokenId());
+
+        assertTrue(refreshTokenService.rotateRefreshToken(issued.rawToken()).isEmpty());
+
+        assertTrue(isRevoked(rotated.token().getId()));
+        assertEquals(0, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM refresh_tokens WHERE family_id = ? AND revoked = false",
+            Integer.class, issued.token().getFamilyId()));
+    }
+
+    @Test
+    void rotate_withUnknownToken_returnsNoRow() {
+        RefreshTokenService.RefreshTokenResult issued = refreshTokenService.createRefreshToken(userId);
+        refreshTokenRepository.flush();
+        RefreshTokenCodec.Claims claims = refreshTokenService.verify(issued.rawToken()).orElseThrow();
+
+        assertTrue(refreshTokenRepository.rotate(claims.id(), claims.expiresAt(), new byte[32],
+            UUID.randomUUID(), new byte[32], claims.expiresAt()).isEmpty());
+    }
+}
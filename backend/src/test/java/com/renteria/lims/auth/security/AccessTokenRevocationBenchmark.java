@@ -0,0 +1,61 @@
+package com.renteria.lims.auth.security;
+
+import com.renteria.lims.auth.model.RevokedAccessToken;
+import com.renteria.lims.auth.repository.RevokedAccessTokenRepository;
+import com.renteria.lims.common.cluster.ClusterEventBus;
+import com.renteria.lims.config.JwtConfig;
+import com.renteria.lims.user.model.Role;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cost of the per-request revocation check with a populated denylist.
+ * See the README "Benchmarks" section for how to run it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccessTokenRevocationBenchmark {
+
+    @Param({"1000", "100000"})
+    private int revokedEntries;
+
+    private AccessTokenRevocationStore store;
+    private JwtPrincipal principal;
+
+    @Setup
+    public void setUp() {
+        Instant now = Instant.now();
+        List<RevokedAccessToken> rows = new ArrayList<>(revokedEntries);
+        for (int i = 0; i < revokedEntries; i++) {
+            rows.add(new RevokedAccessToken(UUID.randomUUID(), now, now.plusSeconds(900)));
+        }
+        RevokedAccessTokenRepository repository = mock(RevokedAccessTokenRepository.class);
+        when(repository.findByExpiresAtAfter(any())).thenReturn(rows);
+
+        JwtConfig config = new JwtConfig();
+        config.setAccessTokenExpiryMs(900000);
+        store = new AccessTokenRevocationStore(repository, config, mock(ClusterEventBus.class), new SimpleMeterRegistry());
+        store.reload();
+        principal = new JwtPrincipal(UUID.randomUUID(), UUID.randomUUID(), "admin@renteria.com", Role.ADMIN,
+            PermissionBits.EMPTY, List.of(), now, now.plusSeconds(900));
+    }
+
+    @Benchmark
+    public boolean isRevoked() {
+        return store.isRevoked(principal);
+    }
+}
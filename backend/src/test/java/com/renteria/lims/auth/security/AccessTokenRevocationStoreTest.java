@@ -0,0 +1,184 @@
+package com.renteria.lims.auth.security;
+
+import com.renteria.lims.auth.model.RevokedAccessToken;
+import com.renteria.lims.auth.repository.RevokedAccessTokenRepository;
+import com.renteria.lims.common.cluster.ClusterEventBus;
+import com.renteria.lims.config.JwtConfig;
+import com.renteria.lims.user.model.Role;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AccessTokenRevocationStoreTest {
+
+    @Mock
+    private RevokedAccessTokenRepository repository;
+
+    @Mock
+    private ClusterEventBus eventBus;
+
+    private AccessTokenRevocationStore store;
+
+    @BeforeEach
+    void setUp() {
+        JwtConfig config = new JwtConfig();
+        config.setAccessTokenExpiryMs(900000);
+        store = new AccessTokenRevocationStore(repository, config, eventBus, new SimpleMeterRegistry());
+    }
+
+    private static JwtPrincipal principal(UUID userId, Instant issuedAt) {
+        return new JwtPrincipal(userId, UUID.randomUUID(), "test@example.com", Role.PATIENT, PermissionBits.EMPTY,
+            List.of(), issuedAt, issuedAt.plusSeconds(900));
+    }
+
+    @Test
+    void isRevoked_withoutRevocations_returnsFalse() {
+        assertFalse(store.isRevoked(principal(UUID.randomUUID(), Instant.now())));
+    }
+
+    @Test
+    void revokeToken_rejectsOnlyThatToken() {
+        UUID userId = UUID.randomUUID();
+        JwtPrincipal revoked = principal(userId, Instant.now().minusSeconds(60));
+        JwtPrincipal sibling = principal(userId, Instant.now().minusSeconds(60));
+
+        store.revokeToken(revoked);
+
+        assertTrue(store.isRevoked(revoked));
+        assertFalse(store.isRevoked(sibling));
+        verify(eventBus).publish(eq("access-token-revoked"), any());
+    }
+
+    @Test
+    void clusterEvent_fromOtherNode_appliesRevocation() {
+        ArgumentCaptor<ClusterEventBus.Listener> listener = ArgumentCaptor.forClass(ClusterEventBus.Listener.class);
+        verify(eventBus).subscribe(eq("access-token-revoked"), listener.capture());
+        UUID userId = UUID.randomUUID();
+
+        listener.getValue().onEvent(userId + "," + Instant.now().toEpochMilli());
+
+        assertTrue(store.isRevoked(principal(userId, Instant.now().minusSeconds(60))));
+    }
+
+    @Test
+    void revokeUser_rejectsTokensIssuedBeforeButNotAfter() {
+        UUID userId = UUID.randomUUID();
+        JwtPrincipal before = principal(userId, Instant.now().minusSeconds(60));
+
+        store.revokeUser(userId);
+
+        assertTrue(store.isRevoked(before));
+        assertFalse(store.isRevoked(principal(userId, Instant.now().plusSeconds(5))));
+        assertFalse(store.isRevoked(principal(UUID.randomUUID(), Instant.now().minusSeconds(60))));
+    }
+
+    @Test
+    void revokeUser_thenLoginWithinTheSameSecond_isAccepted() {
+        UUID userId = UUID.randomUUID();
+        JwtPrincipal before = principal(userId, Instant.now().truncatedTo(ChronoUnit.SECONDS).minusSeconds(1));
+
+        store.revokeUser(userId);
+        // iat is truncated to seconds, like the claim JwtService writes
+        JwtPrincipal relogin = principal(userId, Instant.now().truncatedTo(ChronoUnit.SECONDS));
+
+        assertTrue(store.isRevoked(before));
+        assertFalse(store.isRevoked(relogin));
+    }
+
+    @Test
+    void revokeToken_issuedInTheCurrentSecond_isRejected() {
+        JwtPrincipal fresh = principal(UUID.randomUUID(), Instant.now().truncatedTo(ChronoUnit.SECONDS));
+
+        store.revokeToken(fresh);
+
+        assertTrue(store.isRevoked(fresh));
+    }
+
+    @Test
+    void reload_picksUpRevocationsFromOtherNodes() {
+        UUID userId = UUID.randomUUID();
+        Instant now = Instant.now();
+        when(repository.findByExpiresAtAfter(any()))
+            .thenReturn(List.of(new RevokedAccessToken(userId, now, now.plusSeconds(900))));
+
+        store.reload();
+
+        assertTrue(store.isRevoked(principal(userId, now.minusSeconds(1))));
+    }
+
+    @Test
+    void reload_keepsRecentLocalRevocationsMissingFromTheQuery() {
+        UUID userId = UUID.randomUUID();
+        store.revokeUser(userId);
+        when(repository.findByExpiresAtAfter(any())).thenReturn(List.of());
+
+        store.reload();
+
+        assertTrue(store.isRevoked(principal(userId, Instant.now().minusSeconds(60))));
+    }
+
+    @Test
+    void revokeUser_insideTransaction_appliesOnlyAfterCommit() {
+        UUID userId = UUID.randomUUID();
+        JwtPrincipal before = principal(userId, Instant.now().minusSeconds(60));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            store.revokeUser(userId);
+
+            assertFalse(store.isRevoked(before));
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertTrue(store.isRevoked(before));
+    }
+
+    @Test
+    void revokeUser_insideRolledBackTransaction_isNotApplied() {
+        UUID userId = UUID.randomUUID();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            store.revokeUser(userId);
+            TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertFalse(store.isRevoked(principal(userId, Instant.now().minusSeconds(60))));
+    }
+
+    @Test
+    void revokeToken_beyondFilterCapacity_keepsEveryEntry() {
+        List<JwtPrincipal> revoked = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            JwtPrincipal principal = principal(UUID.randomUUID(), Instant.now().minusSeconds(60));
+            store.revokeToken(principal);
+            revoked.add(principal);
+        }
+
+        assertTrue(revoked.stream().allMatch(store::isRevoked));
+        assertFalse(store.isRevoked(principal(UUID.randomUUID(), Instant.now().minusSeconds(60))));
+    }
+}
@@ -0,0 +1,111 @@
+package com.renteria.lims.auth.security;
+
+import com.renteria.lims.config.SecurityConfigProps;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Several independent application contexts ("nodes") sharing one database must
+ * enforce a single limit between them.
+ */
+class AuthRateLimiterClusterTest {
+
+    private static final String URL = "jdbc:h2:mem:rate-limit-cluster;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+    private final List<AnnotationConfigApplicationContext> nodes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbc = new JdbcTemplate(new DriverManagerDataSource(URL));
+        jdbc.execute("DROP TABLE IF EXISTS rate_limit_buckets");
+        jdbc.execute("CREATE TABLE rate_limit_buckets (id VARCHAR(255) PRIMARY KEY, state BYTEA, "
+            + "updated_at TIMESTAMP WITH TIME ZONE DEFAULT now() NOT NULL)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(AnnotationConfigApplicationContext::close);
+    }
+
+    @Test
+    void loginLimit_isSharedAcrossNodes() {
+        List<AuthRateLimiter> limiters = startNodes(3, 1);
+
+        int allowed = 0;
+        for (int i = 0; i < 12; i++) {
+            if (limiters.get(i % limiters.size()).tryConsumeLogin("victim@example.com")) {
+                allowed++;
+            }
+        }
+
+        assertEquals(5, allowed);
+    }
+
+    @Test
+    void loginLimit_withLocalBatching_overshootIsBounded() {
+        int syncTokens = 2;
+        List<AuthRateLimiter> limiters = startNodes(3, syncTokens);
+
+        int allowed = 0;
+        for (int i = 0; i < 30; i++) {
+            if (limiters.get(i % limiters.size()).tryConsumeLogin("victim@example.com")) {
+                allowed++;
+            }
+        }
+
+        assertTrue(allowed >= 5, "allowed " + allowed);
+        assertTrue(allowed <= 5 + limiters.size() * syncTokens, "allowed " + allowed);
+    }
+
+    private List<AuthRateLimiter> startNodes(int count, long syncTokens) {
+        List<AuthRateLimiter> limiters = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+            context.registerBean("syncTokens", Long.class, () -> syncTokens);
+            context.register(NodeConfig.class);
+            context.refresh();
+            nodes.add(context);
+            limiters.add(context.getBean(AuthRateLimiter.class));
+        }
+        return limiters;
+    }
+
+    @Configuration
+    @Import(AuthRateLimiter.class)
+    static class NodeConfig {
+
+        @Bean
+        DataSource dataSource() {
+            return new DriverManagerDataSource(URL);
+        }
+
+        @Bean
+        SecurityConfigProps securityConfigProps(Long syncTokens) {
+            SecurityConfigProps props = new SecurityConfigProps();
+            props.setRateLimitBackend("jdbc");
+            props.setRateLimitSyncTokens(syncTokens);
+            props.setRateLimitSyncTimeoutMs(60_000);
+            return props;
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.renteria.lims.auth.security;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.renteria.lims.config.SecurityConfigProps;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ReadListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthThrottlingFilterTest {
+
+    private SecurityConfigProps props;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        props = new SecurityConfigProps();
+        props.setAuthThrottleIpLimit(100);
+        props.setAuthThrottleEmailLimit(2);
+        props.setAuthThrottleGlobalPerSecond(1000);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private AuthThrottlingFilter filter() {
+        return new AuthThrottlingFilter(props, new JsonFactory(), meterRegistry);
+    }
+
+    private static MockHttpServletRequest login(String email, String ip) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/auth/login");
+        request.setRemoteAddr(ip);
+        request.setContentType("application/json");
+        request.setContent(("{\"password\":\"x\",\"email\":\"" + email + "\"}").getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    @Test
+    void allowedRequest_reachesChainWithReplayableBody() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+
+        filter().doFilter(login("a@example.com", "10.0.0.1"), new MockHttpServletResponse(), chain);
+
+        assertNotNull(chain.getRequest());
+        String body = new String(chain.getRequest().getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(body.contains("a@example.com"));
+    }
+
+    @Test
+    void sameEmail_overLimit_isRejectedBeforeChain() throws Exception {
+        AuthThrottlingFilter filter = filter();
+        filter.doFilter(login("A@example.com", "10.0.0.1"), new MockHttpServletResponse(), new MockFilterChain());
+        filter.doFilter(login("a@example.com", "10.0.0.2"), new MockHttpServletResponse(), new MockFilterChain());
+
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(login("a@example.com", "10.0.0.3"), response, chain);
+
+        assertNull(chain.getRequest());
+        assertEquals(429, response.getStatus());
+        assertNotNull(response.getHeader("Retry-After"));
+        assertTrue(response.getContentAsString().contains("TOO_MANY_REQUESTS"));
+        assertEquals(1.0, meterRegistry.get("auth.throttle.rejected").tag("reason", "email").counter().count());
+    }
+
+    @Test
+    void sameIp_overLimit_isRejected() throws Exception {
+        props.setAuthThrottleIpLimit(1);
+        AuthThrottlingFilter filter = filter();
+        filter.doFilter(login("a@example.com", "10.0.0.1"), new MockHttpServletResponse(), new MockFilterChain());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(login("b@example.com", "10.0.0.1"), response, new MockFilterChain());
+
+        assertEquals(429, response.getStatus());
+    }
+
+    @Test
+    void nonCredentialEndpoints_doNotConsumeIpBudget() throws Exception {
+        props.setAuthThrottleIpLimit(1);
+        AuthThrottlingFilter filter = filter();
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletRequest refresh = new MockHttpServletRequest("POST", "/api/v1/auth/refresh");
+            refresh.setRemoteAddr("10.0.0.1");
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(refresh, new MockHttpServletResponse(), chain);
+            assertNotNull(chain.getRequest());
+        }
+
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(login("a@example.com", "10.0.0.1"), new MockHttpServletResponse(), chain);
+
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void passwordResetConfirm_isIpLimited() throws Exception {
+        props.setAuthThrottleIpLimit(1);
+        AuthThrottlingFilter filter = filter();
+        MockHttpServletRequest first = new MockHttpServletRequest("POST", "/api/v1/auth/password-reset/confirm");
+        first.setRemoteAddr("10.0.0.1");
+        filter.doFilter(first, new MockHttpServletResponse(), new MockFilterChain());
+
+        MockHttpServletRequest second = new MockHttpServletRequest("POST", "/api/v1/auth/password-reset/confirm");
+        second.setRemoteAddr("10.0.0.1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(second, response, new MockFilterChain());
+
+        assertEquals(429, response.getStatus());
+    }
+
+    @Test
+    void replayedBody_notifiesReadListener() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        filter().doFilter(login("a@example.com", "10.0.0.1"), new MockHttpServletResponse(), chain);
+        boolean[] allRead = {false};
+
+        chain.getRequest().getInputStream().setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() {
+            }
+
+            @Override
+            public void onAllDataRead() {
+                allRead[0] = true;
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+        });
+
+        assertTrue(allRead[0]);
+    }
+
+    @Test
+    void oversizedBody_isRejected() throws Exception {
+        MockHttpServletRequest request = login("a@example.com", "10.0.0.1");
+        request.setContent(new byte[AuthThrottlingFilter.MAX_BODY_BYTES + 1]);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter().doFilter(request, response, new MockFilterChain());
+
+        assertEquals(413, response.getStatus());
+    }
+}
@@ -0,0 +1,83 @@
+package com.renteria.lims.auth.security;
+
+import com.renteria.lims.common.exception.ServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        encoder.close();
+    }
+
+    @Test
+    void encode_delegatesAndRecordsLatency() {
+        encoder = new BoundedPasswordEncoder(new PlainEncoder(), 1, 1, 2, meterRegistry);
+
+        assertEquals("{plain}secret", encoder.encode("secret"));
+        assertTrue(encoder.matches("secret", "{plain}secret"));
+        assertEquals(1, meterRegistry.get("auth.password.hash.latency").tag("operation", "encode").timer().count());
+    }
+
+    @Test
+    void matches_whenPoolAndQueueAreFull_failsFastWithRetryAfter() throws Exception {
+        encoder = new BoundedPasswordEncoder(new BlockingEncoder(), 1, 1, 5, meterRegistry);
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("a"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("b"));
+        while (meterRegistry.get("auth.password.hash.queue.depth").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        ServiceBusyException ex = assertThrows(ServiceBusyException.class, () -> encoder.matches("c", "x"));
+        assertEquals(5, ex.getRetryAfterSeconds());
+        assertEquals(1, meterRegistry.get("auth.password.hash.rejected").counter().count());
+
+        release.countDown();
+        assertEquals("{plain}a", running.get(5, TimeUnit.SECONDS));
+        assertEquals("{plain}b", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    private static class PlainEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return "{plain}" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+
+    private class BlockingEncoder extends PlainEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.encode(rawPassword);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.renteria.lims.auth.security;
+
+import com.renteria.lims.auth.service.JwtService;
+import com.renteria.lims.common.cluster.ClusterEventBus;
+import com.renteria.lims.config.JwtConfig;
+import com.renteria.lims.user.model.Permission;
+import com.renteria.lims.user.model.Role;
+import com.renteria.lims.user.repository.PermissionRepository;
+import com.renteria.lims.user.service.PermissionRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the old three-parse filter path against the single verification.
+ * See the README "Benchmarks" section for how to run it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationBenchmark {
+
+    private static final List<String> ADMIN_PERMISSIONS = List.of(
+        "OWN_PROFILE_VIEW", "OWN_PROFILE_EDIT", "OWN_RESULTS_VIEW", "PASSWORD_CHANGE",
+        "PATIENT_LIST", "PATIENT_VIEW", "PATIENT_CREATE", "RESULTS_LIST", "RESULTS_UPLOAD",
+        "EMPLOYEE_MANAGE", "GROUP_MANAGE", "AUDIT_VIEW", "SETTINGS_MANAGE"
+    );
+
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        List<Permission> permissions = new ArrayList<>();
+        for (String code : ADMIN_PERMISSIONS) {
+            Permission permission = new Permission(code, code, "benchmark");
+            permission.setBitIndex(permissions.size());
+            permissions.add(permission);
+        }
+        PermissionRepository permissionRepository = mock(PermissionRepository.class);
+        when(permissionRepository.findAll()).thenReturn(permissions);
+        PermissionRegistry permissionRegistry = new PermissionRegistry(permissionRepository, event -> {}, mock(ClusterEventBus.class));
+        permissionRegistry.reload();
+
+        JwtConfig config = new JwtConfig();
+        config.setSecret(Base64.getEncoder().encodeToString("benchmark-secret-minimum-32-chars!!".getBytes()));
+        config.setAccessTokenExpiryMs(900000);
+        jwtService = new JwtService(config, permissionRegistry);
+        token = jwtService.generateAccessToken(UUID.randomUUID(), "admin@renteria.com", Role.ADMIN, Set.copyOf(ADMIN_PERMISSIONS));
+    }
+
+    @Benchmark
+    public void threeParses(Blackhole bh) {
+        if (jwtService.isTokenValid(token)) {
+            bh.consume(jwtService.extractUserId(token));
+            bh.consume(jwtService.extractPermissions(token));
+        }
+    }
+
+    @Benchmark
+    public JwtPrincipal singleVerification() {
+        return jwtService.verifyAccessToken(token);
+    }
+}
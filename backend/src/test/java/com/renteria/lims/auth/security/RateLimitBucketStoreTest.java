@@ -0,0 +1,53 @@
+package com.renteria.lims.auth.security;
+
+import io.github.bucket4j.Bucket;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitBucketStoreTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private RateLimitBucketStore store(long maxEntries) {
+        return new RateLimitBucketStore(key -> Bucket.builder().addLimit(AuthRateLimiter.loginBandwidth()).build(),
+            AuthRateLimiter.LOGIN_WINDOW,
+            maxEntries, nanos::get, Runnable::run);
+    }
+
+    @Test
+    void tryConsume_keepsLoginBandwidth() {
+        RateLimitBucketStore store = store(100);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(store.tryConsume("user@example.com"));
+        }
+        assertFalse(store.tryConsume("user@example.com"));
+        assertTrue(store.tryConsume("other@example.com"));
+    }
+
+    @Test
+    void tryConsume_manyDistinctKeys_staysWithinMaxEntries() {
+        RateLimitBucketStore store = store(100);
+
+        for (int i = 0; i < 10_000; i++) {
+            store.tryConsume("user-" + i + "@example.com");
+        }
+
+        assertTrue(store.estimatedSize() <= 100);
+    }
+
+    @Test
+    void idleBucket_expiresAfterRefillWindow() {
+        RateLimitBucketStore store = store(100);
+        store.tryConsume("user@example.com");
+        assertEquals(1, store.estimatedSize());
+
+        nanos.addAndGet(Duration.ofMinutes(15).plusSeconds(1).toNanos());
+
+        assertEquals(0, store.estimatedSize());
+    }
+}
@@ -0,0 +1,72 @@
+package com.renteria.lims.auth.security;
+
+import com.renteria.lims.config.JwtConfig;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RefreshTokenCodecTest {
+
+    private static RefreshTokenCodec codec(String secret) {
+        JwtConfig config = new JwtConfig();
+        config.setSecret(secret);
+        return new RefreshTokenCodec(config);
+    }
+
+    private final RefreshTokenCodec codec = codec("test-secret-minimum-32-chars-long!!");
+
+    @Test
+    void verify_issuedToken_returnsIdAndExpiry() {
+        UUID id = UUID.randomUUID();
+        Instant expiresAt = Instant.now().plus(7, ChronoUnit.DAYS).truncatedTo(ChronoUnit.SECONDS);
+
+        RefreshTokenCodec.Claims claims = codec.verify(codec.issue(id, expiresAt)).orElseThrow();
+
+        assertEquals(id, claims.id());
+        assertEquals(expiresAt, claims.expiresAt());
+    }
+
+    @Test
+    void issue_sameIdAndExpiry_producesDistinctTokens() {
+        UUID id = UUID.randomUUID();
+        Instant expiresAt = Instant.now().plus(1, ChronoUnit.DAYS);
+
+        assertNotEquals(codec.issue(id, expiresAt), codec.issue(id, expiresAt));
+    }
+
+    @Test
+    void verify_tamperedToken_isRejected() {
+        String token = codec.issue(UUID.randomUUID(), Instant.now().plus(1, ChronoUnit.DAYS));
+        char[] chars = token.toCharArray();
+        chars[5] = chars[5] == 'A' ? 'B' : 'A';
+
+        assertTrue(codec.verify(new String(chars)).isEmpty());
+    }
+
+    @Test
+    void verify_tokenFromOtherSecret_isRejected() {
+        String token = codec("another-secret-minimum-32-chars-long!")
+            .issue(UUID.randomUUID(), Instant.now().plus(1, ChronoUnit.DAYS));
+
+        assertTrue(codec.verify(token).isEmpty());
+    }
+
+    @Test
+    void verify_expiredToken_isRejected() {
+        String token = codec.issue(UUID.randomUUID(), Instant.now().minusSeconds(1));
+
+        assertTrue(codec.verify(token).isEmpty());
+    }
+
+    @Test
+    void verify_malformedInput_isRejected() {
+        assertTrue(codec.verify(null).isEmpty());
+        assertTrue(codec.verify("").isEmpty());
+        assertTrue(codec.verify(UUID.randomUUID().toString()).isEmpty());
+        assertTrue(codec.verify("!".repeat(98)).isEmpty());
+    }
+}
@@ -0,0 +1,98 @@
+package com.renteria.lims.auth.security;
+
+import com.renteria.lims.common.cluster.ClusterEventBus;
+import com.renteria.lims.user.model.Permission;
+import com.renteria.lims.user.model.Role;
+import com.renteria.lims.user.repository.PermissionRepository;
+import com.renteria.lims.user.service.PermissionRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authorization.method.AuthorizationManagerBeforeMethodInterceptor;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Per-call cost of {@link RequiresPermission} against the stock
+ * {@code @PreAuthorize("hasAuthority(...)")} for a caller with a full admin permission set.
+ * See the README "Benchmarks" section for how to run it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequiresPermissionBenchmark {
+
+    private static final List<String> ADMIN_PERMISSIONS = List.of(
+        "OWN_PROFILE_VIEW", "OWN_PROFILE_EDIT", "OWN_RESULTS_VIEW", "PASSWORD_CHANGE",
+        "PATIENT_LIST", "PATIENT_VIEW", "PATIENT_CREATE", "RESULTS_LIST", "RESULTS_UPLOAD",
+        "EMPLOYEE_MANAGE", "GROUP_MANAGE", "AUDIT_VIEW", "SETTINGS_MANAGE"
+    );
+
+    public static class Target {
+
+        @RequiresPermission("RESULTS_UPLOAD")
+        public int bitset() {
+            return 1;
+        }
+
+        @PreAuthorize("hasAuthority('RESULTS_UPLOAD')")
+        public int preAuthorize() {
+            return 1;
+        }
+    }
+
+    private Target bitsetProxy;
+    private Target preAuthorizeProxy;
+
+    @Setup
+    public void setUp() {
+        List<Permission> permissions = new ArrayList<>();
+        for (String code : ADMIN_PERMISSIONS) {
+            Permission permission = new Permission(code, code, "benchmark");
+            permission.setBitIndex(permissions.size());
+            permissions.add(permission);
+        }
+        PermissionRepository permissionRepository = mock(PermissionRepository.class);
+        when(permissionRepository.findAll()).thenReturn(permissions);
+        PermissionRegistry registry = new PermissionRegistry(permissionRepository, event -> {}, mock(ClusterEventBus.class));
+        registry.reload();
+        PermissionBits bits = registry.toBits(ADMIN_PERMISSIONS);
+
+        ProxyFactory bitsetFactory = new ProxyFactory(new Target());
+        bitsetFactory.setProxyTargetClass(true);
+        bitsetFactory.addAdvisor(RequiresPermissionInterceptor.advisor(() -> registry));
+        bitsetProxy = (Target) bitsetFactory.getProxy();
+
+        ProxyFactory preAuthorizeFactory = new ProxyFactory(new Target());
+        preAuthorizeFactory.setProxyTargetClass(true);
+        preAuthorizeFactory.addAdvisor(AuthorizationManagerBeforeMethodInterceptor.preAuthorize());
+        preAuthorizeProxy = (Target) preAuthorizeFactory.getProxy();
+
+        JwtPrincipal principal = new JwtPrincipal(UUID.randomUUID(), UUID.randomUUID(), "admin@renteria.com",
+            Role.ADMIN, bits, registry.authoritiesOf(bits), Instant.now(), Instant.now().plusSeconds(900));
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(principal, null, principal.authorities()));
+    }
+
+    @Benchmark
+    public int requiresPermission() {
+        return bitsetProxy.bitset();
+    }
+
+    @Benchmark
+    public int preAuthorize() {
+        return preAuthorizeProxy.preAuthorize();
+    }
+}
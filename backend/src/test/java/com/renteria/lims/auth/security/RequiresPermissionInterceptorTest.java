@@ -0,0 +1,190 @@
+package com.renteria.lims.auth.security;
+
+import com.renteria.lims.user.model.Role;
+import com.renteria.lims.user.service.PermissionRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Instant;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RequiresPermissionInterceptorTest {
+
+    public static class Guarded {
+
+        @RequiresPermission("PATIENT_VIEW")
+        public String view() {
+            return "ok";
+        }
+
+        @RequiresPermission({"PATIENT_VIEW", "RESULTS_UPLOAD"})
+        public String upload() {
+            return "ok";
+        }
+
+        @RequiresPermission(value = {"RESULTS_UPLOAD", "AUDIT_VIEW"}, any = true)
+        public String either() {
+            return "ok";
+        }
+
+        @RequiresPermission("NO_SUCH_PERMISSION")
+        public String unknown() {
+            return "ok";
+        }
+
+        public String open() {
+            return "ok";
+        }
+    }
+
+    @RequiresPermission("AUDIT_VIEW")
+    public static class GuardedType {
+
+        public String audit() {
+            return "ok";
+        }
+    }
+
+    public static class SharedBase {
+
+        public String shared() {
+            return "ok";
+        }
+    }
+
+    @RequiresPermission("PATIENT_VIEW")
+    public static class ViewGuarded extends SharedBase {
+    }
+
+    @RequiresPermission("AUDIT_VIEW")
+    public static class AuditGuarded extends SharedBase {
+    }
+
+    private final PermissionRegistry registry = mock(PermissionRegistry.class);
+
+    @BeforeEach
+    void setUp() {
+        when(registry.bitOf("PATIENT_VIEW")).thenReturn(1);
+        when(registry.bitOf("RESULTS_UPLOAD")).thenReturn(5);
+        when(registry.bitOf("AUDIT_VIEW")).thenReturn(70);
+        when(registry.bitOf("NO_SUCH_PERMISSION")).thenReturn(-1);
+        when(registry.getVersion()).thenReturn(1L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(T target) {
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAdvisor(RequiresPermissionInterceptor.advisor(() -> registry));
+        return (T) factory.getProxy();
+    }
+
+    private void authenticateWith(int... bits) {
+        BitSet set = new BitSet();
+        for (int bit : bits) {
+            set.set(bit);
+        }
+        JwtPrincipal principal = new JwtPrincipal(UUID.randomUUID(), UUID.randomUUID(), "test@example.com",
+            Role.EMPLOYEE, PermissionBits.of(set), List.of(), Instant.now(), Instant.now().plusSeconds(900));
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+    }
+
+    @Test
+    void invoke_withRequiredBit_proceeds() {
+        authenticateWith(1);
+
+        assertEquals("ok", proxy(new Guarded()).view());
+    }
+
+    @Test
+    void invoke_missingOneOfAllRequired_isDenied() {
+        authenticateWith(1);
+        Guarded guarded = proxy(new Guarded());
+
+        assertThrows(AccessDeniedException.class, guarded::upload);
+        authenticateWith(1, 5);
+        assertEquals("ok", guarded.upload());
+    }
+
+    @Test
+    void invoke_anyMode_needsOnlyOne() {
+        authenticateWith(70);
+
+        assertEquals("ok", proxy(new Guarded()).either());
+    }
+
+    @Test
+    void invoke_unknownCode_isAlwaysDenied() {
+        authenticateWith(1, 5, 70);
+
+        assertThrows(AccessDeniedException.class, proxy(new Guarded())::unknown);
+    }
+
+    @Test
+    void invoke_withoutAuthentication_isDenied() {
+        assertThrows(AccessDeniedException.class, proxy(new Guarded())::view);
+    }
+
+    @Test
+    void invoke_typeLevelAnnotation_guardsEveryMethod() {
+        authenticateWith(1);
+        GuardedType guarded = proxy(new GuardedType());
+
+        assertThrows(AccessDeniedException.class, guarded::audit);
+        authenticateWith(70);
+        assertEquals("ok", guarded.audit());
+    }
+
+    @Test
+    void invoke_unannotatedMethod_isNotIntercepted() {
+        assertEquals("ok", proxy(new Guarded()).open());
+    }
+
+    @Test
+    void invoke_inheritedMethod_usesEachSubclassRequirement() {
+        authenticateWith(1);
+        ViewGuarded view = proxy(new ViewGuarded());
+        AuditGuarded audit = proxy(new AuditGuarded());
+
+        assertEquals("ok", view.shared());
+        assertThrows(AccessDeniedException.class, audit::shared);
+        authenticateWith(70);
+        assertEquals("ok", audit.shared());
+        assertThrows(AccessDeniedException.class, view::shared);
+    }
+
+    @Test
+    void postProcess_unknownCode_failsBeanCreation() {
+        RequiresPermissionInterceptor interceptor = new RequiresPermissionInterceptor(() -> registry);
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+            () -> interceptor.postProcessAfterInitialization(new Guarded(), "guarded"));
+        assertTrue(error.getMessage().contains("NO_SUCH_PERMISSION"));
+    }
+
+    @Test
+    void postProcess_knownCodesAndUnguardedBeans_pass() {
+        RequiresPermissionInterceptor interceptor = new RequiresPermissionInterceptor(() -> registry);
+        Object unguarded = new Object();
+
+        assertDoesNotThrow(() -> interceptor.postProcessAfterInitialization(new GuardedType(), "guardedType"));
+        assertSame(unguarded, interceptor.postProcessAfterInitialization(unguarded, "plain"));
+    }
+}
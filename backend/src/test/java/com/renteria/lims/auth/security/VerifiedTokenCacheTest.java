@@ -0,0 +1,68 @@
+package com.renteria.lims.auth.security;
+
+import com.renteria.lims.config.JwtConfig;
+import com.renteria.lims.user.model.Role;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerifiedTokenCacheTest {
+
+    private VerifiedTokenCache cache;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        JwtConfig config = new JwtConfig();
+        config.setVerifiedCacheMaxSize(100);
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new VerifiedTokenCache(config, meterRegistry);
+    }
+
+    @Test
+    void get_withRepeatedToken_verifiesOnlyOnce() {
+        AtomicInteger verifications = new AtomicInteger();
+        JwtPrincipal principal = principalExpiringAt(Instant.now().plusSeconds(60));
+
+        JwtPrincipal first = cache.get("token", t -> { verifications.incrementAndGet(); return principal; });
+        JwtPrincipal second = cache.get("token", t -> { verifications.incrementAndGet(); return principal; });
+
+        assertSame(principal, first);
+        assertSame(principal, second);
+        assertEquals(1, verifications.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void get_withInvalidToken_doesNotCacheFailure() {
+        AtomicInteger verifications = new AtomicInteger();
+
+        assertNull(cache.get("bad", t -> { verifications.incrementAndGet(); return null; }));
+        assertNull(cache.get("bad", t -> { verifications.incrementAndGet(); return null; }));
+
+        assertEquals(2, verifications.get());
+    }
+
+    @Test
+    void get_withAlreadyExpiredPrincipal_doesNotServeItFromCache() {
+        AtomicInteger verifications = new AtomicInteger();
+        JwtPrincipal expired = principalExpiringAt(Instant.now().minusSeconds(1));
+
+        cache.get("token", t -> { verifications.incrementAndGet(); return expired; });
+        cache.get("token", t -> { verifications.incrementAndGet(); return expired; });
+
+        assertEquals(2, verifications.get());
+    }
+
+    private JwtPrincipal principalExpiringAt(Instant expiresAt) {
+        return new JwtPrincipal(UUID.randomUUID(), UUID.randomUUID(), "test@example.com", Role.PATIENT, PermissionBits.EMPTY, List.of(),
+            Instant.now(), expiresAt);
+    }
+}
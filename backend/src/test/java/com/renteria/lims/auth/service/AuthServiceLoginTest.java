@@ -0,0 +1,102 @@
+package com.renteria.lims.auth.service;
+
+import com.renteria.lims.auth.model.dto.LoginRequest;
+import com.renteria.lims.user.model.Permission;
+import com.renteria.lims.user.model.Role;
+import com.renteria.lims.user.model.RolePermission;
+import com.renteria.lims.user.model.User;
+import com.renteria.lims.user.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class AuthServiceLoginTest {
+
+    private static final String PASSWORD = "correct-horse-battery";
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+    private String email;
+
+    @BeforeEach
+    void setUp() {
+        createUser(passwordEncoder.encode(PASSWORD));
+    }
+
+    private void createUser(String passwordHash) {
+        email = "login-" + UUID.randomUUID() + "@example.com";
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Permission permission = new Permission("PERM_" + UUID.randomUUID(), "test", "test");
+            entityManager.persist(permission);
+            entityManager.persist(new RolePermission(Role.EMPLOYEE, permission.getId()));
+            entityManager.persist(new User(email, passwordHash, Role.EMPLOYEE));
+        });
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void login_withValidCredentials_readsOnceAndWritesOnce() {
+        AuthService.LoginResult result = authService.login(new LoginRequest(email, PASSWORD));
+
+        assertNotNull(result.response().accessToken());
+        // credentials + permissions select, users update, refresh_tokens insert
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void login_withWrongPassword_recordsFailedAttemptInSingleUpdate() {
+        assertThrows(BadCredentialsException.class, () -> authService.login(new LoginRequest(email, "wrong-password")));
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(1, userRepository.findByEmail(email).orElseThrow().getFailedLoginAttempts());
+    }
+
+    @Test
+    void login_withLegacyHash_rehashesInTheSameUpdate() {
+        createUser(new BCryptPasswordEncoder(4).encode(PASSWORD));
+
+        authService.login(new LoginRequest(email, PASSWORD));
+
+        assertEquals(3, statistics.getPrepareStatementCount());
+        String storedHash = userRepository.findByEmail(email).orElseThrow().getPasswordHash();
+        assertTrue(storedHash.startsWith("{bcrypt}"));
+        assertTrue(passwordEncoder.matches(PASSWORD, storedHash));
+    }
+}
@@ -0,0 +1,121 @@
+package com.renteria.lims.auth.service;
+
+import com.renteria.lims.config.TokenPurgeConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the purge over synthetic rows. The default size keeps the suite fast; run with
+ * {@code -Dpurge.test.rows=3000000} for the multi-million-row check.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ExpiredTokenPurgerTest {
+
+    private static final int ROWS = Integer.getInteger("purge.test.rows", 20_000);
+
+    @Autowired
+    private ExpiredTokenPurger purger;
+
+    @Autowired
+    private TokenPurgeConfig config;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private int originalBatchSize;
+    private long originalPause;
+    private int originalMaxBatches;
+
+    @BeforeEach
+    void setUp() {
+        originalBatchSize = config.getBatchSize();
+        originalPause = config.getBatchPauseMs();
+        originalMaxBatches = config.getMaxBatchesPerRun();
+        config.setBatchSize(10_000);
+        config.setBatchPauseMs(0);
+        config.setMaxBatchesPerRun(Integer.MAX_VALUE);
+
+        jdbcTemplate.update("DELETE FROM refresh_tokens");
+        jdbcTemplate.update("DELETE FROM password_reset_tokens");
+
+        // x % 4: 0 = expired long ago, 1 = revoked long ago, 2 = created long ago but revoked
+        // (rotated) recently, 3 = active. All were created 12 days ago.
+        jdbcTemplate.update("""
+            INSERT INTO refresh_tokens (id, user_id, token_hash, family_id, expires_at, revoked, revoked_at, created_at)
+            SELECT RANDOM_UUID(), RANDOM_UUID(), HASH('SHA-256', 'h' || X), RANDOM_UUID(),
+                   CASE WHEN MOD(X, 4) = 0 THEN DATEADD('DAY', -10, CURRENT_TIMESTAMP)
+                        ELSE DATEADD('DAY', 5, CURRENT_TIMESTAMP) END,
+                   MOD(X, 4) IN (1, 2),
+                   CASE WHEN MOD(X, 4) = 1 THEN DATEADD('DAY', -11, CURRENT_TIMESTAMP)
+                        WHEN MOD(X, 4) = 2 THEN CURRENT_TIMESTAMP END,
+                   DATEADD('DAY', -12, CURRENT_TIMESTAMP)
+            FROM SYSTEM_RANGE(1, ?)
+            """, ROWS);
+        // x % 4: 0 = expired long ago, 1 = used long ago, 2 = created long ago but used
+        // recently, 3 = pending
+        jdbcTemplate.update("""
+            INSERT INTO password_reset_tokens (id, user_id, token_hash, expires_at, used, used_at, created_at)
+            SELECT RANDOM_UUID(), RANDOM_UUID(), HASH('SHA-256', 'r' || X),
+                   CASE WHEN MOD(X, 4) = 0 THEN DATEADD('DAY', -10, CURRENT_TIMESTAMP)
+                        ELSE DATEADD('HOUR', 1, CURRENT_TIMESTAMP) END,
+                   MOD(X, 4) IN (1, 2),
+                   CASE WHEN MOD(X, 4) = 1 THEN DATEADD('DAY', -11, CURRENT_TIMESTAMP)
+                        WHEN MOD(X, 4) = 2 THEN CURRENT_TIMESTAMP END,
+                   DATEADD('DAY', -12, CURRENT_TIMESTAMP)
+            FROM SYSTEM_RANGE(1, 1000)
+            """);
+    }
+
+    @AfterEach
+    void tearDown() {
+        config.setBatchSize(originalBatchSize);
+        config.setBatchPauseMs(originalPause);
+        config.setMaxBatchesPerRun(originalMaxBatches);
+        jdbcTemplate.update("DELETE FROM refresh_tokens");
+        jdbcTemplate.update("DELETE FROM password_reset_tokens");
+    }
+
+    @Test
+    void purge_deletesExpiredAndOldRevokedRowsOnly() {
+        ExpiredTokenPurger.PurgeResult result = purger.purge();
+
+        assertEquals(ROWS / 2, result.refreshTokens());
+        assertEquals(500, result.passwordResetTokens());
+        assertEquals(ROWS / 2, count("SELECT COUNT(*) FROM refresh_tokens"));
+        assertEquals(ROWS / 4, count("SELECT COUNT(*) FROM refresh_tokens WHERE revoked = true"));
+        assertEquals(500, count("SELECT COUNT(*) FROM password_reset_tokens"));
+        assertEquals(250, count("SELECT COUNT(*) FROM password_reset_tokens WHERE used = true"));
+    }
+
+    @Test
+    void purge_keepsOldTokenRevokedRecently() {
+        purger.purge();
+
+        assertEquals(ROWS / 4, count("""
+            SELECT COUNT(*) FROM refresh_tokens
+            WHERE revoked = true AND created_at < DATEADD('DAY', -7, CURRENT_TIMESTAMP)
+            """));
+    }
+
+    @Test
+    void purge_stopsAfterMaxBatchesPerRun() {
+        config.setBatchSize(1_000);
+        config.setMaxBatchesPerRun(2);
+
+        ExpiredTokenPurger.PurgeResult result = purger.purge();
+
+        assertEquals(2_000, result.refreshTokens());
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}
@@ -1,28 +1,49 @@
 package com.renteria.lims.auth.service;
 
+import com.renteria.lims.auth.security.JwtPrincipal;
+import com.renteria.lims.common.cluster.ClusterEventBus;
 import com.renteria.lims.config.JwtConfig;
+import com.renteria.lims.user.model.Permission;
 import com.renteria.lims.user.model.Role;
+import com.renteria.lims.user.repository.PermissionRepository;
+import com.renteria.lims.user.service.PermissionRegistry;
 import io.jsonwebtoken.Claims;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.Base64;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 class JwtServiceTest {
 
     private JwtService jwtService;
+    private PermissionRegistry permissionRegistry;
+    private PermissionRepository permissionRepository;
 
     @BeforeEach
     void setUp() {
+        permissionRepository = mock(PermissionRepository.class);
+        when(permissionRepository.findAll()).thenReturn(List.of(
+            permission("OWN_PROFILE_VIEW", 0),
+            permission("PASSWORD_CHANGE", 3),
+            permission("RESULTS_UPLOAD", 8)
+        ));
+        permissionRegistry = new PermissionRegistry(permissionRepository, event -> {}, mock(ClusterEventBus.class));
+        permissionRegistry.reload();
+
         JwtConfig config = new JwtConfig();
         config.setSecret(Base64.getEncoder().encodeToString("test-secret-minimum-32-chars-long!!".getBytes()));
         config.setAccessTokenExpiryMs(900000);
         config.setRefreshTokenExpiryMs(604800000);
-        jwtService = new JwtService(config);
+        jwtService = new JwtService(config, permissionRegistry);
     }
 
     @Test
@@ -92,4 +113,99 @@ class JwtServiceTest {
     void isTokenValid_withInvalidToken_returnsFalse() {
         assertFalse(jwtService.isTokenValid("invalid"));
     }
+
+    @Test
+    void verifyAccessToken_withValidToken_returnsPrincipal() {
+        UUID userId = UUID.randomUUID();
+        Set<String> permissions = Set.of("OWN_PROFILE_VIEW", "RESULTS_UPLOAD");
+        String token = jwtService.generateAccessToken(userId, "test@example.com", Role.EMPLOYEE, permissions);
+
+        JwtPrincipal principal = jwtService.verifyAccessToken(token);
+
+        assertNotNull(principal);
+        assertEquals(userId, principal.userId());
+        assertEquals(userId.toString(), principal.getName());
+        assertEquals("test@example.com", principal.email());
+        assertEquals(Role.EMPLOYEE, principal.role());
+        assertTrue(principal.hasPermission(0));
+        assertTrue(principal.hasPermission(8));
+        assertFalse(principal.hasPermission(3));
+        assertEquals(permissions, Set.copyOf(principal.authorities().stream().map(GrantedAuthority::getAuthority).toList()));
+        assertNotNull(principal.expiresAt());
+    }
+
+    @Test
+    void verifyAccessToken_withTamperedToken_returnsNull() {
+        String token = jwtService.generateAccessToken(UUID.randomUUID(), "test@example.com", Role.PATIENT, Set.of());
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertNull(jwtService.verifyAccessToken(tampered));
+    }
+
+    @Test
+    void extractPermissions_withValidToken_returnsPermissions() {
+        Set<String> permissions = Set.of("OWN_PROFILE_VIEW", "PASSWORD_CHANGE");
+        String token = jwtService.generateAccessToken(UUID.randomUUID(), "test@example.com", Role.PATIENT, permissions);
+
+        assertEquals(permissions, jwtService.extractPermissions(token));
+    }
+
+    @Test
+    void generateAccessToken_encodesPermissionsAsCompactBitmask() {
+        String token = jwtService.generateAccessToken(UUID.randomUUID(), "test@example.com", Role.PATIENT,
+            Set.of("OWN_PROFILE_VIEW", "PASSWORD_CHANGE", "RESULTS_UPLOAD"));
+
+        Claims claims = jwtService.validateToken(token);
+
+        assertEquals("CQE", claims.get("perms"));
+        assertNull(claims.get("permissions"));
+    }
+
+    @Test
+    void verifyAccessToken_afterRegistryChange_rejectsTokenWithStaleVersion() {
+        String token = jwtService.generateAccessToken(UUID.randomUUID(), "test@example.com", Role.PATIENT, Set.of("OWN_PROFILE_VIEW"));
+        when(permissionRepository.findAll()).thenReturn(List.of(permission("OWN_PROFILE_VIEW", 0), permission("AUDIT_VIEW", 11)));
+        permissionRegistry.reload();
+
+        assertNull(jwtService.verifyAccessToken(token));
+    }
+
+    @Test
+    void verifyAccessToken_afterPermissionAppendedOrRenamed_acceptsToken() {
+        Permission profile = permission("OWN_PROFILE_VIEW", 0);
+        when(permissionRepository.findAll()).thenReturn(List.of(profile));
+        permissionRegistry.reload();
+        String token = jwtService.generateAccessToken(UUID.randomUUID(), "test@example.com", Role.PATIENT, Set.of("OWN_PROFILE_VIEW"));
+
+        Permission renamed = new Permission("PROFILE_VIEW", "renamed", "test");
+        ReflectionTestUtils.setField(renamed, "id", profile.getId());
+        renamed.setBitIndex(0);
+        when(permissionRepository.findAll()).thenReturn(List.of(renamed, permission("AUDIT_VIEW", 1)));
+        permissionRegistry.reload();
+
+        JwtPrincipal principal = jwtService.verifyAccessToken(token);
+        assertNotNull(principal);
+        assertEquals(List.of("PROFILE_VIEW"), principal.authorities().stream().map(GrantedAuthority::getAuthority).toList());
+    }
+
+    @Test
+    void verifyAccessToken_afterBitReassigned_rejectsToken() {
+        String token = jwtService.generateAccessToken(UUID.randomUUID(), "test@example.com", Role.PATIENT, Set.of("OWN_PROFILE_VIEW"));
+        when(permissionRepository.findAll()).thenReturn(List.of(
+            permission("SETTINGS_MANAGE", 0),
+            permission("PASSWORD_CHANGE", 3),
+            permission("RESULTS_UPLOAD", 8)
+        ));
+        permissionRegistry.reload();
+
+        assertNull(jwtService.verifyAccessToken(token));
+    }
+
+    private Permission permission(String code, int bitIndex) {
+        Permission permission = new Permission(code, code, "test");
+        // Stable per code within a test, like the table's primary key
+        ReflectionTestUtils.setField(permission, "id", UUID.nameUUIDFromBytes(code.getBytes()));
+        permission.setBitIndex(bitIndex);
+        return permission;
+    }
 }
@@ -0,0 +1,93 @@
+package com.renteria.lims.auth.service;
+
+import com.renteria.lims.auth.model.dto.RefreshResponse;
+import com.renteria.lims.config.JwtConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RefreshSingleFlightTest {
+
+    private RefreshSingleFlight singleFlight;
+    private final AtomicInteger rotations = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        JwtConfig config = new JwtConfig();
+        config.setRefreshGraceWindowMs(5_000);
+        singleFlight = new RefreshSingleFlight(config, new SimpleMeterRegistry());
+    }
+
+    private AuthService.RefreshResult result(String token) {
+        rotations.incrementAndGet();
+        return new AuthService.RefreshResult(new RefreshResponse("access-" + token, 900), token);
+    }
+
+    @Test
+    void concurrentRefreshes_shareOneRotation() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<AuthService.RefreshResult>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> singleFlight.execute("hash", () -> {
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return result("new-token");
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            List<String> refreshTokens = new ArrayList<>();
+            for (Future<AuthService.RefreshResult> future : futures) {
+                AuthService.RefreshResult result = future.get(5, TimeUnit.SECONDS);
+                assertEquals("access-new-token", result.response().accessToken());
+                refreshTokens.add(result.rawRefreshToken());
+            }
+            assertEquals(1, refreshTokens.stream().filter("new-token"::equals).count());
+            assertEquals(3, refreshTokens.stream().filter(Objects::isNull).count());
+            assertEquals(1, rotations.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void replayWithinGraceWindow_getsTheAccessTokenButNotTheNewRefreshToken() {
+        AuthService.RefreshResult first = singleFlight.execute("hash", () -> result("new-token"));
+        AuthService.RefreshResult replay = singleFlight.execute("hash", () -> result("other-token"));
+
+        assertEquals("new-token", first.rawRefreshToken());
+        assertEquals(first.response(), replay.response());
+        assertNull(replay.rawRefreshToken());
+        assertEquals(1, rotations.get());
+    }
+
+    @Test
+    void failedRotation_isNotCached() {
+        assertThrows(BadCredentialsException.class, () -> singleFlight.execute("hash", () -> {
+            throw new BadCredentialsException("Invalid refresh token");
+        }));
+
+        AuthService.RefreshResult result = singleFlight.execute("hash", () -> result("new-token"));
+
+        assertEquals("new-token", result.rawRefreshToken());
+    }
+}
@@ -0,0 +1,185 @@
+package com.renteria.lims.auth.service;
+
+import com.renteria.lims.config.JwtConfig;
+import com.renteria.lims.config.TokenPurgeConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenPartitionManagerTest {
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    @Mock
+    private JdbcTemplate session;
+
+    private TokenPurgeConfig config;
+    private JwtConfig jwtConfig;
+    private RefreshTokenPartitionManager manager;
+
+    @BeforeEach
+    void setUp() {
+        config = new TokenPurgeConfig();
+        config.setPartitionsAhead(3);
+        jwtConfig = new JwtConfig();
+        jwtConfig.setRefreshTokenExpiryMs(604800000);
+        manager = new RefreshTokenPartitionManager(mock(JdbcTemplate.class), config, jwtConfig);
+    }
+
+    private void partitioned(boolean partitioned, boolean lockAcquired) {
+        when(session.queryForObject(contains("pg_partitioned_table"), eq(Boolean.class))).thenReturn(partitioned);
+        if (partitioned) {
+            when(session.queryForObject(eq("SELECT pg_try_advisory_lock(?)"), eq(Boolean.class),
+                eq(RefreshTokenPartitionManager.LOCK_KEY))).thenReturn(lockAcquired);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void existingPartitions(RefreshTokenPartitionManager.Partition... partitions) {
+        when(session.query(anyString(), any(RowMapper.class))).thenReturn(List.of(partitions));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void maintain_withPurgeDisabled_stillCreatesPartitionsAheadButDropsNothing() {
+        config.setEnabled(false);
+        partitioned(true, true);
+
+        manager.maintain(session);
+
+        List<String> statements = executedStatements();
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        for (int i = 0; i <= 3; i++) {
+            String partition = "refresh_tokens_p" + current.plusMonths(i).format(SUFFIX);
+            assertTrue(statements.stream().anyMatch(sql -> sql.contains(partition + " PARTITION OF")), partition);
+        }
+        assertTrue(statements.stream().noneMatch(sql -> sql.contains("DETACH") || sql.startsWith("DROP")));
+        verify(session, never()).query(anyString(), any(RowMapper.class));
+        verify(session).queryForObject("SELECT pg_advisory_unlock(?)", Boolean.class, RefreshTokenPartitionManager.LOCK_KEY);
+    }
+
+    @Test
+    void maintain_withExpiryLongerThanPartitionsAhead_coversLatestExpiry() {
+        config.setEnabled(false);
+        jwtConfig.setRefreshTokenExpiryMs(200L * 86_400_000);
+        partitioned(true, true);
+
+        manager.maintain(session);
+
+        YearMonth latest = YearMonth.from(Instant.now().plus(Duration.ofDays(200)).atZone(ZoneOffset.UTC));
+        assertTrue(executedStatements().stream()
+            .anyMatch(sql -> sql.contains("refresh_tokens_p" + latest.format(SUFFIX) + " PARTITION OF")));
+    }
+
+    @Test
+    void maintain_withRetentionEnabled_dropsOnlyExpiredPartitions() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        String old = "refresh_tokens_p" + current.minusMonths(3).format(SUFFIX);
+        String live = "refresh_tokens_p" + current.format(SUFFIX);
+        partitioned(true, true);
+        existingPartitions(
+            new RefreshTokenPartitionManager.Partition(old, true, false),
+            new RefreshTokenPartitionManager.Partition(live, true, false));
+
+        manager.maintain(session);
+
+        List<String> statements = executedStatements();
+        assertTrue(statements.contains("ALTER TABLE refresh_tokens DETACH PARTITION " + old + " CONCURRENTLY"));
+        assertTrue(statements.contains("DROP TABLE IF EXISTS " + old));
+        assertFalse(statements.contains("DROP TABLE IF EXISTS " + live));
+    }
+
+    @Test
+    void maintain_finishesPartitionsLeftByAnInterruptedRun() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        String pending = "refresh_tokens_p" + current.minusMonths(4).format(SUFFIX);
+        String detached = "refresh_tokens_p" + current.minusMonths(3).format(SUFFIX);
+        partitioned(true, true);
+        existingPartitions(
+            new RefreshTokenPartitionManager.Partition(pending, true, true),
+            new RefreshTokenPartitionManager.Partition(detached, false, false));
+
+        manager.maintain(session);
+
+        List<String> statements = executedStatements();
+        assertTrue(statements.contains("ALTER TABLE refresh_tokens DETACH PARTITION " + pending + " FINALIZE"));
+        assertTrue(statements.contains("DROP TABLE IF EXISTS " + pending));
+        assertTrue(statements.stream().noneMatch(sql -> sql.contains("DETACH PARTITION " + detached)));
+        assertTrue(statements.contains("DROP TABLE IF EXISTS " + detached));
+    }
+
+    @Test
+    void maintain_whenAPartitionFails_continuesAndReleasesTheLock() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        String failing = "refresh_tokens_p" + current.minusMonths(4).format(SUFFIX);
+        String next = "refresh_tokens_p" + current.minusMonths(3).format(SUFFIX);
+        partitioned(true, true);
+        existingPartitions(
+            new RefreshTokenPartitionManager.Partition(failing, true, false),
+            new RefreshTokenPartitionManager.Partition(next, true, false));
+        doAnswer(invocation -> {
+            if (invocation.getArgument(0, String.class).contains("DETACH PARTITION " + failing)) {
+                throw new DataAccessResourceFailureException("already detached");
+            }
+            return null;
+        }).when(session).execute(anyString());
+
+        assertDoesNotThrow(() -> manager.maintain(session));
+
+        assertTrue(executedStatements().contains("DROP TABLE IF EXISTS " + next));
+        verify(session).queryForObject("SELECT pg_advisory_unlock(?)", Boolean.class, RefreshTokenPartitionManager.LOCK_KEY);
+    }
+
+    @Test
+    void maintain_whenAnotherNodeHoldsTheLock_doesNothing() {
+        partitioned(true, false);
+
+        manager.maintain(session);
+
+        verify(session, never()).execute(anyString());
+        verify(session, never()).queryForObject(eq("SELECT pg_advisory_unlock(?)"), eq(Boolean.class), any());
+    }
+
+    @Test
+    void maintain_whenTableIsNotPartitioned_doesNothing() {
+        partitioned(false, false);
+
+        manager.maintain(session);
+
+        verify(session, never()).execute(anyString());
+        verify(session, never()).queryForObject(eq("SELECT pg_try_advisory_lock(?)"), eq(Boolean.class), any());
+    }
+
+    @Test
+    void parseMonth_ignoresForeignTables() {
+        assertEquals(YearMonth.of(2026, 3), RefreshTokenPartitionManager.parseMonth("refresh_tokens_p202603"));
+        assertNull(RefreshTokenPartitionManager.parseMonth("refresh_tokens_default"));
+    }
+
+    private List<String> executedStatements() {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(session, atLeastOnce()).execute(captor.capture());
+        return captor.getAllValues();
+    }
+}
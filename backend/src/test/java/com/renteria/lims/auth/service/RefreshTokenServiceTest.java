@@ -1,7 +1,8 @@
 package com.renteria.lims.auth.service;
 
-import com.renteria.lims.auth.model.RefreshToken;
 import com.renteria.lims.auth.repository.RefreshTokenRepository;
+import com.renteria.lims.auth.security.RefreshTokenCodec;
+import com.renteria.lims.common.util.TokenUtils;
 import com.renteria.lims.config.JwtConfig;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,11 +11,14 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,12 +28,22 @@ class RefreshTokenServiceTest {
     private RefreshTokenRepository refreshTokenRepository;
 
     private RefreshTokenService refreshTokenService;
+    private RefreshTokenCodec codec;
+    private UUID tokenId;
+    private Instant tokenExpiresAt;
+    private String rawToken;
 
     @BeforeEach
     void setUp() {
         JwtConfig config = new JwtConfig();
+        config.setSecret("test-secret-minimum-32-chars-long!!");
         config.setRefreshTokenExpiryMs(604800000);
-        refreshTokenService = new RefreshTokenService(refreshTokenRepository, config);
+        codec = new RefreshTokenCodec(config);
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, config, codec);
+
+        tokenId = UUID.randomUUID();
+        tokenExpiresAt = Instant.now().plus(1, ChronoUnit.DAYS).truncatedTo(ChronoUnit.SECONDS);
+        rawToken = codec.issue(tokenId, tokenExpiresAt);
     }
 
     @Test
@@ -46,60 +60,110 @@ class RefreshTokenServiceTest {
         assertNotNull(result.token().getTokenHash());
         assertNotNull(result.token().getFamilyId());
         assertTrue(result.token().getExpiresAt().isAfter(Instant.now()));
+        assertEquals(result.token().getId(), codec.verify(result.rawToken()).orElseThrow().id());
+        assertEquals(result.token().getExpiresAt(), codec.verify(result.rawToken()).orElseThrow().expiresAt());
         verify(refreshTokenRepository).save(any());
     }
 
+    private static RefreshTokenRepository.RotationRow row(UUID userId, UUID familyId, boolean revoked,
+                                                          boolean expired, UUID newTokenId) {
+        return new RefreshTokenRepository.RotationRow() {
+            public UUID getUserId() { return userId; }
+            public UUID getFamilyId() { return familyId; }
+            public boolean isRevoked() { return revoked; }
+            public boolean isExpired() { return expired; }
+            public UUID getNewTokenId() { return newTokenId; }
+        };
+    }
+
     @Test
     void rotateRefreshToken_withValidToken_returnsNewTokenResult() {
         UUID userId = UUID.randomUUID();
         UUID familyId = UUID.randomUUID();
-        RefreshToken existing = new RefreshToken(userId, "hash", familyId, Instant.now().plusSeconds(3600));
-        
-        when(refreshTokenRepository.findByTokenHash(any())).thenReturn(Optional.of(existing));
-        when(refreshTokenRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        UUID newTokenId = UUID.randomUUID();
 
-        Optional<RefreshTokenService.RefreshTokenResult> result = refreshTokenService.rotateRefreshToken("raw-token");
+        when(refreshTokenRepository.rotate(eq(tokenId), eq(tokenExpiresAt), aryEq(TokenUtils.sha256(rawToken)),
+                any(), any(), any()))
+            .thenReturn(Optional.of(row(userId, familyId, false, false, newTokenId)));
+
+        Optional<RefreshTokenService.RefreshTokenResult> result = refreshTokenService.rotateRefreshToken(rawToken);
 
         assertTrue(result.isPresent());
         assertNotNull(result.get().rawToken());
+        assertEquals(newTokenId, result.get().token().getId());
+        assertTrue(codec.verify(result.get().rawToken()).isPresent());
         assertEquals(userId, result.get().token().getUserId());
         assertEquals(familyId, result.get().token().getFamilyId());
+        assertArrayEquals(TokenUtils.sha256(result.get().rawToken()), result.get().token().getTokenHash());
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void rotateRefreshToken_withVerifiedClaims_checksTheMacOnce() {
+        RefreshTokenCodec spiedCodec = spy(codec);
+        JwtConfig config = new JwtConfig();
+        config.setRefreshTokenExpiryMs(604800000);
+        RefreshTokenService service = new RefreshTokenService(refreshTokenRepository, config, spiedCodec);
+        when(refreshTokenRepository.rotate(eq(tokenId), eq(tokenExpiresAt), aryEq(TokenUtils.sha256(rawToken)),
+                any(), any(), any()))
+            .thenReturn(Optional.of(row(UUID.randomUUID(), UUID.randomUUID(), false, false, UUID.randomUUID())));
+
+        RefreshTokenCodec.Claims claims = service.verify(rawToken).orElseThrow();
+        assertTrue(service.rotateRefreshToken(rawToken, claims).isPresent());
+
+        verify(spiedCodec, times(1)).verify(rawToken);
     }
 
     @Test
     void rotateRefreshToken_withRevokedToken_revokesFamilyAndReturnsEmpty() {
-        UUID userId = UUID.randomUUID();
         UUID familyId = UUID.randomUUID();
-        RefreshToken existing = new RefreshToken(userId, "hash", familyId, Instant.now().plusSeconds(3600));
-        existing.setRevoked(true);
-        
-        when(refreshTokenRepository.findByTokenHash(any())).thenReturn(Optional.of(existing));
+        when(refreshTokenRepository.rotate(any(), any(), any(), any(), any(), any()))
+            .thenReturn(Optional.of(row(UUID.randomUUID(), familyId, true, false, null)));
 
-        Optional<RefreshTokenService.RefreshTokenResult> result = refreshTokenService.rotateRefreshToken("raw-token");
+        Optional<RefreshTokenService.RefreshTokenResult> result = refreshTokenService.rotateRefreshToken(rawToken);
 
         assertTrue(result.isEmpty());
         verify(refreshTokenRepository).revokeByFamilyId(familyId);
     }
 
+    @Test
+    void rotateRefreshToken_lostConcurrentRace_returnsEmptyWithoutRevokingFamily() {
+        when(refreshTokenRepository.rotate(any(), any(), any(), any(), any(), any()))
+            .thenReturn(Optional.of(row(UUID.randomUUID(), UUID.randomUUID(), false, false, null)));
+
+        Optional<RefreshTokenService.RefreshTokenResult> result = refreshTokenService.rotateRefreshToken(rawToken);
+
+        assertTrue(result.isEmpty());
+        verify(refreshTokenRepository, never()).revokeByFamilyId(any());
+    }
+
     @Test
     void rotateRefreshToken_withExpiredToken_returnsEmpty() {
-        UUID userId = UUID.randomUUID();
-        RefreshToken existing = new RefreshToken(userId, "hash", UUID.randomUUID(), Instant.now().minusSeconds(3600));
-        
-        when(refreshTokenRepository.findByTokenHash(any())).thenReturn(Optional.of(existing));
+        when(refreshTokenRepository.rotate(any(), any(), any(), any(), any(), any()))
+            .thenReturn(Optional.of(row(UUID.randomUUID(), UUID.randomUUID(), false, true, null)));
 
-        Optional<RefreshTokenService.RefreshTokenResult> result = refreshTokenService.rotateRefreshToken("raw-token");
+        Optional<RefreshTokenService.RefreshTokenResult> result = refreshTokenService.rotateRefreshToken(rawToken);
 
         assertTrue(result.isEmpty());
+        verify(refreshTokenRepository, never()).revokeByFamilyId(any());
     }
 
     @Test
     void rotateRefreshToken_withNonExistentToken_returnsEmpty() {
-        when(refreshTokenRepository.findByTokenHash(any())).thenReturn(Optional.empty());
+        when(refreshTokenRepository.rotate(any(), any(), any(), any(), any(), any())).thenReturn(Optional.empty());
+
+        Optional<RefreshTokenService.RefreshTokenResult> result = refreshTokenService.rotateRefreshToken(rawToken);
+
+        assertTrue(result.isEmpty());
+    }
 
-        Optional<RefreshTokenService.RefreshTokenResult> result = refreshTokenService.rotateRefreshToken("raw-token");
+    @Test
+    void rotateRefreshToken_withForgedToken_neverQueries() {
+        Optional<RefreshTokenService.RefreshTokenResult> result =
+            refreshTokenService.rotateRefreshToken(UUID.randomUUID().toString());
 
         assertTrue(result.isEmpty());
+        verifyNoInteractions(refreshTokenRepository);
     }
 
     @Test
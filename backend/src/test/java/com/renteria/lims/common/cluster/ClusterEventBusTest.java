@@ -0,0 +1,103 @@
+package com.renteria.lims.common.cluster;
+
+import com.renteria.lims.config.ClusterBusConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterEventBusTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ClusterEventBus bus = new ClusterEventBus(new ClusterBusConfig(), null, null, meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void publish_localBackend_deliversToTopicSubscribers() {
+        List<String> received = new ArrayList<>();
+        bus.subscribe("permissions", received::add);
+        bus.subscribe("other", payload -> fail("wrong topic"));
+
+        bus.publish("permissions", "role:ADMIN");
+
+        assertEquals(List.of("role:ADMIN"), received);
+    }
+
+    @Test
+    void publish_insideTransaction_deliversOnlyAfterCommit() {
+        List<String> received = new ArrayList<>();
+        bus.subscribe("permissions", received::add);
+        TransactionSynchronizationManager.initSynchronization();
+
+        bus.publish("permissions", "x");
+        assertTrue(received.isEmpty());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(List.of("x"), received);
+    }
+
+    @Test
+    void dispatch_coalescesDuplicateEvents() {
+        List<String> received = new ArrayList<>();
+        bus.subscribe("permissions", received::add);
+
+        bus.dispatch(List.of("permissions|a", "permissions|a", "permissions|b", "malformed"));
+
+        assertEquals(List.of("a", "b"), received);
+    }
+
+    @Test
+    void resyncAll_notifiesEverySubscriber() {
+        AtomicInteger resyncs = new AtomicInteger();
+        ClusterEventBus.Listener listener = new ClusterEventBus.Listener() {
+            @Override
+            public void onEvent(String payload) {}
+
+            @Override
+            public void onResync() {
+                resyncs.incrementAndGet();
+            }
+        };
+        bus.subscribe("a", listener);
+        bus.subscribe("b", listener);
+
+        bus.resyncAll();
+
+        assertEquals(2, resyncs.get());
+    }
+
+    @Test
+    void onListening_resyncsOnFirstConnectAndCountsOnlyReconnects() {
+        AtomicInteger resyncs = new AtomicInteger();
+        bus.subscribe("a", new ClusterEventBus.Listener() {
+            @Override
+            public void onEvent(String payload) {}
+
+            @Override
+            public void onResync() {
+                resyncs.incrementAndGet();
+            }
+        });
+
+        bus.onListening(false);
+        assertEquals(1, resyncs.get());
+        assertEquals(0, meterRegistry.counter("cluster.bus.reconnects").count());
+
+        bus.onListening(true);
+        assertEquals(2, resyncs.get());
+        assertEquals(1, meterRegistry.counter("cluster.bus.reconnects").count());
+    }
+}
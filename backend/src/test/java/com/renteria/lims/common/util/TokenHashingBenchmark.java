@@ -0,0 +1,43 @@
+package com.renteria.lims.common.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call {@code MessageDigest.getInstance} + hex encoding versus the thread-local digest
+ * returning raw bytes. Run with {@code -prof gc} to compare allocation as well.
+ * See the README "Benchmarks" section for how to run it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenHashingBenchmark {
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        token = UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public String legacySha256Hex() throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] hash = digest.digest(token.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(hash);
+    }
+
+    @Benchmark
+    public byte[] threadLocalSha256() {
+        return TokenUtils.sha256(token);
+    }
+}
@@ -0,0 +1,175 @@
+package com.renteria.lims.email.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.renteria.lims.config.EmailConfig;
+import com.renteria.lims.email.model.EmailOutboxMessage;
+import com.renteria.lims.email.repository.EmailOutboxRepository;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class EmailOutboxDispatcherTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private EmailOutboxDispatcher dispatcher;
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private JavaMailSenderImpl mailSender;
+
+    @Autowired
+    private SmtpConnectionPool connectionPool;
+
+    @Autowired
+    private EmailConfig config;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private int originalPort;
+    private int originalMaxAttempts;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository.deleteAll();
+        connectionPool.closeIdle();
+        originalPort = mailSender.getPort();
+        originalMaxAttempts = config.getOutboxMaxAttempts();
+    }
+
+    @AfterEach
+    void tearDown() {
+        mailSender.setPort(originalPort);
+        config.setOutboxMaxAttempts(originalMaxAttempts);
+        outboxRepository.deleteAll();
+    }
+
+    @Test
+    void queuesInsteadOfSending() {
+        assertInstanceOf(OutboxEmailService.class, emailService);
+
+        emailService.sendAccountLockout("patient@example.com");
+
+        assertEquals(0, greenMail.getReceivedMessages().length);
+        EmailOutboxMessage queued = outboxRepository.findAll().get(0);
+        assertEquals(EmailOutboxMessage.Status.PENDING, queued.getStatus());
+        assertEquals("patient@example.com", queued.getRecipient());
+    }
+
+    @Test
+    void rolledBackTransactionQueuesNothing() {
+        transactionTemplate.executeWithoutResult(status -> {
+            emailService.sendAccountLockout("patient@example.com");
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, outboxRepository.count());
+    }
+
+    @Test
+    void dispatchDeliversAndMarksSent() throws Exception {
+        emailService.sendPasswordReset("patient@example.com", "reset-token-123");
+        emailService.sendAccountLockout("other@example.com");
+
+        assertEquals(2, dispatcher.dispatch());
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(2, received.length);
+        assertTrue(List.of(received).stream().anyMatch(m -> {
+            try {
+                return m.getAllRecipients()[0].toString().equals("patient@example.com");
+            } catch (Exception e) {
+                return false;
+            }
+        }));
+        for (EmailOutboxMessage message : outboxRepository.findAll()) {
+            assertEquals(EmailOutboxMessage.Status.SENT, message.getStatus());
+            assertEquals(1, message.getAttempts());
+            assertNull(message.getPayload());
+            assertNotNull(message.getSentAt());
+        }
+        assertEquals(0, dispatcher.dispatch());
+    }
+
+    @Test
+    void failedDeliveryIsRetriedLater() {
+        emailService.sendAccountLockout("patient@example.com");
+        mailSender.setPort(1);
+
+        Instant before = Instant.now();
+        assertEquals(1, dispatcher.dispatch());
+
+        EmailOutboxMessage message = outboxRepository.findAll().get(0);
+        assertEquals(EmailOutboxMessage.Status.PENDING, message.getStatus());
+        assertEquals(1, message.getAttempts());
+        assertNotNull(message.getLastError());
+        assertTrue(message.getNextAttemptAt().isAfter(before.plusMillis(config.getOutboxBackoffMs() - 1000)));
+        assertEquals(0, dispatcher.dispatch(), "not due until the backoff elapses");
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        config.setOutboxMaxAttempts(1);
+        emailService.sendAccountLockout("patient@example.com");
+        mailSender.setPort(1);
+
+        dispatcher.dispatch();
+
+        EmailOutboxMessage message = outboxRepository.findAll().get(0);
+        assertEquals(EmailOutboxMessage.Status.FAILED, message.getStatus());
+        assertNull(message.getPayload());
+    }
+
+    @Test
+    void purgeRemovesOnlyFinishedMessages() {
+        long originalRetention = config.getOutboxRetentionMs();
+        emailService.sendAccountLockout("sent@example.com");
+        dispatcher.dispatch();
+        emailService.sendAccountLockout("pending@example.com");
+
+        config.setOutboxRetentionMs(-60_000);
+        try {
+            dispatcher.purgeFinished();
+        } finally {
+            config.setOutboxRetentionMs(originalRetention);
+        }
+
+        List<EmailOutboxMessage> remaining = outboxRepository.findAll();
+        assertEquals(1, remaining.size());
+        assertEquals("pending@example.com", remaining.get(0).getRecipient());
+    }
+
+    @Test
+    void backoffDoublesUpToTheCap() {
+        long base = config.getOutboxBackoffMs();
+        Instant now = Instant.now();
+
+        assertTrue(dispatcher.retryAt(1).isBefore(now.plusMillis(base + 1000)));
+        assertTrue(dispatcher.retryAt(3).isAfter(now.plusMillis(4 * base - 1000)));
+        assertTrue(dispatcher.retryAt(7).isBefore(now.plusMillis(config.getOutboxMaxBackoffMs() + 1000)));
+        assertNull(dispatcher.retryAt(config.getOutboxMaxAttempts()));
+    }
+}
@@ -0,0 +1,59 @@
+package com.renteria.lims.email.service;
+
+import com.renteria.lims.config.EmailConfig;
+import com.renteria.lims.email.model.EmailMessage;
+import org.openjdk.jmh.annotations.*;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of producing a password-reset body: {@code templateEngine.process} with a fresh
+ * {@link Context} per message (the previous path, template cache warm) against
+ * {@link EmailTemplateRenderer}. See the README "Benchmarks" section for how to run it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailRenderingBenchmark {
+
+    private SpringTemplateEngine templateEngine;
+    private EmailMessageFactory messageFactory;
+    private EmailTemplateRenderer renderer;
+    private int counter;
+
+    @Setup
+    public void setUp() {
+        templateEngine = EmailTemplateRendererTest.templateEngine();
+        EmailConfig config = new EmailConfig();
+        config.setFrontendUrl("https://lab.example.com");
+        messageFactory = new EmailMessageFactory(config);
+        renderer = new EmailTemplateRenderer(templateEngine, messageFactory);
+    }
+
+    @Benchmark
+    public byte[] thymeleafProcess() {
+        EmailMessage message = nextMessage();
+        Map<String, Object> variables = new HashMap<>(messageFactory.staticVariables(message.template()));
+        variables.putAll(message.variables());
+        Context context = new Context();
+        context.setVariables(variables);
+        return templateEngine.process(message.template().getTemplateName(), context).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] precompiled() {
+        return renderer.render(nextMessage());
+    }
+
+    private EmailMessage nextMessage() {
+        return messageFactory.passwordReset("patient@example.com", "reset-token-" + (counter++));
+    }
+}
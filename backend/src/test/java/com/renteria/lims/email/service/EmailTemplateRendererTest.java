@@ -0,0 +1,111 @@
+package com.renteria.lims.email.service;
+
+import com.renteria.lims.config.EmailConfig;
+import com.renteria.lims.email.model.EmailMessage;
+import com.renteria.lims.email.model.EmailTemplate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EmailTemplateRendererTest {
+
+    private SpringTemplateEngine templateEngine;
+    private EmailMessageFactory messageFactory;
+    private EmailTemplateRenderer renderer;
+
+    @BeforeEach
+    void setUp() {
+        templateEngine = templateEngine();
+        EmailConfig config = new EmailConfig();
+        config.setFrontendUrl("https://lab.example.com");
+        messageFactory = new EmailMessageFactory(config);
+        renderer = new EmailTemplateRenderer(templateEngine, messageFactory);
+    }
+
+    @Test
+    void matchesFullThymeleafRender() {
+        List<EmailMessage> messages = List.of(
+            messageFactory.initialPassword("a@example.com", "Tmp<Pass>&'\"1"),
+            messageFactory.passwordReset("b@example.com", "tok_en-123&x=<y>"),
+            messageFactory.accountLockout("c@example.com"));
+
+        for (EmailMessage message : messages) {
+            Map<String, Object> variables = new HashMap<>(messageFactory.staticVariables(message.template()));
+            variables.putAll(message.variables());
+            Context context = new Context();
+            context.setVariables(variables);
+            String expected = templateEngine.process(message.template().getTemplateName(), context);
+
+            assertEquals(expected, new String(renderer.render(message), StandardCharsets.UTF_8), message.template().name());
+        }
+    }
+
+    @Test
+    void staticValuesArePreRendered() {
+        String html = new String(renderer.render(messageFactory.accountLockout("c@example.com")), StandardCharsets.UTF_8);
+
+        assertTrue(html.contains("https://lab.example.com/login"));
+        assertTrue(html.contains(">15<"));
+    }
+
+    @Test
+    void missingRecipientVariableIsRejected() {
+        EmailMessage message = new EmailMessage(EmailTemplate.PASSWORD_RESET, "b@example.com", Map.of("resetToken", "t"));
+
+        assertThrows(IllegalArgumentException.class, () -> renderer.render(message));
+    }
+
+    @Test
+    void templateThatDropsARecipientVariableFailsAtStartup() {
+        ITemplateEngine engine = mock(ITemplateEngine.class);
+        when(engine.process(anyString(), any(IContext.class))).thenReturn("<p>static</p>");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+            () -> new EmailTemplateRenderer(engine, messageFactory));
+        assertTrue(e.getMessage().contains("INITIAL_PASSWORD"));
+    }
+
+    @Test
+    void templateWithLogicOnARecipientVariableFailsAtStartup() {
+        ITemplateEngine engine = mock(ITemplateEngine.class);
+        when(engine.process(anyString(), any(IContext.class))).thenAnswer(invocation -> {
+            IContext context = invocation.getArgument(1);
+            StringBuilder html = new StringBuilder("<p>");
+            for (String name : context.getVariableNames()) {
+                String value = String.valueOf(context.getVariable(name));
+                // Behaves like th:if="${#strings.length(x) > 100}"
+                html.append(value.startsWith("@@") || value.length() > 100 ? value : "");
+            }
+            return html.append("</p>").toString();
+        });
+
+        assertThrows(IllegalStateException.class, () -> new EmailTemplateRenderer(engine, messageFactory));
+    }
+
+    static SpringTemplateEngine templateEngine() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        return engine;
+    }
+}
@@ -0,0 +1,185 @@
+package com.renteria.lims.email.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.renteria.lims.config.EmailConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SmtpConnectionPoolTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private JavaMailSenderImpl mailSender;
+    private EmailConfig config;
+    private MeterRegistry meterRegistry;
+    private SmtpConnectionPool pool;
+
+    @BeforeEach
+    void setUp() {
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(ServerSetupTest.SMTP.getPort());
+        config = new EmailConfig();
+        config.setSmtpMaxConnections(2);
+        meterRegistry = new SimpleMeterRegistry();
+        pool = new SmtpConnectionPool(mailSender, config, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.destroy();
+    }
+
+    @Test
+    void batchSharesOneConnection() throws Exception {
+        List<Exception> results = pool.sendAll(messages(5));
+
+        assertEquals(5, results.size());
+        assertTrue(results.stream().allMatch(r -> r == null));
+        assertEquals(5, greenMail.getReceivedMessages().length);
+        assertEquals(1.0, opened());
+        assertEquals(5, meterRegistry.get("email.smtp.send").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void idleConnectionIsReusedAcrossBatches() throws Exception {
+        pool.sendAll(messages(2));
+        pool.sendAll(messages(3));
+
+        assertEquals(5, greenMail.getReceivedMessages().length);
+        assertEquals(1.0, opened());
+        assertEquals(1.0, idleConnections());
+    }
+
+    @Test
+    void connectionIsRetiredAfterMaxMessages() throws Exception {
+        config.setSmtpMaxMessagesPerConnection(2);
+
+        pool.sendAll(messages(5));
+
+        assertEquals(5, greenMail.getReceivedMessages().length);
+        assertEquals(3.0, opened());
+    }
+
+    @Test
+    void evictionClosesIdleConnections() throws Exception {
+        pool.sendAll(messages(1));
+        assertEquals(1.0, idleConnections());
+
+        config.setSmtpIdleTimeoutMs(0);
+        Thread.sleep(5);
+        pool.evictIdle();
+
+        assertEquals(0.0, idleConnections());
+        pool.sendAll(messages(1));
+        assertEquals(2.0, opened());
+    }
+
+    @Test
+    void droppedIdleConnectionIsReplaced() throws Exception {
+        pool.sendAll(messages(1));
+        greenMail.reset();
+
+        List<Exception> results = pool.sendAll(messages(1));
+
+        assertNull(results.get(0));
+        assertEquals(1, greenMail.getReceivedMessages().length);
+        assertEquals(2.0, opened());
+    }
+
+    @Test
+    void unreachableServerFailsEveryMessageWithoutThrowing() throws Exception {
+        mailSender.setPort(1);
+
+        List<Exception> results = pool.sendAll(messages(3));
+
+        assertEquals(3, results.size());
+        assertTrue(results.stream().allMatch(r -> r instanceof MessagingException));
+        assertEquals(0.0, opened());
+    }
+
+    @Test
+    void concurrencyIsBounded() throws Exception {
+        config.setSmtpAcquireTimeoutMs(50);
+        SmtpConnectionPool slowPool = new SmtpConnectionPool(mailSender, config, new SimpleMeterRegistry());
+        CountDownLatch release = new CountDownLatch(1);
+        MimeMessage blocking = new MimeMessage(mailSender.getSession()) {
+            @Override
+            public void saveChanges() throws MessagingException {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.saveChanges();
+            }
+        };
+        fill(blocking, 0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<List<Exception>>> holders = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                holders.add(executor.submit(() -> slowPool.sendAll(List.of(blocking))));
+            }
+            Thread.sleep(200);
+
+            assertThrows(MessagingException.class, () -> slowPool.sendAll(messages(1)));
+
+            release.countDown();
+            for (Future<List<Exception>> holder : holders) {
+                holder.get(5, TimeUnit.SECONDS);
+            }
+            assertNull(slowPool.sendAll(messages(1)).get(0));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+            slowPool.destroy();
+        }
+    }
+
+    private double opened() {
+        return meterRegistry.get("email.smtp.connections.opened").counter().count();
+    }
+
+    private double idleConnections() {
+        return meterRegistry.get("email.smtp.connections").tag("state", "idle").gauge().value();
+    }
+
+    private List<MimeMessage> messages(int count) throws MessagingException {
+        List<MimeMessage> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            MimeMessage message = new MimeMessage(mailSender.getSession());
+            fill(message, i);
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private static void fill(MimeMessage message, int i) throws MessagingException {
+        message.setFrom(new InternetAddress("test@localhost"));
+        message.setRecipient(MimeMessage.RecipientType.TO, new InternetAddress("patient" + i + "@example.com"));
+        message.setSubject("Test " + i);
+        message.setText("Body " + i);
+    }
+}
@@ -0,0 +1,121 @@
+package com.renteria.lims.patient.service;
+
+import com.renteria.lims.patient.model.PatientImportJob;
+import com.renteria.lims.patient.model.dto.PatientImportJobStatus;
+import com.renteria.lims.patient.model.dto.PatientImportJobStatus.State;
+import com.renteria.lims.patient.model.dto.PatientImportResult;
+import com.renteria.lims.patient.repository.PatientImportJobRepository;
+import com.renteria.lims.user.model.Role;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PatientImportJobServiceTest {
+
+    @Autowired
+    private PatientImportJobService jobService;
+
+    @Autowired
+    private PatientImportJobRepository jobRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final UUID submitter = UUID.randomUUID();
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM patient_import_jobs");
+        jdbcTemplate.update("DELETE FROM email_outbox WHERE recipient LIKE '%@job.test'");
+        jdbcTemplate.update("DELETE FROM patient_profiles WHERE user_id IN (SELECT id FROM users WHERE email LIKE '%@job.test')");
+        jdbcTemplate.update("DELETE FROM users WHERE email LIKE '%@job.test'");
+    }
+
+    @Test
+    void submit_runsInBackgroundAndKeepsTheReport() throws Exception {
+        PatientImportJobStatus submitted = jobService.submit(csv("""
+            email,first_name,last_name,id_type,id_number
+            one@job.test,One,Patient,CC,9001
+            two@job.test,Two,Patient,XX,9002
+            """), submitter);
+        assertNotEquals(State.COMPLETED, submitted.state());
+        assertNotEquals(State.FAILED, submitted.state());
+
+        PatientImportJobStatus finished = awaitFinished(submitted.jobId());
+
+        assertEquals(State.COMPLETED, finished.state());
+        assertEquals(2, finished.rowsProcessed());
+        assertNotNull(finished.finishedAt());
+        PatientImportResult result = finished.result();
+        assertEquals(1, result.imported());
+        assertEquals(List.of(3), result.errors().stream().map(PatientImportResult.RowError::line).toList());
+    }
+
+    @Test
+    void submit_withMissingColumn_isRejectedUpFront() {
+        assertThrows(IllegalStateException.class, () -> jobService.submit(csv("email,first_name\n"), submitter));
+    }
+
+    @Test
+    void find_unknownJob_isEmpty() {
+        assertTrue(jobService.find(UUID.randomUUID(), submitter, Role.EMPLOYEE).isEmpty());
+    }
+
+    @Test
+    void find_isLimitedToTheSubmitterAndAdmins() throws Exception {
+        PatientImportJobStatus submitted = jobService.submit(csv("""
+            email,first_name,last_name,id_type,id_number
+            three@job.test,Three,Patient,CC,9003
+            """), submitter);
+        awaitFinished(submitted.jobId());
+
+        assertTrue(jobService.find(submitted.jobId(), UUID.randomUUID(), Role.EMPLOYEE).isEmpty());
+        assertTrue(jobService.find(submitted.jobId(), UUID.randomUUID(), Role.ADMIN).isPresent());
+    }
+
+    @Test
+    void maintainJobs_failsJobsWhoseHeartbeatStopped() {
+        PatientImportJob abandoned = jobRepository.save(new PatientImportJob(submitter));
+        jdbcTemplate.update("UPDATE patient_import_jobs SET heartbeat_at = ? WHERE id = ?",
+            Timestamp.from(Instant.now().minus(Duration.ofHours(1))), abandoned.getId());
+
+        jobService.maintainJobs();
+
+        PatientImportJobStatus status = jobService.find(abandoned.getId(), submitter, Role.EMPLOYEE).orElseThrow();
+        assertEquals(State.FAILED, status.state());
+        assertEquals(PatientImportJobService.INTERRUPTED, status.error());
+        assertNotNull(status.finishedAt());
+    }
+
+    private static MockMultipartFile csv(String content) {
+        return new MockMultipartFile("file", "patients.csv", "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private PatientImportJobStatus awaitFinished(UUID jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            PatientImportJobStatus status = jobService.find(jobId, submitter, Role.EMPLOYEE).orElseThrow();
+            if (status.state() == State.COMPLETED || status.state() == State.FAILED) {
+                return status;
+            }
+            Thread.sleep(20);
+        }
+        fail("Import job did not finish");
+        return null;
+    }
+}
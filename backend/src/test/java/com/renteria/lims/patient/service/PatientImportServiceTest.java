@@ -0,0 +1,141 @@
+package com.renteria.lims.patient.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.renteria.lims.config.PatientImportConfig;
+import com.renteria.lims.email.model.EmailOutboxMessage;
+import com.renteria.lims.email.model.EmailTemplate;
+import com.renteria.lims.email.repository.EmailOutboxRepository;
+import com.renteria.lims.patient.model.dto.PatientImportResult;
+import com.renteria.lims.patient.model.dto.PatientImportResult.RowError;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PatientImportServiceTest {
+
+    @Autowired
+    private PatientImportService importService;
+
+    @Autowired
+    private PatientImportConfig config;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private int originalChunkSize;
+
+    @BeforeEach
+    void setUp() {
+        originalChunkSize = config.getChunkSize();
+        config.setChunkSize(2);
+        cleanUp();
+    }
+
+    @AfterEach
+    void tearDown() {
+        config.setChunkSize(originalChunkSize);
+        cleanUp();
+    }
+
+    @Test
+    void importsValidRowsAndQueuesWelcomeEmails() throws Exception {
+        PatientImportResult result = importCsv("""
+            email,first_name,last_name,id_type,id_number,date_of_birth,blood_type,phone
+            ana@import.test,Ana,Gómez,CC,1001,1990-04-12,O+,3001234567
+            "Luis@Import.test","Luis \"\"Lucho\"\"",Pérez,ce,1002,,,
+            maria@import.test,María,"Díaz, Ruiz",TI,1003,,A-,
+            """);
+
+        assertEquals(new PatientImportResult(3, 3, 0, List.of(), false), result);
+        assertEquals(3, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM patient_profiles p JOIN users u ON u.id = p.user_id "
+                + "WHERE u.email LIKE '%@import.test' AND u.role = 'PATIENT' AND u.force_password_change = true",
+            Integer.class));
+        assertEquals("Luis \"Lucho\"", jdbcTemplate.queryForObject(
+            "SELECT p.first_name FROM patient_profiles p JOIN users u ON u.id = p.user_id WHERE u.email = 'luis@import.test'",
+            String.class));
+
+        List<EmailOutboxMessage> queued = outboxRepository.findAll();
+        assertEquals(3, queued.size());
+        for (EmailOutboxMessage message : queued) {
+            assertEquals(EmailTemplate.INITIAL_PASSWORD, message.getTemplate());
+            String temporaryPassword = (String) objectMapper.readValue(message.getPayload(), Map.class).get("temporaryPassword");
+            String hash = jdbcTemplate.queryForObject("SELECT password_hash FROM users WHERE email = ?",
+                String.class, message.getRecipient());
+            assertTrue(hash.startsWith("{bcrypt}$2a$04$"));
+            assertTrue(passwordEncoder.matches(temporaryPassword, hash));
+        }
+    }
+
+    @Test
+    void reportsPerRowErrorsAndImportsTheRest() throws Exception {
+        UUID existing = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id, email, password_hash, role, active, force_password_change, "
+            + "failed_login_attempts, created_at, updated_at) VALUES (?, 'old@import.test', 'x', 'PATIENT', true, "
+            + "false, 0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", existing);
+        jdbcTemplate.update("INSERT INTO patient_profiles (user_id, first_name, last_name, id_type, id_number, "
+            + "consent_given, created_at, updated_at) VALUES (?, 'Old', 'Patient', 'CC', '2000', false, "
+            + "CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", existing);
+
+        PatientImportResult result = importCsv("""
+            id_type,id_number,email,first_name,last_name
+            CC,2001,ok1@import.test,Ok,One
+            XX,2002,bad-type@import.test,Bad,Type
+            CC,2000,taken@import.test,Taken,Id
+            CC,2001,dup@import.test,Dup,Id
+            CC,2003,old@import.test,Taken,Email
+            CC,2004,not-an-email,No,Email
+
+            CC,2005,"unterminated@import.test,No,Quote
+            CC,2006,ok2@import.test,Ok,Two
+            """);
+
+        assertEquals(8, result.totalRows());
+        assertEquals(2, result.imported());
+        assertEquals(6, result.failed());
+        assertEquals(List.of(3, 4, 5, 6, 7, 9), result.errors().stream().map(RowError::line).sorted().toList());
+        RowError taken = result.errors().stream().filter(e -> e.line() == 4).findFirst().orElseThrow();
+        assertEquals("CC", taken.idType());
+        assertEquals("2000", taken.idNumber());
+        assertEquals(2, outboxRepository.count());
+    }
+
+    @Test
+    void missingRequiredColumnRejectsTheFile() {
+        assertThrows(IllegalStateException.class, () -> importCsv("email,first_name,last_name,id_type\n"));
+    }
+
+    private PatientImportResult importCsv(String csv) throws Exception {
+        return importService.importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void cleanUp() {
+        outboxRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM patient_profiles WHERE user_id IN (SELECT id FROM users WHERE email LIKE '%@import.test' OR email = 'not-an-email')");
+        jdbcTemplate.update("DELETE FROM users WHERE email LIKE '%@import.test'");
+    }
+}
@@ -0,0 +1,109 @@
+package com.renteria.lims.patient.service;
+
+import com.renteria.lims.patient.model.PatientSummary;
+import com.renteria.lims.patient.model.dto.PatientPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PatientQueryServiceTest {
+
+    @Autowired
+    private PatientQueryService queryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        // Inserted out of order; three share "Gómez Ana" so the id breaks the tie
+        insert(7, "Zapata", "Luis");
+        insert(3, "Gómez", "Ana");
+        insert(1, "Gómez", "Ana");
+        insert(2, "Gómez", "Ana");
+        insert(5, "Gómez", "Beatriz");
+        insert(4, "Arias", "Carlos");
+        insert(6, "Pérez", "Ana");
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanUp();
+    }
+
+    @Test
+    void walksAllPagesInKeyOrder() {
+        List<Integer> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            PatientPage page = queryService.list(cursor, 3);
+            assertTrue(page.items().size() <= 3);
+            page.items().forEach(p -> seen.add((int) p.getUserId().getLeastSignificantBits()));
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(List.of(4, 1, 2, 3, 5, 6, 7), seen);
+        assertEquals(3, pages);
+    }
+
+    @Test
+    void exactlyFullLastPageHasNoCursor() {
+        PatientPage page = queryService.list(null, 7);
+
+        assertEquals(7, page.items().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void projectsJoinedColumns() {
+        PatientSummary first = queryService.list(null, 1).items().get(0);
+
+        assertEquals("Arias", first.getLastName());
+        assertEquals("carlos4@listing.test", first.getEmail());
+        assertEquals("CC", first.getIdType());
+        assertEquals("L4", first.getIdNumber());
+        assertTrue(first.isActive());
+    }
+
+    @Test
+    void pageSizeIsClamped() {
+        assertEquals(1, queryService.list(null, 0).items().size());
+        assertEquals(7, queryService.list(null, 10_000).items().size());
+    }
+
+    @Test
+    void invalidCursorIsRejected() {
+        assertThrows(IllegalStateException.class, () -> queryService.list("not a cursor!", 3));
+        assertThrows(IllegalStateException.class, () -> queryService.list("bm9zZXBhcmF0b3I", 3));
+    }
+
+    private void insert(int n, String lastName, String firstName) {
+        UUID id = new UUID(0, n);
+        jdbcTemplate.update("INSERT INTO users (id, email, password_hash, role, active, force_password_change, "
+            + "failed_login_attempts, created_at, updated_at) VALUES (?, ?, 'x', 'PATIENT', true, false, 0, "
+            + "CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", id, firstName.toLowerCase() + n + "@listing.test");
+        jdbcTemplate.update("INSERT INTO patient_profiles (user_id, first_name, last_name, id_type, id_number, "
+            + "consent_given, created_at, updated_at) VALUES (?, ?, ?, 'CC', ?, false, CURRENT_TIMESTAMP, "
+            + "CURRENT_TIMESTAMP)", id, firstName, lastName, "L" + n);
+    }
+
+    private void cleanUp() {
+        jdbcTemplate.update("DELETE FROM patient_profiles WHERE user_id IN (SELECT id FROM users WHERE email LIKE '%@listing.test')");
+        jdbcTemplate.update("DELETE FROM users WHERE email LIKE '%@listing.test'");
+    }
+}
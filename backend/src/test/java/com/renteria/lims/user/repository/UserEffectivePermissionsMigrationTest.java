@@ -0,0 +1,230 @@
+package com.renteria.lims.user.repository;
+
+import com.renteria.lims.config.SecurityConfigProps;
+import com.renteria.lims.user.service.EffectivePermissionMaintenance;
+import com.renteria.lims.user.service.PermissionCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Runs the real migrations on PostgreSQL and checks that the V15/V21 triggers keep
+ * {@code user_effective_permissions} in step with every source table. The H2 test profile
+ * cannot run them, so this is skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class UserEffectivePermissionsMigrationTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private final String suffix = UUID.randomUUID().toString().substring(0, 8);
+    private UUID userId;
+    private UUID rolePermissionId;
+    private UUID groupPermissionId;
+    private UUID groupId;
+
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure()
+            .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+            .locations("classpath:db/migration")
+            .load()
+            .migrate();
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword()));
+    }
+
+    @BeforeEach
+    void setUp() {
+        rolePermissionId = insertPermission("ROLE_" + suffix);
+        groupPermissionId = insertPermission("GROUP_" + suffix);
+        jdbcTemplate.update("INSERT INTO role_permissions (role, permission_id) VALUES ('EMPLOYEE', ?)", rolePermissionId);
+        groupId = jdbcTemplate.queryForObject(
+            "INSERT INTO groups (name) VALUES (?) RETURNING id", UUID.class, "group-" + suffix);
+        userId = jdbcTemplate.queryForObject(
+            "INSERT INTO users (email, password_hash, role) VALUES (?, 'hash', 'PATIENT') RETURNING id",
+            UUID.class, "user-" + suffix + "@example.com");
+    }
+
+    private UUID insertPermission(String code) {
+        return jdbcTemplate.queryForObject(
+            "INSERT INTO permissions (code, description, category) VALUES (?, ?, 'test') RETURNING id",
+            UUID.class, code, code);
+    }
+
+    private Set<String> materialized() {
+        return Set.copyOf(jdbcTemplate.queryForList(
+            "SELECT permission_code FROM user_effective_permissions WHERE user_id = ?", String.class, userId));
+    }
+
+    private void assertConsistent() {
+        assertEquals(0, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM check_user_effective_permissions()", Integer.class));
+    }
+
+    @Test
+    void roleChange_replacesRoleGrants() {
+        assertFalse(materialized().contains("ROLE_" + suffix));
+
+        jdbcTemplate.update("UPDATE users SET role = 'EMPLOYEE' WHERE id = ?", userId);
+        assertTrue(materialized().contains("ROLE_" + suffix));
+
+        jdbcTemplate.update("UPDATE users SET role = 'PATIENT' WHERE id = ?", userId);
+        assertFalse(materialized().contains("ROLE_" + suffix));
+        assertConsistent();
+    }
+
+    @Test
+    void rolePermissionChanges_reachEveryUserWithTheRole() {
+        jdbcTemplate.update("UPDATE users SET role = 'EMPLOYEE' WHERE id = ?", userId);
+
+        jdbcTemplate.update("DELETE FROM role_permissions WHERE role = 'EMPLOYEE' AND permission_id = ?", rolePermissionId);
+        assertFalse(materialized().contains("ROLE_" + suffix));
+
+        jdbcTemplate.update("INSERT INTO role_permissions (role, permission_id) VALUES ('EMPLOYEE', ?)", rolePermissionId);
+        assertTrue(materialized().contains("ROLE_" + suffix));
+        assertConsistent();
+    }
+
+    @Test
+    void groupMembershipAndGroupGrants_areApplied() {
+        jdbcTemplate.update("INSERT INTO user_groups (user_id, group_id) VALUES (?, ?)", userId, groupId);
+        assertFalse(materialized().contains("GROUP_" + suffix));
+
+        jdbcTemplate.update("INSERT INTO group_permissions (group_id, permission_id) VALUES (?, ?)", groupId, groupPermissionId);
+        assertTrue(materialized().contains("GROUP_" + suffix));
+
+        jdbcTemplate.update("DELETE FROM user_groups WHERE user_id = ? AND group_id = ?", userId, groupId);
+        assertFalse(materialized().contains("GROUP_" + suffix));
+        assertConsistent();
+    }
+
+    @Test
+    void sharedGrantSurvivesLosingOneSource() {
+        jdbcTemplate.update("UPDATE users SET role = 'EMPLOYEE' WHERE id = ?", userId);
+        jdbcTemplate.update("INSERT INTO user_groups (user_id, group_id) VALUES (?, ?)", userId, groupId);
+        jdbcTemplate.update("INSERT INTO group_permissions (group_id, permission_id) VALUES (?, ?)", groupId, rolePermissionId);
+
+        jdbcTemplate.update("DELETE FROM group_permissions WHERE group_id = ?", groupId);
+
+        assertTrue(materialized().contains("ROLE_" + suffix));
+        assertConsistent();
+    }
+
+    @Test
+    void permissionRename_isPropagated() {
+        jdbcTemplate.update("UPDATE users SET role = 'EMPLOYEE' WHERE id = ?", userId);
+
+        jdbcTemplate.update("UPDATE permissions SET code = ? WHERE id = ?", "RENAMED_" + suffix, rolePermissionId);
+
+        assertEquals(Set.of("RENAMED_" + suffix), Set.copyOf(materialized().stream()
+            .filter(code -> code.endsWith(suffix)).toList()));
+        assertConsistent();
+    }
+
+    @Test
+    void rebuild_restoresDriftedRows() {
+        jdbcTemplate.update("UPDATE users SET role = 'EMPLOYEE' WHERE id = ?", userId);
+        jdbcTemplate.update("DELETE FROM user_effective_permissions WHERE user_id = ?", userId);
+        assertTrue(jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM check_user_effective_permissions()", Integer.class) > 0);
+
+        jdbcTemplate.queryForObject("SELECT rebuild_user_effective_permissions()", Long.class);
+
+        assertTrue(materialized().contains("ROLE_" + suffix));
+        assertConsistent();
+    }
+
+    @Test
+    void bulkInsert_materializesRoleGrantsForEveryRow() {
+        List<UUID> ids = jdbcTemplate.queryForList("""
+            INSERT INTO users (email, password_hash, role)
+            VALUES (?, 'hash', 'EMPLOYEE'), (?, 'hash', 'EMPLOYEE'), (?, 'hash', 'PATIENT')
+            RETURNING id
+            """, UUID.class, "bulk1-" + suffix + "@example.com", "bulk2-" + suffix + "@example.com",
+            "bulk3-" + suffix + "@example.com");
+
+        assertEquals(2, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM user_effective_permissions WHERE user_id IN (?, ?, ?) AND permission_code = ?",
+            Integer.class, ids.get(0), ids.get(1), ids.get(2), "ROLE_" + suffix));
+        assertConsistent();
+    }
+
+    @Test
+    void concurrentMembershipAndGroupGrant_leaveNoStaleRow() throws Exception {
+        try (Connection membership = DriverManager.getConnection(
+                 POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+             Connection grant = DriverManager.getConnection(
+                 POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())) {
+            membership.setAutoCommit(false);
+            grant.setAutoCommit(false);
+            try (PreparedStatement insert = membership.prepareStatement(
+                    "INSERT INTO user_groups (user_id, group_id) VALUES (?, ?)")) {
+                insert.setObject(1, userId);
+                insert.setObject(2, groupId);
+                insert.executeUpdate();
+            }
+
+            // Blocks on the group lock until the membership commits, then sees it
+            CompletableFuture<Void> granted = CompletableFuture.runAsync(() -> {
+                try (PreparedStatement insert = grant.prepareStatement(
+                        "INSERT INTO group_permissions (group_id, permission_id) VALUES (?, ?)")) {
+                    insert.setObject(1, groupId);
+                    insert.setObject(2, groupPermissionId);
+                    insert.executeUpdate();
+                    grant.commit();
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            Thread.sleep(200);
+            assertFalse(granted.isDone());
+            membership.commit();
+            granted.get(10, TimeUnit.SECONDS);
+        }
+
+        assertTrue(materialized().contains("GROUP_" + suffix));
+        assertConsistent();
+    }
+
+    @Test
+    void scheduledCheck_refreshesDriftedUsers() {
+        jdbcTemplate.update("UPDATE users SET role = 'EMPLOYEE' WHERE id = ?", userId);
+        jdbcTemplate.update("DELETE FROM user_effective_permissions WHERE user_id = ?", userId);
+        SecurityConfigProps props = new SecurityConfigProps();
+        props.setMaterializedPermissions(true);
+        PermissionCache permissionCache = mock(PermissionCache.class);
+        EffectivePermissionMaintenance maintenance = new EffectivePermissionMaintenance(
+            jdbcTemplate, props, permissionCache, new SimpleMeterRegistry());
+
+        maintenance.scheduledCheck();
+
+        assertTrue(materialized().contains("ROLE_" + suffix));
+        assertConsistent();
+        verify(permissionCache).invalidateAllNodes();
+    }
+}
@@ -0,0 +1,167 @@
+package com.renteria.lims.user.service;
+
+import com.renteria.lims.common.cluster.ClusterEventBus;
+import com.renteria.lims.config.ClusterBusConfig;
+import com.renteria.lims.config.SecurityConfigProps;
+import com.renteria.lims.user.model.GroupPermission;
+import com.renteria.lims.user.model.Permission;
+import com.renteria.lims.user.model.Role;
+import com.renteria.lims.user.model.RolePermission;
+import com.renteria.lims.user.model.User;
+import com.renteria.lims.user.model.UserGroup;
+import com.renteria.lims.user.repository.PermissionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Writes go through JPA so the entity listeners and the (local) cluster bus evict entries,
+ * exactly as they would on every node in production.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class PermissionCacheTest {
+
+    @Autowired
+    private PermissionCache permissionCache;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ClusterEventBus eventBus;
+
+    private final String suffix = UUID.randomUUID().toString().substring(0, 8);
+    private Permission rolePermission;
+    private Permission groupPermission;
+
+    @BeforeEach
+    void setUp() {
+        permissionCache.invalidateAll();
+        rolePermission = persist(new Permission("ROLE_" + suffix, "Role " + suffix, "test"));
+        groupPermission = persist(new Permission("GROUP_" + suffix, "Group " + suffix, "test"));
+    }
+
+    private <T> T persist(T entity) {
+        transactionTemplate.executeWithoutResult(status -> entityManager.persist(entity));
+        return entity;
+    }
+
+    @Test
+    void getEffectivePermissions_afterGroupAssignment_seesNewGrant() {
+        UUID userId = UUID.randomUUID();
+        UUID groupId = UUID.randomUUID();
+        persist(new GroupPermission(groupId, groupPermission.getId()));
+
+        assertFalse(permissionCache.getEffectivePermissions(userId, Role.EMPLOYEE).contains(groupPermission.getCode()));
+
+        persist(new UserGroup(userId, groupId, null));
+
+        assertTrue(permissionCache.getEffectivePermissions(userId, Role.EMPLOYEE).contains(groupPermission.getCode()));
+    }
+
+    @Test
+    void getEffectivePermissions_afterRoleGrant_seesNewGrant() {
+        UUID userId = UUID.randomUUID();
+        Set<String> before = permissionCache.getEffectivePermissions(userId, Role.ADMIN);
+        assertFalse(before.contains(rolePermission.getCode()));
+
+        persist(new RolePermission(Role.ADMIN, rolePermission.getId()));
+
+        assertTrue(permissionCache.getEffectivePermissions(userId, Role.ADMIN).contains(rolePermission.getCode()));
+    }
+
+    @Test
+    void getEffectivePermissions_afterGroupGrant_seesNewGrant() {
+        UUID userId = UUID.randomUUID();
+        UUID groupId = UUID.randomUUID();
+        persist(new UserGroup(userId, groupId, null));
+        assertFalse(permissionCache.getEffectivePermissions(userId, Role.PATIENT).contains(groupPermission.getCode()));
+
+        persist(new GroupPermission(groupId, groupPermission.getId()));
+
+        assertTrue(permissionCache.getEffectivePermissions(userId, Role.PATIENT).contains(groupPermission.getCode()));
+    }
+
+    @Test
+    void userRoleChange_publishesUserEviction() {
+        List<String> events = new CopyOnWriteArrayList<>();
+        eventBus.subscribe(PermissionCache.TOPIC, events::add);
+        User user = persist(new User("role-" + suffix + "@example.com", "hash", Role.PATIENT));
+
+        transactionTemplate.executeWithoutResult(status ->
+            entityManager.find(User.class, user.getId()).setEmail("renamed-" + suffix + "@example.com"));
+        assertFalse(events.contains("user:" + user.getId()));
+
+        transactionTemplate.executeWithoutResult(status ->
+            entityManager.find(User.class, user.getId()).setRole(Role.EMPLOYEE));
+        assertTrue(events.contains("user:" + user.getId()));
+    }
+
+    @Test
+    void materialized_rereadsWhenTokenRoleDiffersFromCachedOne() {
+        PermissionRepository repository = mock(PermissionRepository.class);
+        SecurityConfigProps props = new SecurityConfigProps();
+        props.setMaterializedPermissions(true);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PermissionCache cache = new PermissionCache(repository,
+            new ClusterEventBus(new ClusterBusConfig(), null, null, meterRegistry), props, meterRegistry);
+        UUID userId = UUID.randomUUID();
+        when(repository.findMaterializedCodesByUserId(userId)).thenReturn(Set.of("A"), Set.of("A", "B"));
+
+        assertEquals(Set.of("A"), cache.getEffectivePermissions(userId, Role.PATIENT));
+        assertEquals(Set.of("A"), cache.getEffectivePermissions(userId, Role.PATIENT));
+        assertEquals(Set.of("A", "B"), cache.getEffectivePermissions(userId, Role.EMPLOYEE));
+        verify(repository, times(2)).findMaterializedCodesByUserId(userId);
+    }
+
+    @Test
+    void materialized_evictionDuringLoad_isNotLost() throws Exception {
+        PermissionRepository repository = mock(PermissionRepository.class);
+        SecurityConfigProps props = new SecurityConfigProps();
+        props.setMaterializedPermissions(true);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PermissionCache cache = new PermissionCache(repository,
+            new ClusterEventBus(new ClusterBusConfig(), null, null, meterRegistry), props, meterRegistry);
+        UUID userId = UUID.randomUUID();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(repository.findMaterializedCodesByUserId(userId)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Set.of("STALE");
+        }).thenReturn(Set.of("FRESH"));
+
+        Thread reader = new Thread(() -> cache.getEffectivePermissions(userId, Role.PATIENT));
+        reader.start();
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        Thread evicter = new Thread(() -> cache.userChanged(userId));
+        evicter.start();
+        while (evicter.isAlive() && evicter.getState() == Thread.State.RUNNABLE) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        reader.join(5000);
+        evicter.join(5000);
+
+        assertEquals(Set.of("FRESH"), cache.getEffectivePermissions(userId, Role.PATIENT));
+    }
+}
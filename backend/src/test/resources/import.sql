@@ -0,0 +1,16 @@
+-- Permission catalogue as seeded by V7/V9, which the H2 test schema does not run. Hibernate
+-- loads this right after create-drop, before any bean reads it; guarded beans are validated
+-- against it at startup.
+INSERT INTO permissions (id, code, description, category, bit_index, created_at) VALUES (RANDOM_UUID(), 'OWN_PROFILE_VIEW', 'View own profile', 'profile', 0, CURRENT_TIMESTAMP);
+INSERT INTO permissions (id, code, description, category, bit_index, created_at) VALUES (RANDOM_UUID(), 'OWN_PROFILE_EDIT', 'Edit own contact info', 'profile', 1, CURRENT_TIMESTAMP);
+INSERT INTO permissions (id, code, description, category, bit_index, created_at) VALUES (RANDOM_UUID(), 'OWN_RESULTS_VIEW', 'View own lab results', 'results', 2, CURRENT_TIMESTAMP);
+INSERT INTO permissions (id, code, description, category, bit_index, created_at) VALUES (RANDOM_UUID(), 'PASSWORD_CHANGE', 'Change own password', 'profile', 3, CURRENT_TIMESTAMP);
+INSERT INTO permissions (id, code, description, category, bit_index, created_at) VALUES (RANDOM_UUID(), 'PATIENT_LIST', 'List all patients', 'patients', 4, CURRENT_TIMESTAMP);
+INSERT INTO permissions (id, code, description, category, bit_index, created_at) VALUES (RANDOM_UUID(), 'PATIENT_VIEW', 'View patient details', 'patients', 5, CURRENT_TIMESTAMP);
+INSERT INTO permissions (id, code, description, category, bit_index, created_at) VALUES (RANDOM_UUID(), 'PATIENT_CREATE', 'Create patient accounts', 'patients', 6, CURRENT_TIMESTAMP);
+INSERT INTO permissions (id, code, description, category, bit_index, created_at) VALUES (RANDOM_UUID(), 'RESULTS_LIST', 'List all results', 'results', 7, CURRENT_TIMESTAMP);
+INSERT INTO permissions (id, code, description, category, bit_index, created_at) VALUES (RANDOM_UUID(), 'RESULTS_UPLOAD', 'Upload lab results', 'results', 8, CURRENT_TIMESTAMP);
+INSERT INTO permissions (id, code, description, category, bit_index, created_at) VALUES (RANDOM_UUID(), 'EMPLOYEE_MANAGE', 'Manage employees', 'admin', 9, CURRENT_TIMESTAMP);
+INSERT INTO permissions (id, code, description, category, bit_index, created_at) VALUES (RANDOM_UUID(), 'GROUP_MANAGE', 'Manage groups and permissions', 'admin', 10, CURRENT_TIMESTAMP);
+INSERT INTO permissions (id, code, description, category, bit_index, created_at) VALUES (RANDOM_UUID(), 'AUDIT_VIEW', 'View audit logs', 'admin', 11, CURRENT_TIMESTAMP);
+INSERT INTO permissions (id, code, description, category, bit_index, created_at) VALUES (RANDOM_UUID(), 'SETTINGS_MANAGE', 'Manage lab settings', 'admin', 12, CURRENT_TIMESTAMP);